@@ -0,0 +1,44 @@
+package com.nimbleways.springboilerplate.benchmarks;
+
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.ProductType;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the products of a benchmarked order.
+ */
+final class BenchmarkProducts {
+
+    // Product mix accepted by create(): one of the product types, or MIXED for the three in turn
+    static final String MIXED = "MIXED";
+
+    private BenchmarkProducts() {
+    }
+
+    /**
+     * @param count          number of products
+     * @param mix            a ProductType name or MIXED
+     * @param inStockPercent share of the products that can be sold, the others take the delay,
+     *                       out-of-stock or expiration branch
+     */
+    static List<Product> create(int count, String mix, int inStockPercent) {
+        LocalDate today = LocalDate.now();
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ProductType type = MIXED.equals(mix) ? ProductType.values()[i % ProductType.values().length] : ProductType.valueOf(mix);
+            int available = i * 100 / count < inStockPercent ? 1_000_000 : 0;
+            long id = i + 1L;
+            switch (type) {
+                case NORMAL -> products.add(new Product(id, 10, available, type, "Normal " + i, null, null, null));
+                case SEASONAL -> products.add(new Product(id, 10, available, type, "Seasonal " + i, null,
+                        today.minusDays(10), today.plusDays(60)));
+                case EXPIRABLE -> products.add(new Product(id, 10, available, type, "Expirable " + i,
+                        today.plusDays(30), null, null));
+            }
+        }
+        return products;
+    }
+}
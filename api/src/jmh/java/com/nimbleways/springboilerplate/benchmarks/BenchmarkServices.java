@@ -0,0 +1,86 @@
+package com.nimbleways.springboilerplate.benchmarks;
+
+import com.nimbleways.springboilerplate.config.NotificationOutboxProperties;
+import com.nimbleways.springboilerplate.config.OrderPartitionProperties;
+import com.nimbleways.springboilerplate.config.ProductCatalogCacheProperties;
+import com.nimbleways.springboilerplate.config.ProductNameIndexProperties;
+import com.nimbleways.springboilerplate.config.StockLedgerProperties;
+import com.nimbleways.springboilerplate.repositories.OrderRepository;
+import com.nimbleways.springboilerplate.repositories.StockLedgerCheckpointRepository;
+import com.nimbleways.springboilerplate.services.implementations.ExpirableProductHandler;
+import com.nimbleways.springboilerplate.services.implementations.NormalProductHandler;
+import com.nimbleways.springboilerplate.services.implementations.NotificationOutboxService;
+import com.nimbleways.springboilerplate.services.implementations.ProductAvailabilityIndex;
+import com.nimbleways.springboilerplate.services.implementations.ProductCatalogCache;
+import com.nimbleways.springboilerplate.services.implementations.ProductMetrics;
+import com.nimbleways.springboilerplate.services.implementations.ProductNameIndex;
+import com.nimbleways.springboilerplate.services.implementations.ProductPartitions;
+import com.nimbleways.springboilerplate.services.implementations.ProductService;
+import com.nimbleways.springboilerplate.services.implementations.ProductTypeHandlerRegistry;
+import com.nimbleways.springboilerplate.services.implementations.SeasonalProductHandler;
+import com.nimbleways.springboilerplate.services.implementations.StockLedger;
+import com.nimbleways.springboilerplate.tracing.Spans;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Clock;
+import java.util.List;
+
+/**
+ * Wires the services under benchmark by hand, on top of the in-memory repositories.
+ */
+final class BenchmarkServices {
+
+    private BenchmarkServices() {
+    }
+
+    static ProductTypeHandlerRegistry productTypeHandlerRegistry() {
+        return new ProductTypeHandlerRegistry(List.of(new NormalProductHandler(), new SeasonalProductHandler(), new ExpirableProductHandler()));
+    }
+
+    static ProductService productService() {
+        return new ProductService(
+                InMemoryRepositories.products(),
+                new NotificationOutboxService(InMemoryRepositories.notificationOutbox(), new NotificationOutboxProperties()),
+                InMemoryRepositories.unsupported(OrderRepository.class),
+                new ProductCatalogCache(new ProductCatalogCacheProperties(), new SimpleMeterRegistry()),
+                productTypeHandlerRegistry(),
+                new ProductMetrics(new SimpleMeterRegistry()),
+                new Spans(OpenTelemetry.noop()),
+                disabledStockLedger(),
+                new ProductPartitions(new OrderPartitionProperties(), InMemoryRepositories.products(),
+                        noTransactions(), new SimpleMeterRegistry()),
+                new ProductAvailabilityIndex(InMemoryRepositories.products(), Clock.systemDefaultZone(), new SimpleMeterRegistry()),
+                new ProductNameIndex(new ProductNameIndexProperties(), InMemoryRepositories.products()),
+                Clock.systemDefaultZone());
+    }
+
+    // Transactions that begin and end without doing anything, the stubs are not transactional
+    static PlatformTransactionManager noTransactions() {
+        return new PlatformTransactionManager() {
+            @Override
+            public TransactionStatus getTransaction(TransactionDefinition definition) {
+                return new SimpleTransactionStatus();
+            }
+
+            @Override
+            public void commit(TransactionStatus status) {
+            }
+
+            @Override
+            public void rollback(TransactionStatus status) {
+            }
+        };
+    }
+
+    // Stock is taken with the repository decrements, as with the default settings
+    private static StockLedger disabledStockLedger() {
+        return new StockLedger(new StockLedgerProperties(), InMemoryRepositories.products(),
+                InMemoryRepositories.unsupported(StockLedgerCheckpointRepository.class),
+                noTransactions(), new SimpleMeterRegistry());
+    }
+}
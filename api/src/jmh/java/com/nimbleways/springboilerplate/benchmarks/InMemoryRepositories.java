@@ -0,0 +1,101 @@
+package com.nimbleways.springboilerplate.benchmarks;
+
+import com.nimbleways.springboilerplate.dto.product.ProductName;
+import com.nimbleways.springboilerplate.repositories.NotificationOutboxRepository;
+import com.nimbleways.springboilerplate.repositories.ProductRepository;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+/**
+ * Repository stubs that never reach a database, so that the benchmarks measure the business rules only.
+ * Only the methods used on the order-processing path are implemented, the others throw.
+ */
+final class InMemoryRepositories {
+
+    private InMemoryRepositories() {
+    }
+
+    // Writes are accepted and discarded, every conditional decrement succeeds
+    static ProductRepository products() {
+        return stub(ProductRepository.class, (method, args) -> switch (method.getName()) {
+            case "save" -> args[0];
+            case "saveAll" -> toList((Iterable<?>) args[0]);
+            case "decrementAvailable", "decrementAvailableBy" -> 1;
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    /**
+     * Products whose stock never runs out, where every write holds the row of its product for
+     * writeNanos as a database row lock would, so concurrent writes of the same product queue up.
+     */
+    static ProductRepository lockedRows(int productCount, long writeNanos) {
+        Object[] rows = new Object[productCount];
+        for (int i = 0; i < productCount; i++) {
+            rows[i] = new Object();
+        }
+        return stub(ProductRepository.class, (method, args) -> switch (method.getName()) {
+            case "findAvailableById" -> Optional.of(Integer.MAX_VALUE);
+            case "decrementAvailable", "decrementAvailableBy", "incrementAvailableBy" -> {
+                synchronized (rows[(int) Math.floorMod((Long) args[0], (long) productCount)]) {
+                    long end = System.nanoTime() + writeNanos;
+                    while (System.nanoTime() < end) {
+                        Thread.onSpinWait();
+                    }
+                }
+                yield 1;
+            }
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    // Catalog whose names are loaded by the name index
+    static ProductRepository productNames(List<ProductName> names) {
+        return stub(ProductRepository.class, (method, args) -> switch (method.getName()) {
+            case "findAllNames" -> names;
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    // Behaves as an empty outbox
+    static NotificationOutboxRepository notificationOutbox() {
+        return stub(NotificationOutboxRepository.class, (method, args) -> switch (method.getName()) {
+            case "findExistingIdempotencyKeys" -> Set.of();
+            case "saveAll" -> toList((Iterable<?>) args[0]);
+            default -> throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    static <T> T unsupported(Class<T> repositoryType) {
+        return stub(repositoryType, (method, args) -> {
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    private static <T> T stub(Class<T> repositoryType, BiFunction<Method, Object[], Object> implementation) {
+        InvocationHandler handler = (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> repositoryType.getSimpleName() + " stub";
+                };
+            }
+            return implementation.apply(method, args);
+        };
+        return repositoryType.cast(Proxy.newProxyInstance(repositoryType.getClassLoader(), new Class<?>[]{repositoryType}, handler));
+    }
+
+    private static List<Object> toList(Iterable<?> entities) {
+        List<Object> list = new ArrayList<>();
+        entities.forEach(list::add);
+        return list;
+    }
+}
@@ -0,0 +1,82 @@
+package com.nimbleways.springboilerplate.benchmarks;
+
+import com.nimbleways.springboilerplate.entities.Order;
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.services.implementations.ProductService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the order-processing rules of ProductService, with the repositories replaced by
+ * in-memory stubs. Every operation processes one order of orderSize products.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-jmh.xml")
+public class ProductHandlersBenchmark {
+
+    @Param({"1", "10", "100"})
+    int orderSize;
+
+    @Param({"NORMAL", "SEASONAL", "EXPIRABLE", BenchmarkProducts.MIXED})
+    String mix;
+
+    @Param({"100", "50"})
+    int inStockPercent;
+
+    private ProductService productService;
+    private List<Product> products;
+    private Order order;
+
+    @Setup
+    public void setUp() {
+        productService = BenchmarkServices.productService();
+        products = BenchmarkProducts.create(orderSize, mix, inStockPercent);
+        order = new Order(1L, new LinkedHashSet<>(products));
+    }
+
+    // One handler call, and so one save and one outbox write, per product
+    @Benchmark
+    public void handlePerProduct() {
+        for (Product p : products) {
+            switch (p.getType()) {
+                case NORMAL -> productService.handleNormalProduct(p);
+                case SEASONAL -> productService.handleSeasonalProduct(p);
+                case EXPIRABLE -> productService.handleExpirableProduct(p);
+            }
+        }
+    }
+
+    // The whole order at once, as done by POST /orders/{orderId}/processOrder
+    @Benchmark
+    public void processOrder() {
+        productService.processOrder(order);
+    }
+
+    // The rules alone, without applying their outcome
+    @Benchmark
+    public void resolveOutcomes(Blackhole blackhole) {
+        LocalDate today = LocalDate.now();
+        for (Product p : products) {
+            blackhole.consume(productService.resolveOutcome(p, today));
+        }
+    }
+}
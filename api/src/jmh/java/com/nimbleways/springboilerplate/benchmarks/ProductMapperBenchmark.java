@@ -0,0 +1,53 @@
+package com.nimbleways.springboilerplate.benchmarks;
+
+import com.nimbleways.springboilerplate.dto.product.ProductDTO;
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.mappers.ProductMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the MapStruct conversions done for every product read or written through the API.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-jmh.xml")
+public class ProductMapperBenchmark {
+
+    @Param({"NORMAL", "SEASONAL", "EXPIRABLE"})
+    String type;
+
+    private final ProductMapper productMapper = ProductMapper.INSTANCE;
+    private Product product;
+    private ProductDTO productDTO;
+
+    @Setup
+    public void setUp() {
+        product = BenchmarkProducts.create(1, type, 100).get(0);
+        productDTO = productMapper.toDTO(product);
+    }
+
+    @Benchmark
+    public Product toEntity() {
+        return productMapper.toEntity(productDTO);
+    }
+
+    @Benchmark
+    public ProductDTO toDTO() {
+        return productMapper.toDTO(product);
+    }
+}
@@ -0,0 +1,151 @@
+package com.nimbleways.springboilerplate.benchmarks;
+
+import com.nimbleways.springboilerplate.config.ProductNameIndexProperties;
+import com.nimbleways.springboilerplate.dto.product.ProductName;
+import com.nimbleways.springboilerplate.services.implementations.ProductNameIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups of products by name in a catalog of productCount products: an exact name and the
+ * first 10 names starting with a prefix, both case-insensitive as served by the endpoints. The
+ * queries run on an in-memory H2 database, with or without the idx_products_name index, against
+ * the lookups of the in-memory name index. H2 cannot index upper(name), so the prefix query
+ * scans the table here, as it does on PostgreSQL without the idx_products_name_upper index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-jmh.xml")
+public class ProductNameLookupBenchmark {
+
+    private static final int SUGGESTIONS = 10;
+
+    private static final String[] WORDS = {"Organic", "Fresh", "Smoked", "Salted", "Frozen", "Dried", "Spicy", "Sweet"};
+    private static final String[] ITEMS = {"Butter", "Milk", "Cheese", "Salmon", "Grapes", "Watermelon", "Cable", "Dongle"};
+
+    @Param({"1000000"})
+    int productCount;
+
+    @Param({"false", "true"})
+    boolean indexed;
+
+    private Connection connection;
+    private PreparedStatement exactName;
+    private PreparedStatement namePrefix;
+    private ProductNameIndex productNameIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:product-names;DB_CLOSE_DELAY=-1");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("drop table if exists products");
+            statement.execute("create table products (id bigint primary key, name varchar(255))");
+        }
+        List<ProductName> names = new ArrayList<>(productCount);
+        try (PreparedStatement insert = connection.prepareStatement("insert into products (id, name) values (?, ?)")) {
+            for (int i = 0; i < productCount; i++) {
+                ProductName name = new ProductName(i + 1L, name(i));
+                names.add(name);
+                insert.setLong(1, name.id());
+                insert.setString(2, name.name());
+                insert.addBatch();
+                if (i % 10_000 == 9_999) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+        }
+        if (indexed) {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("create index idx_products_name on products (name)");
+            }
+        }
+        exactName = connection.prepareStatement("select id from products where name = ? limit 1");
+        namePrefix = connection.prepareStatement(
+                "select id, name from products where upper(name) like ? escape '!' order by upper(name), id limit " + SUGGESTIONS);
+
+        ProductNameIndexProperties properties = new ProductNameIndexProperties();
+        properties.setEnabled(true);
+        productNameIndex = new ProductNameIndex(properties, InMemoryRepositories.productNames(names));
+        productNameIndex.rebuild();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("drop table products");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public Optional<Long> queryExactName() throws SQLException {
+        exactName.setString(1, name(randomProduct()));
+        try (ResultSet rs = exactName.executeQuery()) {
+            return rs.next() ? Optional.of(rs.getLong(1)) : Optional.empty();
+        }
+    }
+
+    @Benchmark
+    public List<ProductName> queryNamePrefix() throws SQLException {
+        namePrefix.setString(1, prefix(randomProduct()) + "%");
+        List<ProductName> names = new ArrayList<>(SUGGESTIONS);
+        try (ResultSet rs = namePrefix.executeQuery()) {
+            while (rs.next()) {
+                names.add(new ProductName(rs.getLong(1), rs.getString(2)));
+            }
+        }
+        return names;
+    }
+
+    @Benchmark
+    public Optional<Long> indexExactName() {
+        return productNameIndex.findIdByName(name(randomProduct()));
+    }
+
+    @Benchmark
+    public List<ProductName> indexNamePrefix() {
+        return productNameIndex.findStartingWith(prefix(randomProduct()), SUGGESTIONS);
+    }
+
+    private int randomProduct() {
+        return ThreadLocalRandom.current().nextInt(productCount);
+    }
+
+    // Distinct names, spread over the alphabet as in a real catalog
+    private static String name(int i) {
+        return WORDS[i % WORDS.length] + " " + ITEMS[(i / WORDS.length) % ITEMS.length] + " " + Integer.toString(i, 36);
+    }
+
+    // What a user typed before asking for suggestions: the two words and a digit of the reference
+    private static String prefix(int i) {
+        String name = name(i).toUpperCase();
+        return name.substring(0, name.lastIndexOf(' ') + 2);
+    }
+}
@@ -0,0 +1,97 @@
+package com.nimbleways.springboilerplate.benchmarks;
+
+import com.nimbleways.springboilerplate.config.OrderPartitionProperties;
+import com.nimbleways.springboilerplate.repositories.ProductRepository;
+import com.nimbleways.springboilerplate.services.implementations.ProductPartitions;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Orders per second taking their stock on 1 to N product partitions, against every request
+ * thread decrementing the rows itself. Each order takes one unit of orderSize products out of a
+ * small, hot catalog; a write holds the row of its product for writeNanos. Run with
+ * -p partitions=... matching the cores to compare, e.g. -Djmh.args="ProductPartitions -p partitions=1,2,4".
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(Threads.MAX)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-jmh.xml")
+public class ProductPartitionsBenchmark {
+
+    private static final int PRODUCT_COUNT = 64;
+
+    @Param({"1", "2", "4", "8"})
+    int partitions;
+
+    @Param({"5"})
+    int orderSize;
+
+    @Param({"0", "20000"})
+    long writeNanos;
+
+    private ProductRepository productRepository;
+    private ProductPartitions productPartitions;
+
+    @Setup
+    public void setUp() {
+        productRepository = InMemoryRepositories.lockedRows(PRODUCT_COUNT, writeNanos);
+        OrderPartitionProperties properties = new OrderPartitionProperties();
+        properties.setEnabled(true);
+        properties.setCount(partitions);
+        productPartitions = new ProductPartitions(properties, productRepository, BenchmarkServices.noTransactions(),
+                new SimpleMeterRegistry());
+        productPartitions.start();
+    }
+
+    @TearDown
+    public void tearDown() {
+        productPartitions.stop();
+    }
+
+    // Fan-out to the partitions owning the products, then fan-in of their answers
+    @Benchmark
+    public Set<Long> partitioned() {
+        return productPartitions.takeOneEach(order());
+    }
+
+    // One conditional decrement per product on the calling thread, as with the partitions disabled
+    @Benchmark
+    public int direct() {
+        int taken = 0;
+        for (Long productId : order()) {
+            taken += productRepository.decrementAvailable(productId);
+        }
+        return taken;
+    }
+
+    // Distinct products, as in an order
+    private List<Long> order() {
+        int first = ThreadLocalRandom.current().nextInt(PRODUCT_COUNT);
+        List<Long> productIds = new ArrayList<>(orderSize);
+        for (int i = 0; i < orderSize; i++) {
+            productIds.add((long) ((first + i * 7) % PRODUCT_COUNT));
+        }
+        return productIds;
+    }
+}
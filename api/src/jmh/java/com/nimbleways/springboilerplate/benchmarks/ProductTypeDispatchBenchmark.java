@@ -0,0 +1,92 @@
+package com.nimbleways.springboilerplate.benchmarks;
+
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.ProductOutcome;
+import com.nimbleways.springboilerplate.enums.ProductType;
+import com.nimbleways.springboilerplate.services.ProductTypeHandler;
+import com.nimbleways.springboilerplate.services.implementations.ProductTypeHandlerRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolving the outcomes of an order with the ProductTypeHandlerRegistry, which groups the
+ * products by type and looks the handlers up in an EnumMap, against the if/else chain on the
+ * product type it replaced.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductTypeDispatchBenchmark {
+
+    @Param({"1", "10", "100"})
+    int orderSize;
+
+    @Param({"NORMAL", BenchmarkProducts.MIXED})
+    String mix;
+
+    private ProductTypeHandlerRegistry registry;
+    private ProductTypeHandler normalHandler;
+    private ProductTypeHandler seasonalHandler;
+    private ProductTypeHandler expirableHandler;
+    private List<Product> products;
+    private LocalDate today;
+
+    @Setup
+    public void setUp() {
+        registry = BenchmarkServices.productTypeHandlerRegistry();
+        normalHandler = registry.handlerFor(ProductType.NORMAL);
+        seasonalHandler = registry.handlerFor(ProductType.SEASONAL);
+        expirableHandler = registry.handlerFor(ProductType.EXPIRABLE);
+        products = BenchmarkProducts.create(orderSize, mix, 100);
+        today = LocalDate.now();
+    }
+
+    @Benchmark
+    public Map<Product, ProductOutcome> ifElseChain() {
+        Map<Product, ProductOutcome> outcomes = new LinkedHashMap<>();
+        for (Product p : products) {
+            ProductOutcome outcome = ProductOutcome.UNCHANGED;
+            if (ProductType.NORMAL == p.getType()) {
+                outcome = normalHandler.resolve(p, p.getAvailable(), today);
+            } else if (ProductType.SEASONAL == p.getType()) {
+                outcome = seasonalHandler.resolve(p, p.getAvailable(), today);
+            } else if (ProductType.EXPIRABLE == p.getType()) {
+                outcome = expirableHandler.resolve(p, p.getAvailable(), today);
+            }
+            outcomes.put(p, outcome);
+        }
+        return outcomes;
+    }
+
+    @Benchmark
+    public Map<Product, ProductOutcome> registryPerProduct() {
+        Map<Product, ProductOutcome> outcomes = new LinkedHashMap<>();
+        for (Product p : products) {
+            outcomes.put(p, registry.resolve(p, p.getAvailable(), today));
+        }
+        return outcomes;
+    }
+
+    @Benchmark
+    public Map<Product, ProductOutcome> registryBulk() {
+        return registry.resolveAll(products, today);
+    }
+}
@@ -0,0 +1,16 @@
+package com.nimbleways.springboilerplate.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+@Configuration
+public class ClockConfig {
+
+    // The date products are sold at is read from this clock, so tests can move it
+    @Bean
+    public Clock clock() {
+        return Clock.systemDefaultZone();
+    }
+}
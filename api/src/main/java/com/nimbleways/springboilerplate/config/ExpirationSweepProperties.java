@@ -0,0 +1,21 @@
+package com.nimbleways.springboilerplate.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings of the sweep of the expired products, bound from products.expiration-sweep.*
+ * The schedule is read directly by the scheduler from products.expiration-sweep.cron.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "products.expiration-sweep")
+public class ExpirationSweepProperties {
+
+    // Products zeroed per transaction, which bounds how long their rows stay locked
+    private int pageSize = 500;
+
+}
@@ -0,0 +1,17 @@
+package com.nimbleways.springboilerplate.config;
+
+import com.nimbleways.springboilerplate.services.implementations.ProductMetrics;
+import io.micrometer.core.instrument.config.MeterFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    // Bounds the number of time series created by the per-product delay counter
+    @Bean
+    public MeterFilter productTagLimit(ProductMetricsProperties properties) {
+        return MeterFilter.maximumAllowableTags(ProductMetrics.PRODUCT_DELAYS, ProductMetrics.PRODUCT_TAG,
+                properties.getMaxTrackedProducts(), MeterFilter.deny());
+    }
+}
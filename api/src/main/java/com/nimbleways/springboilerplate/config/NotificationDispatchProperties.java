@@ -0,0 +1,29 @@
+package com.nimbleways.springboilerplate.config;
+
+import com.nimbleways.springboilerplate.enums.NotificationOverflowPolicy;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings of the asynchronous notification dispatch queue, bound from notifications.dispatch.*
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "notifications.dispatch")
+public class NotificationDispatchProperties {
+
+    // Maximum number of notifications waiting to be sent
+    private int queueCapacity = 10_000;
+
+    // Number of threads sending notifications
+    private int workers = 2;
+
+    // Maximum number of notifications a worker takes from the queue at once
+    private int batchSize = 100;
+
+    private NotificationOverflowPolicy overflowPolicy = NotificationOverflowPolicy.BLOCK;
+
+}
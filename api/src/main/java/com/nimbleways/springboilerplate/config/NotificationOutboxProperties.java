@@ -0,0 +1,38 @@
+package com.nimbleways.springboilerplate.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Settings of the notification outbox relay, bound from notifications.outbox.*
+ * The relay interval is read directly by the scheduler from notifications.outbox.relay-interval-ms.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "notifications.outbox")
+public class NotificationOutboxProperties {
+
+    // Maximum number of outbox entries claimed per transaction
+    private int batchSize = 100;
+
+    // How long the entries of a batch being sent are hidden from the next runs, they are sent again once it expired
+    private Duration claimTimeout = Duration.ofMinutes(5);
+
+    // How long dispatched entries are kept before being purged
+    private Duration retention = Duration.ofDays(7);
+
+    // Number of failed sends after which an entry is dead-lettered and no longer retried
+    private int maxAttempts = 10;
+
+    // Delay before retrying an entry that failed once, doubled after every further failure
+    private Duration retryBackoff = Duration.ofSeconds(5);
+
+    // Longest delay between two attempts of an entry
+    private Duration maxRetryBackoff = Duration.ofHours(1);
+
+}
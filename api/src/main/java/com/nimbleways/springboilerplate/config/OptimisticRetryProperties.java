@@ -0,0 +1,29 @@
+package com.nimbleways.springboilerplate.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Settings of the retries of the product writes that lost an optimistic locking conflict,
+ * bound from products.optimistic-retry.*
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "products.optimistic-retry")
+public class OptimisticRetryProperties {
+
+    // Attempts of a write before the conflict is reported, the first one included
+    private int maxAttempts = 5;
+
+    // Wait before the first retry, doubled after every conflict
+    private Duration initialBackoff = Duration.ofMillis(5);
+
+    // Upper bound of the wait between two attempts
+    private Duration maxBackoff = Duration.ofMillis(100);
+
+}
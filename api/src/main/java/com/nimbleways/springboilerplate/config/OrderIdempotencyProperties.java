@@ -0,0 +1,26 @@
+package com.nimbleways.springboilerplate.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Settings of the processOrder deduplication, bound from orders.idempotency.*
+ * The purge interval is read directly by the scheduler from orders.idempotency.purge-interval-ms.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "orders.idempotency")
+public class OrderIdempotencyProperties {
+
+    // Maximum number of processed requests kept in memory
+    private long maximumSize = 100_000;
+
+    // How long a processed request is deduplicated, in memory and in the database
+    private Duration timeToLive = Duration.ofHours(24);
+
+}
@@ -0,0 +1,29 @@
+package com.nimbleways.springboilerplate.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings of the product partitions taking the stock of the orders, bound from orders.partitions.*
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "orders.partitions")
+public class OrderPartitionProperties {
+
+    // Takes the units sold on the partition owning each product instead of the request thread
+    private boolean enabled = false;
+
+    // Number of partitions, each with its own thread; 0 uses one per available processor
+    private int count = 0;
+
+    // Maximum number of operations waiting on a partition, submitting to a full partition blocks
+    private int queueCapacity = 10_000;
+
+    // Maximum number of operations a partition applies in one transaction
+    private int batchSize = 100;
+
+}
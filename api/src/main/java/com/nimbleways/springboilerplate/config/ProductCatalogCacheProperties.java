@@ -0,0 +1,25 @@
+package com.nimbleways.springboilerplate.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Settings of the in-memory product catalog cache, bound from products.catalog-cache.*
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "products.catalog-cache")
+public class ProductCatalogCacheProperties {
+
+    // Maximum number of products kept in memory
+    private long maximumSize = 100_000;
+
+    // How long an entry is kept after it was loaded or written
+    private Duration timeToLive = Duration.ofMinutes(10);
+
+}
@@ -0,0 +1,23 @@
+package com.nimbleways.springboilerplate.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings of the product catalog export, bound from products.export.*
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "products.export")
+public class ProductExportProperties {
+
+    // Number of rows the JDBC driver fetches per round trip while the cursor is read
+    private int fetchSize = 1000;
+
+    // Size in bytes of the buffer between the rows written and the response
+    private int bufferSize = 65536;
+
+}
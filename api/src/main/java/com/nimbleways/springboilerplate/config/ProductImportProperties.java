@@ -0,0 +1,23 @@
+package com.nimbleways.springboilerplate.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings of the bulk product import, bound from products.import.*
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "products.import")
+public class ProductImportProperties {
+
+    // Number of products inserted per transaction
+    private int chunkSize = 500;
+
+    // Maximum number of rejected rows detailed in the import report
+    private int maxReportedErrors = 1000;
+
+}
@@ -0,0 +1,21 @@
+package com.nimbleways.springboilerplate.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings of the order and product metrics, bound from products.metrics.*
+ * The stock-out gauges refresh interval is read directly by the scheduler from products.metrics.stock-out-refresh-ms.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "products.metrics")
+public class ProductMetricsProperties {
+
+    // Number of distinct products tracked by the per-product delay counter, later products are not counted
+    private int maxTrackedProducts = 1_000;
+
+}
@@ -0,0 +1,20 @@
+package com.nimbleways.springboilerplate.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings of the in-memory product name index, bound from products.name-index.*
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "products.name-index")
+public class ProductNameIndexProperties {
+
+    // Serves name lookups from memory instead of the idx_products_name database indexes
+    private boolean enabled = false;
+
+}
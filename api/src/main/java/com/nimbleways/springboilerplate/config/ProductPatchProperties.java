@@ -0,0 +1,23 @@
+package com.nimbleways.springboilerplate.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings of the partial product updates, bound from products.patch.*
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "products.patch")
+public class ProductPatchProperties {
+
+    // Number of stock levels written per JDBC batch and transaction
+    private int batchSize = 500;
+
+    // Maximum number of stock levels accepted in one request
+    private int maxStockLevels = 10000;
+
+}
@@ -0,0 +1,14 @@
+package com.nimbleways.springboilerplate.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Runs the scheduled jobs on the task scheduler auto-configured by Spring Boot. Its pool is sized by
+ * spring.task.scheduling.pool.size to one thread per job, the default single thread would make every
+ * job wait for the one running.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -0,0 +1,39 @@
+package com.nimbleways.springboilerplate.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+
+/**
+ * Settings of the in-memory stock ledger, bound from products.stock-ledger.*
+ * The flush interval is read directly by the scheduler from products.stock-ledger.flush-interval-ms.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "products.stock-ledger")
+public class StockLedgerProperties {
+
+    // Takes stock in memory and writes it back to the products table in batches
+    private boolean enabled = false;
+
+    // Number of locks the products are spread over
+    private int stripes = 64;
+
+    // Append-only file the stock changes are recorded in until they are written back
+    private Path journal = Path.of("data/stock-ledger.journal");
+
+    // Forces every batch of journal records to the disk, not only to the operating system
+    private boolean syncJournal = false;
+
+    // Size past which the journal is rewritten without the records written back, it is emptied whenever they all are
+    private DataSize journalCompactionSize = DataSize.ofMegabytes(16);
+
+    // Number of units taken or given back that triggers a write-back before the next scheduled one
+    private int flushThreshold = 1000;
+
+}
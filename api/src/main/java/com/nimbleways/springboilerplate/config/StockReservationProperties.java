@@ -0,0 +1,26 @@
+package com.nimbleways.springboilerplate.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Settings of the stock reservations, bound from orders.reservations.*
+ * The sweep interval is read directly by the scheduler from orders.reservations.sweep-interval-ms.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "orders.reservations")
+public class StockReservationProperties {
+
+    // How long a reservation holds the stock before it is swept
+    private Duration ttl = Duration.ofMinutes(15);
+
+    // Maximum number of expired reservations released per transaction
+    private int sweepBatchSize = 100;
+
+}
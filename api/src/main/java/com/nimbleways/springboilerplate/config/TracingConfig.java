@@ -0,0 +1,57 @@
+package com.nimbleways.springboilerplate.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nimbleways.springboilerplate.enums.SpanExportTarget;
+import com.nimbleways.springboilerplate.tracing.JsonSpanExporter;
+import com.nimbleways.springboilerplate.tracing.RepositoryTracingPostProcessor;
+import com.nimbleways.springboilerplate.tracing.Spans;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.resources.Resource;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.SdkTracerProviderBuilder;
+import io.opentelemetry.sdk.trace.export.BatchSpanProcessor;
+import io.opentelemetry.sdk.trace.samplers.Sampler;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Sets up the OpenTelemetry SDK. Spans are exported in batches by a background thread,
+ * to the application log or to a local file depending on tracing.exporter, which is none by default.
+ */
+@Configuration
+public class TracingConfig {
+
+    private static final AttributeKey<String> SERVICE_NAME = AttributeKey.stringKey("service.name");
+
+    @Bean
+    public SdkTracerProvider sdkTracerProvider(TracingProperties properties, ObjectMapper objectMapper) {
+        SdkTracerProviderBuilder builder = SdkTracerProvider.builder()
+                .setResource(Resource.getDefault().merge(Resource.create(Attributes.of(SERVICE_NAME, properties.getServiceName()))));
+        switch (properties.getExporter()) {
+            case LOG -> builder.addSpanProcessor(BatchSpanProcessor.builder(JsonSpanExporter.toLog(objectMapper)).build());
+            case FILE -> builder.addSpanProcessor(BatchSpanProcessor.builder(JsonSpanExporter.toFile(objectMapper, properties.getFile())).build());
+            case NONE -> {
+                // Nothing to export to, spans are not even recorded
+            }
+        }
+        Sampler sampler = properties.getExporter() == SpanExportTarget.NONE
+                ? Sampler.alwaysOff()
+                : Sampler.parentBased(Sampler.traceIdRatioBased(properties.getSamplingRatio()));
+        return builder.setSampler(sampler).build();
+    }
+
+    // The tracer provider bean is closed on its own
+    @Bean(destroyMethod = "")
+    public OpenTelemetry openTelemetry(SdkTracerProvider sdkTracerProvider) {
+        return OpenTelemetrySdk.builder().setTracerProvider(sdkTracerProvider).build();
+    }
+
+    @Bean
+    public static RepositoryTracingPostProcessor repositoryTracingPostProcessor(ObjectProvider<Spans> spans) {
+        return new RepositoryTracingPostProcessor(spans);
+    }
+}
@@ -0,0 +1,32 @@
+package com.nimbleways.springboilerplate.config;
+
+import com.nimbleways.springboilerplate.enums.SpanExportTarget;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+/**
+ * Settings of the tracing spans, bound from tracing.*
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "tracing")
+public class TracingProperties {
+
+    // Where finished spans are written, nowhere unless the environment opts in
+    private SpanExportTarget exporter = SpanExportTarget.NONE;
+
+    // File the spans are appended to when the exporter is FILE
+    private Path file = Path.of("logs", "spans.jsonl");
+
+    // Share of the traces that are recorded, between 0 and 1
+    private double samplingRatio = 0.01;
+
+    // Service name attached to every span
+    private String serviceName = "spring-boilerplate";
+
+}
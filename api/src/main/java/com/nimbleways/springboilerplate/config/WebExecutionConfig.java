@@ -0,0 +1,87 @@
+package com.nimbleways.springboilerplate.config;
+
+import com.nimbleways.springboilerplate.enums.WebExecutionMode;
+import org.apache.coyote.ProtocolHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Chooses the threads Tomcat runs the requests on. In VIRTUAL mode every request gets its own
+ * virtual thread, so a request blocked on the database or on a notification no longer holds one
+ * of the few pooled threads. Virtual threads only exist from Java 21 on; they are looked up by
+ * reflection so the application still builds for Java 17, and the Tomcat pool is kept when the
+ * running JVM does not provide them.
+ */
+@Configuration
+public class WebExecutionConfig {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WebExecutionConfig.class);
+
+    @Bean
+    public WebRequestExecutorCustomizer webRequestExecutorCustomizer(WebExecutionProperties properties) {
+        if (properties.getMode() == WebExecutionMode.VIRTUAL) {
+            ExecutorService executor = newVirtualThreadPerTaskExecutor();
+            if (executor != null) {
+                LOGGER.info("Web requests run on virtual threads");
+                return new WebRequestExecutorCustomizer(executor);
+            }
+            LOGGER.warn("Virtual threads require Java 21 or later, running on {}; web requests run on the Tomcat thread pool",
+                    Runtime.version());
+        }
+        return new WebRequestExecutorCustomizer(null);
+    }
+
+    /**
+     * @return whether the running JVM can run the web requests on virtual threads
+     */
+    public static boolean isVirtualThreadSupported() {
+        return Runtime.version().feature() >= 21;
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        if (!isVirtualThreadSupported()) {
+            return null;
+        }
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+            LOGGER.warn("Cannot create the virtual thread executor", e);
+            return null;
+        }
+    }
+
+    /**
+     * Hands the executor to the Tomcat connector, or leaves the connector's own pool when there
+     * is none. Tomcat does not stop an executor it did not create, so it is stopped here.
+     */
+    public static final class WebRequestExecutorCustomizer implements TomcatProtocolHandlerCustomizer<ProtocolHandler>, DisposableBean {
+
+        private final ExecutorService executor;
+
+        WebRequestExecutorCustomizer(ExecutorService executor) {
+            this.executor = executor;
+        }
+
+        @Override
+        public void customize(ProtocolHandler protocolHandler) {
+            if (executor != null) {
+                protocolHandler.setExecutor(executor);
+            }
+        }
+
+        @Override
+        public void destroy() {
+            if (executor != null) {
+                executor.shutdown();
+            }
+        }
+    }
+}
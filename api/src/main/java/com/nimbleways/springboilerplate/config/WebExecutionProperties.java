@@ -0,0 +1,21 @@
+package com.nimbleways.springboilerplate.config;
+
+import com.nimbleways.springboilerplate.enums.WebExecutionMode;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * Settings of the threads handling the web requests, bound from web.execution.*
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "web.execution")
+public class WebExecutionProperties {
+
+    // Threads the controllers run on, the business rules are the same in both modes
+    private WebExecutionMode mode = WebExecutionMode.PLATFORM;
+
+}
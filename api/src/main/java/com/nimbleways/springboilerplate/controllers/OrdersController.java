@@ -1,59 +1,241 @@
 package com.nimbleways.springboilerplate.controllers;
 
 import com.nimbleways.springboilerplate.dto.product.ProcessOrderResponse;
+import com.nimbleways.springboilerplate.dto.reservation.StockReservationDTO;
 import com.nimbleways.springboilerplate.entities.Order;
-import com.nimbleways.springboilerplate.entities.Product;
-import com.nimbleways.springboilerplate.enums.ProductType;
+import com.nimbleways.springboilerplate.exceptions.InsufficientStockException;
 import com.nimbleways.springboilerplate.exceptions.OrderNotFoundException;
+import com.nimbleways.springboilerplate.exceptions.StockConflictException;
+import com.nimbleways.springboilerplate.services.implementations.OptimisticRetry;
+import com.nimbleways.springboilerplate.services.implementations.ProcessedOrderStore;
+import com.nimbleways.springboilerplate.services.implementations.ProductMetrics;
 import com.nimbleways.springboilerplate.services.implementations.ProductService;
-
-import java.util.*;
+import com.nimbleways.springboilerplate.services.implementations.StockReservationService;
+import com.nimbleways.springboilerplate.tracing.SpanAttributes;
+import com.nimbleways.springboilerplate.tracing.Spans;
+import io.opentelemetry.api.common.Attributes;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
 @RestController
 @RequestMapping("/orders")
 public class OrdersController {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(OrdersController.class);
 
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
     private ProductService productService;
 
+    private ProductMetrics productMetrics;
+
+    private Spans spans;
+
+    private StockReservationService stockReservationService;
 
-    public OrdersController(ProductService productService) {
+    private ProcessedOrderStore processedOrderStore;
+
+    private OptimisticRetry optimisticRetry;
+
+
+    public OrdersController(ProductService productService, ProductMetrics productMetrics, Spans spans,
+                            StockReservationService stockReservationService, ProcessedOrderStore processedOrderStore,
+                            OptimisticRetry optimisticRetry) {
         this.productService = productService;
+        this.productMetrics = productMetrics;
+        this.spans = spans;
+        this.stockReservationService = stockReservationService;
+        this.processedOrderStore = processedOrderStore;
+        this.optimisticRetry = optimisticRetry;
     }
 
 
+    /**
+     * Processes an order once per idempotency key. The key is the Idempotency-Key header, or the
+     * order ID when the header is missing. A retry with a key already handled returns the first
+     * response without processing the order again. An order whose products changed while it was
+     * processed is read and processed again.
+     *
+     * @return the processed order and HTTP status 200 (OK), 404 (Not Found) if the order does not exist,
+     *         409 (Conflict) if its products kept changing while it was processed,
+     *         or 422 (Unprocessable Entity) if the key was already used for another order
+     */
     @PostMapping("{orderId}/processOrder")
-    public ResponseEntity<ProcessOrderResponse> processOrder(@PathVariable Long orderId) {
+    public ResponseEntity<ProcessOrderResponse> processOrder(@PathVariable Long orderId,
+                                                             @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey) {
+        String key = idempotencyKey == null || idempotencyKey.isBlank() ? orderKey(orderId) : idempotencyKey;
+        return spans.trace("POST /orders/{orderId}/processOrder", Attributes.of(SpanAttributes.ORDER_ID, orderId),
+                () -> processOrderTraced(orderId, key));
+    }
+
+    private ResponseEntity<ProcessOrderResponse> processOrderTraced(Long orderId, String idempotencyKey) {
         LOGGER.info("Starting to process order with ID: {}", orderId);
+        long start = System.nanoTime();
+        Optional<ProcessOrderResponse> processed = processedOrderStore.findCached(idempotencyKey);
+        if (processed.isPresent()) {
+            return replay(orderId, idempotencyKey, processed.get(), start);
+        }
         Order order;
         try {
-            order = productService.findOrderById(orderId);
+            // Every attempt reads the order again, a conflict left the products read before stale
+            order = optimisticRetry.run("process-order", () -> {
+                Order current = productService.findOrderById(orderId);
+                processedOrderStore.runOnce(idempotencyKey, orderId, () -> productService.processOrder(current));
+                return current;
+            });
         } catch (OrderNotFoundException e) {
+            productMetrics.recordProcessOrder("not_found", start);
             return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
-        }
-        Set<Product> products = order.getItems();
-        for (Product p : products) {
-            if (ProductType.NORMAL == p.getType()){
-                productService.handleNormalProduct(p);
-            } else if (ProductType.SEASONAL == p.getType()) {
-                productService.handleSeasonalProduct(p);
-            } else if (p.getType() == ProductType.EXPIRABLE) {
-                productService.handleExpirableProduct(p);
+        } catch (OptimisticLockingFailureException e) {
+            LOGGER.warn("Products of order {} kept changing while it was processed: {}", orderId, e.getMessage());
+            productMetrics.recordProcessOrder("conflict", start);
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (DataIntegrityViolationException e) {
+            // Handled by a concurrent request or before a restart
+            Optional<ProcessOrderResponse> stored = processedOrderStore.find(idempotencyKey);
+            if (stored.isPresent()) {
+                return replay(orderId, idempotencyKey, stored.get(), start);
             }
+            productMetrics.recordProcessOrder("failed", start);
+            throw e;
+        } catch (RuntimeException e) {
+            productMetrics.recordProcessOrder("failed", start);
+            throw e;
         }
+        productMetrics.recordProcessOrder("processed", start);
 
         return new ResponseEntity<>(new ProcessOrderResponse(order.getId()), HttpStatus.OK);
     }
 
+    private ResponseEntity<ProcessOrderResponse> replay(Long orderId, String idempotencyKey, ProcessOrderResponse response, long start) {
+        if (!response.id().equals(orderId)) {
+            LOGGER.warn("Idempotency key {} was used for order {}, not for order {}", idempotencyKey, response.id(), orderId);
+            productMetrics.recordProcessOrder("key_reused", start);
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).build();
+        }
+        LOGGER.info("Order {} already processed with key {}, returning the first response", orderId, idempotencyKey);
+        productMetrics.recordProcessOrder("replayed", start);
+        return new ResponseEntity<>(response, HttpStatus.OK);
+    }
+
+    /**
+     * Processes several orders in one go, in the given order. Unknown order IDs are skipped.
+     * Each order is processed once, under the key processOrder uses when no Idempotency-Key is
+     * given: the orders already processed are answered without being processed again.
+     * If the stock changes while the batch is processed, the batch is processed again, then the
+     * orders one by one if it keeps changing.
+     */
+    @PostMapping("processBatch")
+    public ResponseEntity<List<ProcessOrderResponse>> processOrders(@RequestBody List<Long> orderIds) {
+        return spans.trace("POST /orders/processBatch", Attributes.of(SpanAttributes.ORDER_COUNT, (long) orderIds.size()),
+                () -> processOrdersTraced(orderIds));
+    }
+
+    private ResponseEntity<List<ProcessOrderResponse>> processOrdersTraced(List<Long> orderIds) {
+        LOGGER.info("Starting to process a batch of {} orders", orderIds.size());
+        long start = System.nanoTime();
+        Set<Long> uniqueOrderIds = new LinkedHashSet<>(orderIds);
+        Map<String, ProcessOrderResponse> processed = processedOrderStore.findAll(uniqueOrderIds.stream().map(OrdersController::orderKey).toList());
+        Map<String, Long> orderIdsByKey = new LinkedHashMap<>();
+        uniqueOrderIds.stream()
+                .filter(orderId -> !processed.containsKey(orderKey(orderId)))
+                .forEach(orderId -> orderIdsByKey.put(orderKey(orderId), orderId));
+
+        Set<Long> handledIds = new HashSet<>();
+        processed.values().forEach(response -> handledIds.add(response.id()));
+        if (!orderIdsByKey.isEmpty()) {
+            try {
+                List<Order> orders = optimisticRetry.run("process-orders", () ->
+                        processedOrderStore.runOnceEach(orderIdsByKey, () -> productService.processOrders(List.copyOf(orderIdsByKey.values()))));
+                orders.forEach(order -> handledIds.add(order.getId()));
+                productMetrics.recordProcessOrders("batched", orders.size(), start);
+            } catch (StockConflictException | OptimisticLockingFailureException | DataIntegrityViolationException e) {
+                // A key recorded meanwhile by a concurrent request fails the whole batch, the orders are then told apart one by one
+                LOGGER.warn("{}, processing the orders one by one", e.getMessage());
+                int before = handledIds.size();
+                handledIds.addAll(processOneByOne(orderIdsByKey.values()));
+                productMetrics.recordProcessOrders("sequential", handledIds.size() - before, start);
+            }
+        }
+
+        List<ProcessOrderResponse> responses = uniqueOrderIds.stream()
+                .filter(handledIds::contains)
+                .map(ProcessOrderResponse::new)
+                .toList();
+        return new ResponseEntity<>(responses, HttpStatus.OK);
+    }
+
+    /**
+     * Holds one unit of every item of an order until the reservation is committed, released or expires.
+     *
+     * @return the reservation and HTTP status 201 (Created), 404 (Not Found) if the order does not exist,
+     *         or 409 (Conflict) if an item cannot be reserved, nothing is reserved then
+     */
+    @PostMapping("{orderId}/reserve")
+    public ResponseEntity<StockReservationDTO> reserveOrder(@PathVariable Long orderId) {
+        LOGGER.info("Reserving the items of order with ID: {}", orderId);
+        try {
+            Order order = productService.findOrderById(orderId);
+            return ResponseEntity.status(HttpStatus.CREATED).body(StockReservationDTO.of(stockReservationService.reserve(order)));
+        } catch (OrderNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (InsufficientStockException e) {
+            LOGGER.warn("Order {} cannot be reserved: {}", orderId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    // Returns the IDs of the orders processed, or processed before under their key
+    private List<Long> processOneByOne(Collection<Long> orderIds) {
+        List<Long> handledIds = new ArrayList<>(orderIds.size());
+        for (Long orderId : orderIds) {
+            String key = orderKey(orderId);
+            try {
+                optimisticRetry.run("process-order", () -> {
+                    Order order = productService.findOrderById(orderId);
+                    processedOrderStore.runOnce(key, orderId, () -> productService.processOrder(order));
+                    return order;
+                });
+                handledIds.add(orderId);
+            } catch (OrderNotFoundException e) {
+                LOGGER.warn("Order with ID {} not found, skipping it", orderId);
+            } catch (OptimisticLockingFailureException e) {
+                LOGGER.warn("Products of order {} kept changing while it was processed, skipping it", orderId);
+            } catch (DataIntegrityViolationException e) {
+                if (processedOrderStore.find(key).isEmpty()) {
+                    throw e;
+                }
+                LOGGER.info("Order {} already processed with key {}", orderId, key);
+                handledIds.add(orderId);
+            }
+        }
+        return handledIds;
+    }
+
+    // The key of an order processed without Idempotency-Key, by processOrder or in a batch
+    private static String orderKey(Long orderId) {
+        return "order-" + orderId;
+    }
 
 }
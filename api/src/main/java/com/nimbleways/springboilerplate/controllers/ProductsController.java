@@ -1,20 +1,46 @@
 package com.nimbleways.springboilerplate.controllers;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.nimbleways.springboilerplate.dto.product.BulkImportReport;
 import com.nimbleways.springboilerplate.dto.product.ProductDTO;
+import com.nimbleways.springboilerplate.dto.product.ProductDateEvent;
+import com.nimbleways.springboilerplate.dto.product.ProductFilter;
+import com.nimbleways.springboilerplate.dto.product.ProductName;
+import com.nimbleways.springboilerplate.dto.product.ProductPage;
+import com.nimbleways.springboilerplate.dto.product.ProductPatch;
+import com.nimbleways.springboilerplate.dto.product.StockLevel;
+import com.nimbleways.springboilerplate.dto.product.StockUpdateReport;
 import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.ProductExportFormat;
+import com.nimbleways.springboilerplate.enums.ProductType;
 import com.nimbleways.springboilerplate.exceptions.ProductNotFoundException;
 import com.nimbleways.springboilerplate.mappers.ProductMapper;
+import com.nimbleways.springboilerplate.services.implementations.ProductAvailabilityIndex;
+import com.nimbleways.springboilerplate.services.implementations.ProductExportService;
+import com.nimbleways.springboilerplate.services.implementations.ProductImportService;
+import com.nimbleways.springboilerplate.services.implementations.ProductPatchService;
 import com.nimbleways.springboilerplate.services.implementations.ProductService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
 
 /**
  * REST controller for managing products.
- * Provides endpoints for creating and updating product entities.
+ * Provides endpoints for creating, reading and updating product entities.
  */
 @RestController
 @RequestMapping("/products")
@@ -22,18 +48,36 @@ public class ProductsController {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ProductsController.class);
 
+    private static final int MAX_PAGE_SIZE = 500;
+
+    private static final int MAX_NAME_SUGGESTIONS = 100;
+
     private ProductService productService;
     private ProductMapper productMapper;
+    private ProductImportService productImportService;
+    private ProductAvailabilityIndex productAvailabilityIndex;
+    private ProductExportService productExportService;
+    private ProductPatchService productPatchService;
 
     /**
      * Constructor to initialize the ProductsController with the specified ProductService.
      *
-     * @param productService the service layer to handle product operations
-     * @param productMapper  the mapper to convert between Product entities and ProductDTOs
+     * @param productService           the service layer to handle product operations
+     * @param productMapper            the mapper to convert between Product entities and ProductDTOs
+     * @param productImportService     the service importing products in bulk
+     * @param productAvailabilityIndex the index of the expiry and season dates of the products
+     * @param productExportService     the service exporting the product catalog
+     * @param productPatchService      the service changing some attributes of products
      */
-    public ProductsController(ProductService productService, ProductMapper productMapper) {
+    public ProductsController(ProductService productService, ProductMapper productMapper, ProductImportService productImportService,
+                              ProductAvailabilityIndex productAvailabilityIndex, ProductExportService productExportService,
+                              ProductPatchService productPatchService) {
         this.productService = productService;
         this.productMapper = productMapper;
+        this.productImportService = productImportService;
+        this.productAvailabilityIndex = productAvailabilityIndex;
+        this.productExportService = productExportService;
+        this.productPatchService = productPatchService;
     }
 
 
@@ -54,29 +98,275 @@ public class ProductsController {
     }
 
     /**
-     * Updates an existing product by its ID.
+     * Creates products in bulk from a JSON array or an NDJSON stream (one product per line).
+     * The body is streamed, so uploads of any size are imported with constant memory.
+     *
+     * @param contentType the format of the body, application/json or application/x-ndjson
+     * @param body        the uploaded products
+     * @return ResponseEntity containing the import report with the rejected rows and HTTP status 200 (OK),
+     *         or 400 (Bad Request) if the body is not a well-formed JSON array or cannot be read to the end,
+     *         with the report of the rows imported before and the reason the import stopped
+     */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public ResponseEntity<BulkImportReport> importProducts(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                           InputStream body) {
+        LOGGER.info("Received bulk import request in {} format", contentType);
+        BulkImportReport report = MediaType.APPLICATION_NDJSON.isCompatibleWith(MediaType.parseMediaType(contentType))
+                ? productImportService.importNdjson(body)
+                : productImportService.importJsonArray(body);
+        return ResponseEntity.status(report.aborted() == null ? HttpStatus.OK : HttpStatus.BAD_REQUEST).body(report);
+    }
+
+    /**
+     * Exports the whole catalog in ID order, streamed to the response as the products are read
+     * from the database, so catalogs of any size are exported with constant memory.
+     *
+     * @param format NDJSON for one JSON product per line, CSV for comma-separated values with a header line
+     * @param gzip   whether to compress the response, sent with Content-Encoding: gzip
+     * @param response the response the products are written to, with HTTP status 200 (OK)
+     */
+    @GetMapping("/export")
+    public void exportProducts(@RequestParam(defaultValue = "NDJSON") ProductExportFormat format,
+                               @RequestParam(defaultValue = "false") boolean gzip,
+                               HttpServletResponse response) throws IOException {
+        LOGGER.info("Received request to export the products in {} format", format);
+        String extension = format == ProductExportFormat.CSV ? "csv" : "ndjson";
+        response.setContentType(format == ProductExportFormat.CSV ? "text/csv" : MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"products." + extension + "\"");
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        productExportService.export(format, gzip, response.getOutputStream());
+    }
+
+    /**
+     * Lists the products matching the given criteria, sorted by expiry date when it is bounded,
+     * by season start when the season is bounded by seasonTo, and by ID otherwise. Pages are read
+     * with a cursor rather than an offset, so a deep page is as fast as the first one.
+     *
+     * @param after the cursor returned with the previous page, none for the first page
+     * @param size  the maximum number of products in the page, from 1 to 500
+     * @return ResponseEntity containing the page and HTTP status 200 (OK),
+     *         or 400 (Bad Request) if the page size is out of range or the cursor is not one of this listing
+     */
+    @GetMapping
+    public ResponseEntity<ProductPage> listProducts(@RequestParam(required = false) ProductType type,
+                                                    @RequestParam(required = false) Integer minAvailable,
+                                                    @RequestParam(required = false) Integer maxAvailable,
+                                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate expiresFrom,
+                                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate expiresTo,
+                                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate seasonFrom,
+                                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate seasonTo,
+                                                    @RequestParam(required = false) String after,
+                                                    @RequestParam(defaultValue = "50") int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+        ProductFilter filter = new ProductFilter(type, minAvailable, maxAvailable, expiresFrom, expiresTo, seasonFrom, seasonTo);
+        try {
+            return ResponseEntity.ok(productService.listProducts(filter, after, size));
+        } catch (IllegalArgumentException e) {
+            LOGGER.error("Product listing rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+    }
+
+    /**
+     * Suggests the products whose name starts with the given prefix, whatever its case.
+     *
+     * @param prefix the beginning of the names
+     * @param limit  the maximum number of products to return, from 1 to 100
+     * @return ResponseEntity containing the matching products in name order and HTTP status 200 (OK),
+     *         or 400 (Bad Request) if the prefix is blank or the limit out of range
+     */
+    @GetMapping("/names")
+    public ResponseEntity<List<ProductName>> findProductNames(@RequestParam String prefix,
+                                                              @RequestParam(defaultValue = "10") int limit) {
+        if (prefix.isBlank() || limit < 1 || limit > MAX_NAME_SUGGESTIONS) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+        return ResponseEntity.ok(productService.findProductNames(prefix, limit));
+    }
+
+    /**
+     * Retrieves a product by its name, whatever its case.
+     *
+     * @param name the name of the product
+     * @return ResponseEntity containing the ProductDTO and HTTP status 200 (OK),
+     *         or 404 (Not Found) if no product bears this name
+     */
+    @GetMapping("/by-name")
+    public ResponseEntity<ProductDTO> getProductByName(@RequestParam String name) {
+        try {
+            return ResponseEntity.ok(productMapper.toDTO(productService.getProductByName(name)));
+        } catch (ProductNotFoundException e) {
+            LOGGER.error("Product named {} not found: {}", name, e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        }
+    }
+
+    /**
+     * Retrieves a product by its ID.
+     *
+     * @param productId the ID of the product
+     * @return ResponseEntity containing the ProductDTO, its version as ETag and HTTP status 200 (OK),
+     *         or 404 (Not Found) if the product does not exist
+     */
+    @GetMapping("/{productId}")
+    public ResponseEntity<ProductDTO> getProduct(@PathVariable Long productId) {
+        try {
+            Product product = productService.getProduct(productId);
+            return ResponseEntity.ok().eTag(String.valueOf(product.getVersion())).body(productMapper.toDTO(product));
+        } catch (ProductNotFoundException e) {
+            LOGGER.error("Product with ID {} not found: {}", productId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        }
+    }
+
+    /**
+     * Lists the expirable products expiring from today to the given number of days ahead.
+     *
+     * @param days how many days ahead to look, 0 for today only
+     * @return ResponseEntity containing the expirations by date and HTTP status 200 (OK),
+     *         or 400 (Bad Request) if the number of days is negative
+     */
+    @GetMapping("/expiring")
+    public ResponseEntity<List<ProductDateEvent>> getExpiringProducts(@RequestParam(defaultValue = "7") int days) {
+        if (days < 0) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+        LocalDate today = productAvailabilityIndex.today();
+        return ResponseEntity.ok(productAvailabilityIndex.expiringBetween(today, today.plusDays(days)));
+    }
+
+    /**
+     * Lists the seasons of seasonal products starting or ending from today to the given number of days ahead.
+     *
+     * @param days how many days ahead to look, 0 for today only
+     * @return ResponseEntity containing the season starts and ends by date and HTTP status 200 (OK),
+     *         or 400 (Bad Request) if the number of days is negative
+     */
+    @GetMapping("/season-transitions")
+    public ResponseEntity<List<ProductDateEvent>> getSeasonTransitions(@RequestParam(defaultValue = "30") int days) {
+        if (days < 0) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
+        LocalDate today = productAvailabilityIndex.today();
+        return ResponseEntity.ok(productAvailabilityIndex.seasonTransitionsBetween(today, today.plusDays(days)));
+    }
+
+    /**
+     * Lists the seasonal products that cannot be sold today, their season not being started or being over.
+     *
+     * @return ResponseEntity containing the IDs of the products and HTTP status 200 (OK)
+     */
+    @GetMapping("/out-of-season")
+    public ResponseEntity<List<Long>> getOutOfSeasonProducts() {
+        return ResponseEntity.ok(productAvailabilityIndex.outOfSeason());
+    }
+
+    /**
+     * Updates an existing product by its ID, provided it did not change since the client read it.
      *
      * @param productId  the ID of the product to update
+     * @param ifMatch    the ETag of the product as the client read it
      * @param productDTO the product details in DTO format for the update
-     * @return ResponseEntity containing the updated product as a ProductDTO and HTTP status 200 (OK),
-     *         or 404 (Not Found) if the product does not exist
+     * @return ResponseEntity containing the updated product as a ProductDTO, its new ETag and HTTP status 200 (OK),
+     *         400 (Bad Request) if the If-Match header is not an ETag of this API,
+     *         404 (Not Found) if the product does not exist,
+     *         409 (Conflict) if the product changed since the client read it, which has to read it again,
+     *         or 428 (Precondition Required) without an If-Match header
      */
     @PutMapping("/{productId}")
-    public ResponseEntity<ProductDTO> updateProduct(@PathVariable Long productId, @RequestBody ProductDTO productDTO) throws ProductNotFoundException {
+    public ResponseEntity<ProductDTO> updateProduct(@PathVariable Long productId,
+                                                    @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                    @RequestBody ProductDTO productDTO) throws ProductNotFoundException {
         LOGGER.info("Received request to update product with ID: {}", productId);
+        if (ifMatch == null) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_REQUIRED).body(null);
+        }
+        Long expectedVersion = versionOf(ifMatch);
+        if (expectedVersion == null) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
 
         // Map the DTO to the entity
         Product product = productMapper.toEntity(productDTO);
 
         try {
-            Product updatedProduct = productService.updateProduct(productId, product);
+            Product updatedProduct = productService.updateProduct(productId, product, expectedVersion);
             LOGGER.info("Product with ID: {} updated successfully", productId);
-            return ResponseEntity.ok(productMapper.toDTO(updatedProduct));
+            return ResponseEntity.ok().eTag(String.valueOf(updatedProduct.getVersion())).body(productMapper.toDTO(updatedProduct));
         } catch (ProductNotFoundException e) {
             LOGGER.error("Product with ID {} not found: {}", productId, e.getMessage());
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(null);
+        } catch (OptimisticLockingFailureException e) {
+            LOGGER.warn("Product with ID {} changed since version {}: {}", productId, expectedVersion, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(null);
+        }
+
+    }
+
+    // The ETags of the products are their quoted version, null for anything else
+    private static Long versionOf(String eTag) {
+        String value = eTag.trim();
+        if (value.length() < 3 || value.charAt(0) != '"' || value.charAt(value.length() - 1) != '"') {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.substring(1, value.length() - 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Changes only the attributes given in a JSON Merge Patch, e.g. {"available": 40, "expiryDate": null},
+     * in one UPDATE of their columns. The other attributes are kept as they are.
+     *
+     * @param productId the ID of the product to change
+     * @param body      the merge patch, an object of product attributes, null clearing a date
+     * @return ResponseEntity with HTTP status 204 (No Content),
+     *         400 (Bad Request) if the patch is not an object, holds an invalid attribute or would leave
+     *         the product without the dates its type requires, 404 (Not Found) if the product does not exist,
+     *         or 409 (Conflict) if the product kept changing while its dates were checked
+     */
+    @PatchMapping(value = "/{productId}", consumes = {"application/merge-patch+json", MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<Void> patchProduct(@PathVariable Long productId, @RequestBody JsonNode body) {
+        LOGGER.info("Received request to patch product with ID: {}", productId);
+        try {
+            productPatchService.patchProduct(productId, ProductPatch.parse(body));
+            return ResponseEntity.noContent().build();
+        } catch (IllegalArgumentException e) {
+            LOGGER.error("Invalid patch of product with ID {}: {}", productId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
+        } catch (ProductNotFoundException e) {
+            LOGGER.error("Product with ID {} not found: {}", productId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (OptimisticLockingFailureException e) {
+            LOGGER.warn("Product with ID {} kept changing during its patch: {}", productId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
         }
+    }
 
+    /**
+     * Sets the stock of many products in one request, e.g. [{"id": 1, "available": 40}, ...]
+     * Only the stock columns are written, in JDBC batches.
+     *
+     * @param levels the new stock of each product
+     * @return ResponseEntity containing the update report with the unknown products and HTTP status 200 (OK),
+     *         or 400 (Bad Request) if a level is invalid or there are too many of them, nothing being written then
+     */
+    @PatchMapping(value = "/stock", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StockUpdateReport> updateStock(@RequestBody List<StockLevel> levels) {
+        LOGGER.info("Received request to update the stock of {} products", levels.size());
+        try {
+            return ResponseEntity.ok(productPatchService.updateStock(levels));
+        } catch (IllegalArgumentException e) {
+            LOGGER.error("Stock update rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(null);
+        }
     }
 
 }
@@ -0,0 +1,79 @@
+package com.nimbleways.springboilerplate.controllers;
+
+import com.nimbleways.springboilerplate.dto.reservation.StockReservationDTO;
+import com.nimbleways.springboilerplate.exceptions.ReservationNotFoundException;
+import com.nimbleways.springboilerplate.exceptions.ReservationStateException;
+import com.nimbleways.springboilerplate.services.implementations.StockReservationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * REST controller completing the stock reservations made with POST /orders/{orderId}/reserve.
+ */
+@RestController
+@RequestMapping("/reservations")
+public class ReservationsController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReservationsController.class);
+
+    private StockReservationService stockReservationService;
+
+    public ReservationsController(StockReservationService stockReservationService) {
+        this.stockReservationService = stockReservationService;
+    }
+
+    /**
+     * @return the reservation and HTTP status 200 (OK), or 404 (Not Found) if it does not exist
+     */
+    @GetMapping("/{reservationId}")
+    public ResponseEntity<StockReservationDTO> getReservation(@PathVariable Long reservationId) {
+        try {
+            return ResponseEntity.ok(StockReservationDTO.of(stockReservationService.getReservation(reservationId)));
+        } catch (ReservationNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+    }
+
+    /**
+     * Sells the reserved units.
+     *
+     * @return the committed reservation and HTTP status 200 (OK), 404 (Not Found) if it does not exist,
+     *         or 409 (Conflict) if it was already committed, released or expired
+     */
+    @PostMapping("/{reservationId}/commit")
+    public ResponseEntity<StockReservationDTO> commit(@PathVariable Long reservationId) {
+        try {
+            return ResponseEntity.ok(StockReservationDTO.of(stockReservationService.commit(reservationId)));
+        } catch (ReservationNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (ReservationStateException e) {
+            LOGGER.warn("Cannot commit: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+
+    /**
+     * Gives the reserved units back to the stock.
+     *
+     * @return the released reservation and HTTP status 200 (OK), 404 (Not Found) if it does not exist,
+     *         or 409 (Conflict) if it was already committed, released or expired
+     */
+    @PostMapping("/{reservationId}/release")
+    public ResponseEntity<StockReservationDTO> release(@PathVariable Long reservationId) {
+        try {
+            return ResponseEntity.ok(StockReservationDTO.of(stockReservationService.release(reservationId)));
+        } catch (ReservationNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        } catch (ReservationStateException e) {
+            LOGGER.warn("Cannot release: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.nimbleways.springboilerplate.dto.notification;
+
+import com.nimbleways.springboilerplate.enums.NotificationType;
+
+import java.time.LocalDate;
+
+/**
+ * A customer notification about a product, waiting to be sent through the NotificationService.
+ * Two notifications with the same content are equal, which is what duplicates are coalesced on.
+ */
+public record Notification(NotificationType type, String productName, Integer leadTime, LocalDate expiryDate) {
+
+    public static Notification delay(int leadTime, String productName) {
+        return new Notification(NotificationType.DELAY, productName, leadTime, null);
+    }
+
+    public static Notification outOfStock(String productName) {
+        return new Notification(NotificationType.OUT_OF_STOCK, productName, null, null);
+    }
+
+    public static Notification expiration(String productName, LocalDate expiryDate) {
+        return new Notification(NotificationType.EXPIRATION, productName, null, expiryDate);
+    }
+}
@@ -0,0 +1,10 @@
+package com.nimbleways.springboilerplate.dto.product;
+
+/**
+ * A row of a bulk import that was rejected.
+ *
+ * @param row     the 1-based position of the row in the uploaded body
+ * @param message why the row was rejected
+ */
+public record BulkImportError(long row, String message) {
+}
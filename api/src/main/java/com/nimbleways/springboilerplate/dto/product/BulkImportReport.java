@@ -0,0 +1,13 @@
+package com.nimbleways.springboilerplate.dto.product;
+
+import java.util.List;
+
+/**
+ * Outcome of a bulk product import. Only the first rejected rows are detailed in errors,
+ * rejected always holds the total count.
+ *
+ * @param aborted why the import stopped before the end of the body, null if the whole body was read.
+ *                The rows received before it are imported or rejected as usual.
+ */
+public record BulkImportReport(long received, long imported, long rejected, List<BulkImportError> errors, String aborted) {
+}
@@ -0,0 +1,25 @@
+package com.nimbleways.springboilerplate.dto.product;
+
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.ProductType;
+
+import java.time.LocalDate;
+
+/**
+ * The slowly changing attributes of a product, everything but its stock.
+ */
+public record ProductAttributes(Long id, Integer leadTime, ProductType type, String name, LocalDate expiryDate,
+                                LocalDate seasonStartDate, LocalDate seasonEndDate) {
+
+    public static ProductAttributes of(Product product) {
+        return new ProductAttributes(product.getId(), product.getLeadTime(), product.getType(), product.getName(),
+                product.getExpiryDate(), product.getSeasonStartDate(), product.getSeasonEndDate());
+    }
+
+    /**
+     * Builds a detached product from these attributes and a stock count read separately.
+     */
+    public Product toProduct(Integer available) {
+        return new Product(id, leadTime, available, type, name, expiryDate, seasonStartDate, seasonEndDate);
+    }
+}
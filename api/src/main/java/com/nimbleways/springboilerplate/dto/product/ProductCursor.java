@@ -0,0 +1,51 @@
+package com.nimbleways.springboilerplate.dto.product;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Position of a listing after the last product of a page: its ID, preceded by its date when the
+ * listing is sorted by a date. Written "42" in ID order and "2024-12-31_42" in date order.
+ *
+ * @param date the date the listing is sorted by, null in ID order
+ * @param id   the ID of the last product of the page
+ */
+public record ProductCursor(LocalDate date, Long id) {
+
+    private static final String SEPARATOR = "_";
+
+    /**
+     * @param sortDate the attribute the listing is sorted by before the ID, null in ID order
+     * @return the cursor after the given product
+     */
+    public static ProductCursor after(ProductDTO product, String sortDate) {
+        if (sortDate == null) {
+            return new ProductCursor(null, product.getId());
+        }
+        return switch (sortDate) {
+            case ProductPatch.EXPIRY_DATE -> new ProductCursor(product.getExpiryDate(), product.getId());
+            case ProductPatch.SEASON_START_DATE -> new ProductCursor(product.getSeasonStartDate(), product.getId());
+            default -> throw new IllegalArgumentException(sortDate + " is not a sort date");
+        };
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value is not a cursor returned with a page
+     */
+    public static ProductCursor parse(String value) {
+        int separator = value.indexOf(SEPARATOR);
+        try {
+            if (separator < 0) {
+                return new ProductCursor(null, Long.valueOf(value));
+            }
+            return new ProductCursor(LocalDate.parse(value.substring(0, separator)), Long.valueOf(value.substring(separator + 1)));
+        } catch (NumberFormatException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + value);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return date == null ? String.valueOf(id) : date + SEPARATOR + id;
+    }
+}
@@ -0,0 +1,15 @@
+package com.nimbleways.springboilerplate.dto.product;
+
+import com.nimbleways.springboilerplate.enums.ProductDateEventType;
+
+import java.time.LocalDate;
+
+/**
+ * A day on which a product stops or starts being sold.
+ *
+ * @param productId the ID of the product
+ * @param type      what happens to the product on that day
+ * @param date      the day it happens
+ */
+public record ProductDateEvent(Long productId, ProductDateEventType type, LocalDate date) {
+}
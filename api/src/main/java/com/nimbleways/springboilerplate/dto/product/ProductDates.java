@@ -0,0 +1,18 @@
+package com.nimbleways.springboilerplate.dto.product;
+
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.ProductType;
+
+import java.time.LocalDate;
+
+/**
+ * The dates that decide whether a product can be sold on a given day.
+ */
+public record ProductDates(Long id, ProductType type, LocalDate expiryDate, LocalDate seasonStartDate,
+                           LocalDate seasonEndDate) {
+
+    public static ProductDates of(Product product) {
+        return new ProductDates(product.getId(), product.getType(), product.getExpiryDate(), product.getSeasonStartDate(),
+                product.getSeasonEndDate());
+    }
+}
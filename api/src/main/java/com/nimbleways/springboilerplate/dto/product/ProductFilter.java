@@ -0,0 +1,39 @@
+package com.nimbleways.springboilerplate.dto.product;
+
+import com.nimbleways.springboilerplate.enums.ProductType;
+
+import java.time.LocalDate;
+
+/**
+ * Criteria of a product listing, a null criterion does not filter anything. Bounds are included.
+ * A listing bounded by a date is sorted by that date then by ID, so its pages are read along the
+ * index of the date; the others are sorted by ID.
+ *
+ * @param type         products of this type only
+ * @param minAvailable products with at least this stock
+ * @param maxAvailable products with at most this stock
+ * @param expiresFrom  products expiring on or after this day
+ * @param expiresTo    products expiring on or before this day
+ * @param seasonFrom   products whose season ends on or after this day
+ * @param seasonTo     products whose season starts on or before this day
+ */
+public record ProductFilter(ProductType type, Integer minAvailable, Integer maxAvailable, LocalDate expiresFrom,
+                            LocalDate expiresTo, LocalDate seasonFrom, LocalDate seasonTo) {
+
+    /**
+     * The stock bounds keep the ID order: the stock changes with every order, which would move
+     * the products across the pages of a listing sorted by it.
+     *
+     * @return the date attribute the listing is sorted by before the ID, null in ID order
+     */
+    public String sortDate() {
+        if (expiresFrom != null || expiresTo != null) {
+            return ProductPatch.EXPIRY_DATE;
+        }
+        // Only an upper bound excludes the products without a season start
+        if (seasonTo != null) {
+            return ProductPatch.SEASON_START_DATE;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,7 @@
+package com.nimbleways.springboilerplate.dto.product;
+
+/**
+ * The name of a product, as suggested when typing it.
+ */
+public record ProductName(Long id, String name) {
+}
@@ -0,0 +1,12 @@
+package com.nimbleways.springboilerplate.dto.product;
+
+import java.util.List;
+
+/**
+ * A page of a product listing, in the order of its filter.
+ *
+ * @param items the products of the page
+ * @param after the cursor to pass to get the next page, null on the last page
+ */
+public record ProductPage(List<ProductDTO> items, String after) {
+}
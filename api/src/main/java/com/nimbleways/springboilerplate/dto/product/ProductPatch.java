@@ -0,0 +1,196 @@
+package com.nimbleways.springboilerplate.dto.product;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.ProductType;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Changes to a product given as a JSON Merge Patch (RFC 7396): the attributes present are set,
+ * a null clears a date, the attributes left out are kept as they are.
+ *
+ * @param changes the new values, keyed by the name of the Product attribute
+ */
+public record ProductPatch(Map<String, Object> changes) {
+
+    public static final String LEAD_TIME = "leadTime";
+    public static final String AVAILABLE = "available";
+    public static final String TYPE = "type";
+    public static final String NAME = "name";
+    public static final String EXPIRY_DATE = "expiryDate";
+    public static final String SEASON_START_DATE = "seasonStartDate";
+    public static final String SEASON_END_DATE = "seasonEndDate";
+
+    /**
+     * Reads and validates a merge patch, e.g. {"available": 40, "expiryDate": null}
+     *
+     * @throws IllegalArgumentException if the body is not an object, names an attribute that cannot
+     *                                  be patched or gives an attribute a value it cannot take
+     */
+    public static ProductPatch parse(JsonNode body) {
+        if (body == null || !body.isObject()) {
+            throw new IllegalArgumentException("Expected a JSON object of product attributes");
+        }
+        Map<String, Object> changes = new LinkedHashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> fields = body.fields();
+        while (fields.hasNext()) {
+            Map.Entry<String, JsonNode> field = fields.next();
+            String attribute = field.getKey();
+            JsonNode value = field.getValue();
+            switch (attribute) {
+                case LEAD_TIME, AVAILABLE -> changes.put(attribute, count(attribute, value));
+                case TYPE -> changes.put(attribute, type(value));
+                case NAME -> changes.put(attribute, name(value));
+                case EXPIRY_DATE, SEASON_START_DATE, SEASON_END_DATE -> changes.put(attribute, date(attribute, value));
+                default -> throw new IllegalArgumentException(attribute + " cannot be patched");
+            }
+        }
+        return new ProductPatch(Collections.unmodifiableMap(changes));
+    }
+
+    /**
+     * @return a patch setting every attribute of the product to the one given, null or not
+     */
+    public static ProductPatch replacing(Product product) {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        changes.put(LEAD_TIME, product.getLeadTime());
+        changes.put(AVAILABLE, product.getAvailable());
+        changes.put(TYPE, product.getType());
+        changes.put(NAME, product.getName());
+        changes.put(EXPIRY_DATE, product.getExpiryDate());
+        changes.put(SEASON_START_DATE, product.getSeasonStartDate());
+        changes.put(SEASON_END_DATE, product.getSeasonEndDate());
+        return new ProductPatch(Collections.unmodifiableMap(changes));
+    }
+
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    /**
+     * @return whether any of these attributes is changed
+     */
+    public boolean changes(String... attributes) {
+        for (String attribute : attributes) {
+            if (changes.containsKey(attribute)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return whether anything but the stock is changed
+     */
+    public boolean changesAttributes() {
+        return changes.size() > (changes.containsKey(AVAILABLE) ? 1 : 0);
+    }
+
+    /**
+     * @return whether the patch could leave the product without the dates its type requires,
+     *         which depends on the attributes it has now
+     */
+    public boolean dependsOnCurrentDates() {
+        if (changes.containsKey(TYPE)) {
+            return requiredDates((ProductType) changes.get(TYPE)).stream().anyMatch(date -> changes.get(date) == null);
+        }
+        return Stream.of(EXPIRY_DATE, SEASON_START_DATE, SEASON_END_DATE)
+                .anyMatch(date -> changes.containsKey(date) && changes.get(date) == null);
+    }
+
+    /**
+     * Checks that the product would still have the dates its type requires once patched: an expiry
+     * date for the expirable products, a season for the seasonal ones.
+     *
+     * @param current the product as it is now
+     * @throws IllegalArgumentException if a required date would be missing
+     */
+    public void checkDates(Product current) {
+        ProductType type = changes.containsKey(TYPE) ? (ProductType) changes.get(TYPE) : current.getType();
+        for (String date : requiredDates(type)) {
+            Object value = changes.containsKey(date) ? changes.get(date) : currentDate(current, date);
+            if (value == null) {
+                throw missingDate(date, type);
+            }
+        }
+    }
+
+    /**
+     * Checks that a new product has the dates its type requires, by the same rule as the patches.
+     *
+     * @param product the product to create
+     * @throws IllegalArgumentException if a required date is missing
+     */
+    public static void checkRequiredDates(Product product) {
+        for (String date : requiredDates(product.getType())) {
+            if (currentDate(product, date) == null) {
+                throw missingDate(date, product.getType());
+            }
+        }
+    }
+
+    private static IllegalArgumentException missingDate(String date, ProductType type) {
+        return new IllegalArgumentException(date + " is required for " + type + " products");
+    }
+
+    private static List<String> requiredDates(ProductType type) {
+        if (type == null) {
+            return List.of();
+        }
+        return switch (type) {
+            case EXPIRABLE -> List.of(EXPIRY_DATE);
+            case SEASONAL -> List.of(SEASON_START_DATE, SEASON_END_DATE);
+            case NORMAL -> List.of();
+        };
+    }
+
+    private static LocalDate currentDate(Product current, String date) {
+        return switch (date) {
+            case EXPIRY_DATE -> current.getExpiryDate();
+            case SEASON_START_DATE -> current.getSeasonStartDate();
+            case SEASON_END_DATE -> current.getSeasonEndDate();
+            default -> throw new IllegalArgumentException(date + " is not a date");
+        };
+    }
+
+    private static int count(String attribute, JsonNode value) {
+        if (!value.canConvertToExactIntegral() || !value.canConvertToInt() || value.intValue() < 0) {
+            throw new IllegalArgumentException(attribute + " must be a non-negative integer");
+        }
+        return value.intValue();
+    }
+
+    private static ProductType type(JsonNode value) {
+        try {
+            return ProductType.valueOf(value.isTextual() ? value.textValue() : "");
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("type must be one of NORMAL, SEASONAL, EXPIRABLE");
+        }
+    }
+
+    private static String name(JsonNode value) {
+        if (!value.isTextual() || value.textValue().isBlank()) {
+            throw new IllegalArgumentException("name must not be blank");
+        }
+        return value.textValue();
+    }
+
+    private static LocalDate date(String attribute, JsonNode value) {
+        if (value.isNull()) {
+            return null;
+        }
+        try {
+            return LocalDate.parse(value.isTextual() ? value.textValue() : "");
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(attribute + " must be a date like 2024-12-31, or null");
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.nimbleways.springboilerplate.dto.product;
+
+/**
+ * The stock of a product and the version of its row, read together.
+ *
+ * @param available the units in stock
+ * @param version   the version of the product, sent to the clients as its ETag
+ */
+public record ProductStock(Integer available, long version) {
+}
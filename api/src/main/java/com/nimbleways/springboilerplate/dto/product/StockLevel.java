@@ -0,0 +1,10 @@
+package com.nimbleways.springboilerplate.dto.product;
+
+/**
+ * The stock of a product as counted, e.g. by a warehouse feed.
+ *
+ * @param id        the ID of the product
+ * @param available the units in stock, replacing the current count
+ */
+public record StockLevel(Long id, Integer available) {
+}
@@ -0,0 +1,10 @@
+package com.nimbleways.springboilerplate.dto.product;
+
+import java.util.List;
+
+/**
+ * Outcome of a batch stock update, updated counts the levels written. The products listed in
+ * unknownIds did not exist and were skipped.
+ */
+public record StockUpdateReport(long received, long updated, List<Long> unknownIds) {
+}
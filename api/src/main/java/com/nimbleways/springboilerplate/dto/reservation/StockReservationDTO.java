@@ -0,0 +1,20 @@
+package com.nimbleways.springboilerplate.dto.reservation;
+
+import com.nimbleways.springboilerplate.entities.StockReservation;
+import com.nimbleways.springboilerplate.enums.ReservationStatus;
+
+import java.time.Instant;
+import java.util.List;
+
+public record StockReservationDTO(Long id, Long orderId, ReservationStatus status, Instant createdAt, Instant expiresAt,
+                                  List<Item> items) {
+
+    public record Item(Long productId, Integer quantity) {
+    }
+
+    public static StockReservationDTO of(StockReservation reservation) {
+        return new StockReservationDTO(reservation.getId(), reservation.getOrderId(), reservation.getStatus(),
+                reservation.getCreatedAt(), reservation.getExpiresAt(),
+                reservation.getItems().stream().map(item -> new Item(item.getProductId(), item.getQuantity())).toList());
+    }
+}
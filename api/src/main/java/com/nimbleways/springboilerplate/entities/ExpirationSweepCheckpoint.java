@@ -0,0 +1,47 @@
+package com.nimbleways.springboilerplate.entities;
+
+import lombok.*;
+
+import java.time.LocalDate;
+
+import javax.persistence.*;
+
+/**
+ * Position of a run of the expiration sweep in the products ordered by expiry date then ID. It is
+ * saved in the same transaction as the page of products it follows, so a run interrupted by a
+ * restart resumes after the last page committed. A checkpoint only holds for the run of its date:
+ * the next night's run starts from the first product again.
+ */
+@Entity
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "expiration_sweep_checkpoint")
+public class ExpirationSweepCheckpoint {
+
+    // The sweep keeps a single checkpoint row
+    public static final Long ID = 1L;
+
+    @Id
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "run_date", nullable = false)
+    private LocalDate runDate;
+
+    @Column(name = "last_expiry_date", nullable = false)
+    private LocalDate lastExpiryDate;
+
+    @Column(name = "last_product_id", nullable = false)
+    private Long lastProductId;
+
+    public static ExpirationSweepCheckpoint at(LocalDate runDate, LocalDate lastExpiryDate, Long lastProductId) {
+        return new ExpirationSweepCheckpoint(ID, runDate, lastExpiryDate, lastProductId);
+    }
+
+    // Before any product, for the first page of a run
+    public static ExpirationSweepCheckpoint start(LocalDate runDate) {
+        return at(runDate, LocalDate.of(1, 1, 1), 0L);
+    }
+}
@@ -0,0 +1,69 @@
+package com.nimbleways.springboilerplate.entities;
+
+import com.nimbleways.springboilerplate.dto.notification.Notification;
+import com.nimbleways.springboilerplate.enums.NotificationType;
+import lombok.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+import javax.persistence.*;
+
+/**
+ * A notification recorded in the same transaction as the stock change that caused it,
+ * waiting to be relayed to the NotificationService. An entry that cannot be sent is retried
+ * later, and dead-lettered once it has failed too many times.
+ */
+@Entity
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "notification_outbox", indexes = @Index(name = "idx_notification_outbox_dispatched_at", columnList = "dispatched_at, id"))
+public class NotificationOutboxEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "notification_outbox_seq")
+    @SequenceGenerator(name = "notification_outbox_seq", sequenceName = "notification_outbox_seq", allocationSize = 50)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "idempotency_key", nullable = false, unique = true)
+    private String idempotencyKey;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false)
+    private NotificationType type;
+
+    @Column(name = "product_name")
+    private String productName;
+
+    @Column(name = "lead_time")
+    private Integer leadTime;
+
+    @Column(name = "expiry_date")
+    private LocalDate expiryDate;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "dispatched_at")
+    private Instant dispatchedAt;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at")
+    private Instant nextAttemptAt;
+
+    @Column(name = "dead_lettered_at")
+    private Instant deadLetteredAt;
+
+    public static NotificationOutboxEntry of(Notification notification, String idempotencyKey) {
+        return new NotificationOutboxEntry(null, idempotencyKey, notification.type(), notification.productName(),
+                notification.leadTime(), notification.expiryDate(), Instant.now(), null, 0, null, null);
+    }
+
+    public Notification toNotification() {
+        return new Notification(type, productName, leadTime, expiryDate);
+    }
+}
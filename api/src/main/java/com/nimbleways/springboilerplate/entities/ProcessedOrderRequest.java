@@ -0,0 +1,45 @@
+package com.nimbleways.springboilerplate.entities;
+
+import lombok.*;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
+
+import javax.persistence.*;
+
+/**
+ * A processOrder request already handled, by idempotency key. It is inserted in the same
+ * transaction as the stock changes, so a key is recorded if and only if the order was processed.
+ */
+@Entity
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "processed_order_requests", indexes = @Index(name = "idx_processed_order_requests_processed_at", columnList = "processed_at"))
+public class ProcessedOrderRequest implements Persistable<String> {
+    @Id
+    @Column(name = "idempotency_key")
+    private String idempotencyKey;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Column(name = "processed_at", nullable = false)
+    private Instant processedAt;
+
+    public static ProcessedOrderRequest of(String idempotencyKey, Long orderId) {
+        return new ProcessedOrderRequest(idempotencyKey, orderId, Instant.now());
+    }
+
+    @Override
+    public String getId() {
+        return idempotencyKey;
+    }
+
+    // Always inserted, never merged, so that a key recorded concurrently fails the insert instead of being overwritten
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+}
@@ -2,6 +2,7 @@ package com.nimbleways.springboilerplate.entities;
 
 import com.nimbleways.springboilerplate.enums.ProductType;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.LocalDate;
 
@@ -10,12 +11,21 @@ import javax.persistence.*;
 @Entity
 @Getter
 @Setter
-@AllArgsConstructor
 @NoArgsConstructor
-@Table(name = "products")
+// Paging of the expiration sweep, filters of the product listing, then name lookups
+@Table(name = "products", indexes = {
+        @Index(name = "idx_products_type_expiry_date", columnList = "type, expiry_date, id"),
+        @Index(name = "idx_products_type_id", columnList = "type, id"),
+        @Index(name = "idx_products_available_id", columnList = "available, id"),
+        @Index(name = "idx_products_expiry_date_id", columnList = "expiry_date, id"),
+        @Index(name = "idx_products_season_dates", columnList = "season_start_date, season_end_date, id"),
+        @Index(name = "idx_products_name", columnList = "name")
+})
 public class Product {
+    // Pooled sequence rather than IDENTITY so that Hibernate can batch inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "products_seq")
+    @SequenceGenerator(name = "products_seq", sequenceName = "products_seq", allocationSize = 50)
     @Column(name = "id")
     private Long id;
 
@@ -39,4 +49,28 @@ public class Product {
 
     @Column(name = "season_end_date")
     private LocalDate seasonEndDate;
+
+    // Units held by pending stock reservations, already taken out of available.
+    // Only changed by the atomic updates of ProductRepository, never by saving the entity.
+    @Column(name = "reserved", nullable = false, updatable = false)
+    private Integer reserved = 0;
+
+    // Checked and incremented by every write of the entity, so a write based on a stale read fails
+    // instead of overwriting the stock. The bulk updates of the stock in ProductRepository increment it too.
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    public Product(Long id, Integer leadTime, Integer available, ProductType type, String name, LocalDate expiryDate,
+                   LocalDate seasonStartDate, LocalDate seasonEndDate) {
+        this.id = id;
+        this.leadTime = leadTime;
+        this.available = available;
+        this.type = type;
+        this.name = name;
+        this.expiryDate = expiryDate;
+        this.seasonStartDate = seasonStartDate;
+        this.seasonEndDate = seasonEndDate;
+    }
 }
@@ -0,0 +1,32 @@
+package com.nimbleways.springboilerplate.entities;
+
+import lombok.*;
+
+import javax.persistence.*;
+
+/**
+ * Sequence of the last stock ledger journal record written back to the products table. It is
+ * saved in the same transaction as the stock, so a journal record is never applied twice.
+ */
+@Entity
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "stock_ledger_checkpoint")
+public class StockLedgerCheckpoint {
+
+    // The ledger keeps a single checkpoint row
+    public static final Long ID = 1L;
+
+    @Id
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "last_sequence", nullable = false)
+    private Long lastSequence;
+
+    public static StockLedgerCheckpoint at(long lastSequence) {
+        return new StockLedgerCheckpoint(ID, lastSequence);
+    }
+}
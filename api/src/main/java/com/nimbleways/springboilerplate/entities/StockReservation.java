@@ -0,0 +1,50 @@
+package com.nimbleways.springboilerplate.entities;
+
+import com.nimbleways.springboilerplate.enums.ReservationStatus;
+import lombok.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.*;
+
+/**
+ * Stock held for an order until it is committed, released or expires. The held units are also
+ * counted on the products themselves, see Product.reserved, so this table is only read to commit,
+ * release or sweep a reservation.
+ */
+@Entity
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Table(name = "stock_reservations", indexes = @Index(name = "idx_stock_reservations_status_expires_at", columnList = "status, expires_at"))
+public class StockReservation {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_reservations_seq")
+    @SequenceGenerator(name = "stock_reservations_seq", sequenceName = "stock_reservations_seq", allocationSize = 50)
+    @Column(name = "id")
+    private Long id;
+
+    @Column(name = "order_id", nullable = false)
+    private Long orderId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "status", nullable = false)
+    private ReservationStatus status;
+
+    @Column(name = "created_at", nullable = false)
+    private Instant createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    @ElementCollection
+    @CollectionTable(name = "stock_reservation_items", joinColumns = @JoinColumn(name = "reservation_id"))
+    private List<ReservedItem> items = new ArrayList<>();
+
+    public static StockReservation held(Long orderId, List<ReservedItem> items, Instant now, Instant expiresAt) {
+        return new StockReservation(null, orderId, ReservationStatus.HELD, now, expiresAt, items);
+    }
+}
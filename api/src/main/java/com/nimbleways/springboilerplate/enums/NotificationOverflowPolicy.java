@@ -0,0 +1,14 @@
+package com.nimbleways.springboilerplate.enums;
+
+/**
+ * What to do with a notification when the dispatch queue is full.
+ */
+public enum NotificationOverflowPolicy {
+
+    // Wait for room in the queue, slowing the caller down
+    BLOCK,
+
+    // Leave the notification in the outbox for the next relay run and count it as dropped
+    DROP
+
+}
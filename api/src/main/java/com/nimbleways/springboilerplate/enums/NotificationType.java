@@ -0,0 +1,11 @@
+package com.nimbleways.springboilerplate.enums;
+
+public enum NotificationType {
+
+    DELAY,
+
+    OUT_OF_STOCK,
+
+    EXPIRATION
+
+}
@@ -0,0 +1,17 @@
+package com.nimbleways.springboilerplate.enums;
+
+/**
+ * What happens to a product on one of its dates.
+ */
+public enum ProductDateEventType {
+
+    // Expirable product no longer sold from this day
+    EXPIRY,
+
+    // Seasonal product whose season starts, it is sold from the next day
+    SEASON_START,
+
+    // Seasonal product no longer sold from this day
+    SEASON_END
+
+}
@@ -0,0 +1,14 @@
+package com.nimbleways.springboilerplate.enums;
+
+/**
+ * Formats the product catalog is exported in.
+ */
+public enum ProductExportFormat {
+
+    // One JSON product per line
+    NDJSON,
+
+    // A header line, then one comma-separated product per line
+    CSV
+
+}
@@ -0,0 +1,26 @@
+package com.nimbleways.springboilerplate.enums;
+
+/**
+ * Result of applying the ordering rules of a product type to a single order item.
+ */
+public enum ProductOutcome {
+
+    // One unit was taken from stock
+    SOLD,
+
+    // Out of stock, the customer is notified of the lead time
+    DELAYED,
+
+    // Cannot be restocked in time, stock is zeroed and the customer is notified
+    OUT_OF_STOCK,
+
+    // Seasonal product whose season has not started yet
+    NOT_IN_SEASON,
+
+    // Expirable product that is expired or out of stock
+    EXPIRED,
+
+    // Nothing to do for this item
+    UNCHANGED
+
+}
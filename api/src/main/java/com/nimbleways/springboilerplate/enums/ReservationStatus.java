@@ -0,0 +1,20 @@
+package com.nimbleways.springboilerplate.enums;
+
+/**
+ * Lifecycle of a stock reservation. Only a HELD reservation holds stock.
+ */
+public enum ReservationStatus {
+
+    // The units are taken out of the stock until the reservation is committed, released or expires
+    HELD,
+
+    // The reserved units were sold
+    COMMITTED,
+
+    // The reserved units were given back to the stock on request
+    RELEASED,
+
+    // The reserved units were given back to the stock once the reservation outlived its TTL
+    EXPIRED
+
+}
@@ -0,0 +1,17 @@
+package com.nimbleways.springboilerplate.enums;
+
+/**
+ * Where finished tracing spans are written.
+ */
+public enum SpanExportTarget {
+
+    // One line per span in the application log
+    LOG,
+
+    // One JSON document per line in a local file
+    FILE,
+
+    // Spans are not recorded at all
+    NONE
+
+}
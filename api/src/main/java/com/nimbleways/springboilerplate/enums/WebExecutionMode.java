@@ -0,0 +1,14 @@
+package com.nimbleways.springboilerplate.enums;
+
+/**
+ * Threads the web server runs the request handling on.
+ */
+public enum WebExecutionMode {
+
+    // The Tomcat worker pool, bounded by server.tomcat.threads.max
+    PLATFORM,
+
+    // One virtual thread per request, requires Java 21 or later
+    VIRTUAL
+
+}
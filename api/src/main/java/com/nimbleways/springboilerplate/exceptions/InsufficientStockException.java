@@ -0,0 +1,9 @@
+package com.nimbleways.springboilerplate.exceptions;
+
+public class InsufficientStockException extends Exception {
+
+    public InsufficientStockException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,9 @@
+package com.nimbleways.springboilerplate.exceptions;
+
+public class ReservationNotFoundException extends Exception {
+
+    public ReservationNotFoundException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,10 @@
+package com.nimbleways.springboilerplate.exceptions;
+
+// The reservation is no longer held, it was already committed, released or expired
+public class ReservationStateException extends Exception {
+
+    public ReservationStateException(String message) {
+        super(message);
+    }
+
+}
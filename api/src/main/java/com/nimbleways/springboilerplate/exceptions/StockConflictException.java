@@ -0,0 +1,9 @@
+package com.nimbleways.springboilerplate.exceptions;
+
+public class StockConflictException extends Exception {
+
+    public StockConflictException(String message) {
+        super(message);
+    }
+
+}
@@ -3,6 +3,7 @@ package com.nimbleways.springboilerplate.mappers;
 import com.nimbleways.springboilerplate.dto.product.ProductDTO;
 import com.nimbleways.springboilerplate.entities.Product;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.mapstruct.factory.Mappers;
 
 @Mapper(componentModel = "spring")
@@ -10,7 +11,9 @@ public interface ProductMapper {
 
     ProductMapper INSTANCE = Mappers.getMapper(ProductMapper.class);
 
-    // Mapping ProductDTO to Product entity
+    // Mapping ProductDTO to Product entity, reservations and versions are never set from the outside
+    @Mapping(target = "reserved", ignore = true)
+    @Mapping(target = "version", ignore = true)
     Product toEntity(ProductDTO productDTO);
 
     // Mapping Product entity to ProductDTO
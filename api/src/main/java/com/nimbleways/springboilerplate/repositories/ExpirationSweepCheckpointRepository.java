@@ -0,0 +1,7 @@
+package com.nimbleways.springboilerplate.repositories;
+
+import com.nimbleways.springboilerplate.entities.ExpirationSweepCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ExpirationSweepCheckpointRepository extends JpaRepository<ExpirationSweepCheckpoint, Long> {
+}
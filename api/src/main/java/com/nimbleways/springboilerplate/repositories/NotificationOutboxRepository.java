@@ -0,0 +1,35 @@
+package com.nimbleways.springboilerplate.repositories;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.nimbleways.springboilerplate.entities.NotificationOutboxEntry;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+public interface NotificationOutboxRepository extends JpaRepository<NotificationOutboxEntry, Long> {
+
+    @Query("select e.idempotencyKey from NotificationOutboxEntry e where e.idempotencyKey in :keys")
+    Set<String> findExistingIdempotencyKeys(@Param("keys") Collection<String> keys);
+
+    @Query("select e from NotificationOutboxEntry e where e.dispatchedAt is null and e.deadLetteredAt is null"
+            + " and (e.nextAttemptAt is null or e.nextAttemptAt <= :now) order by e.id")
+    List<NotificationOutboxEntry> findDue(@Param("now") Instant now, Pageable pageable);
+
+    @Modifying
+    @Query("update NotificationOutboxEntry e set e.nextAttemptAt = :until where e.id in :ids")
+    int claim(@Param("ids") Collection<Long> ids, @Param("until") Instant until);
+
+    @Modifying
+    @Query("update NotificationOutboxEntry e set e.dispatchedAt = :dispatchedAt where e.id in :ids")
+    int markDispatched(@Param("ids") Collection<Long> ids, @Param("dispatchedAt") Instant dispatchedAt);
+
+    @Modifying
+    @Query("delete from NotificationOutboxEntry e where e.dispatchedAt < :threshold")
+    int deleteDispatchedBefore(@Param("threshold") Instant threshold);
+}
@@ -1,8 +1,33 @@
 package com.nimbleways.springboilerplate.repositories;
 
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import com.nimbleways.springboilerplate.entities.Order;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
+
+    /**
+     * Loads an order together with all of its products in a single query.
+     *
+     * @param id the ID of the order
+     * @return the order with its items initialized, or empty if it does not exist
+     */
+    @EntityGraph(attributePaths = "items")
+    Optional<Order> findWithItemsById(Long id);
+
+    /**
+     * Loads several orders together with their products in a single query. A product shared
+     * by several orders is loaded once.
+     *
+     * @param ids the IDs of the orders
+     * @return the orders that exist, with their items initialized
+     */
+    @Query("select distinct o from Order o left join fetch o.items where o.id in :ids")
+    List<Order> findAllWithItemsByIdIn(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,31 @@
+package com.nimbleways.springboilerplate.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.nimbleways.springboilerplate.entities.ProcessedOrderRequest;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface ProcessedOrderRequestRepository extends JpaRepository<ProcessedOrderRequest, String> {
+
+    Optional<ProcessedOrderRequest> findByIdempotencyKeyAndProcessedAtAfter(String idempotencyKey, Instant threshold);
+
+    List<ProcessedOrderRequest> findByIdempotencyKeyInAndProcessedAtAfter(Collection<String> idempotencyKeys, Instant threshold);
+
+    @Modifying
+    @Query("delete from ProcessedOrderRequest r where r.idempotencyKey = :key and r.processedAt < :threshold")
+    int deleteExpired(@Param("key") String idempotencyKey, @Param("threshold") Instant threshold);
+
+    @Modifying
+    @Query("delete from ProcessedOrderRequest r where r.idempotencyKey in :keys and r.processedAt < :threshold")
+    int deleteAllExpired(@Param("keys") Collection<String> idempotencyKeys, @Param("threshold") Instant threshold);
+
+    @Modifying
+    @Query("delete from ProcessedOrderRequest r where r.processedAt < :threshold")
+    int deleteProcessedBefore(@Param("threshold") Instant threshold);
+}
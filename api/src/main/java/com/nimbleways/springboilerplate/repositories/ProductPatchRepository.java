@@ -0,0 +1,21 @@
+package com.nimbleways.springboilerplate.repositories;
+
+import com.nimbleways.springboilerplate.dto.product.ProductPatch;
+
+/**
+ * Partial product updates, added to the ProductRepository.
+ */
+public interface ProductPatchRepository {
+
+    /**
+     * Writes the changed attributes of a product in one UPDATE of just their columns, without
+     * reading the product first. The version is increased, so concurrent full updates of the
+     * product conflict with it.
+     *
+     * @param productId       the ID of the product to change
+     * @param patch           the attributes to change, not empty
+     * @param expectedVersion the version the product must still have, null for any version
+     * @return the number of products updated, 0 if there is no product with this ID and version
+     */
+    int patch(Long productId, ProductPatch patch, Long expectedVersion);
+}
@@ -0,0 +1,46 @@
+package com.nimbleways.springboilerplate.repositories;
+
+import com.nimbleways.springboilerplate.dto.product.ProductPatch;
+import com.nimbleways.springboilerplate.entities.Product;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Root;
+
+// Only the attributes given end up in the SET clause, so the other columns are left untouched
+class ProductPatchRepositoryImpl implements ProductPatchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public int patch(Long productId, ProductPatch patch, Long expectedVersion) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Product> update = cb.createCriteriaUpdate(Product.class);
+        Root<Product> p = update.from(Product.class);
+        // Values are bound as parameters typed by their column, the type is stored as its ordinal
+        for (String attribute : patch.changes().keySet()) {
+            setParameter(cb, update, p.get(attribute), attribute);
+        }
+        update.set(p.<Long>get("version"), cb.sum(p.<Long>get("version"), 1L));
+        update.where(expectedVersion == null
+                ? cb.equal(p.get("id"), productId)
+                : cb.and(cb.equal(p.get("id"), productId), cb.equal(p.get("version"), expectedVersion)));
+        Query query = entityManager.createQuery(update);
+        patch.changes().forEach(query::setParameter);
+        return query.executeUpdate();
+    }
+
+    // The type witness picks set(Path, Expression), the value being a parameter and not a literal
+    private static <T> void setParameter(CriteriaBuilder cb, CriteriaUpdate<Product> update, Path<T> column, String name) {
+        Expression<? extends T> value = cb.parameter(column.getJavaType(), name);
+        update.<T>set(column, value);
+    }
+}
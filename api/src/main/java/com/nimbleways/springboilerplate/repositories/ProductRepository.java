@@ -1,10 +1,164 @@
 package com.nimbleways.springboilerplate.repositories;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.nimbleways.springboilerplate.dto.product.ProductDates;
+import com.nimbleways.springboilerplate.dto.product.ProductName;
+import com.nimbleways.springboilerplate.dto.product.ProductStock;
 import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.ProductType;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
-public interface ProductRepository extends JpaRepository<Product, Long> {
+public interface ProductRepository extends JpaRepository<Product, Long>, ProductSearchRepository, ProductPatchRepository {
     Optional<Product> findFirstByName(String name);
+
+    Optional<Product> findFirstByNameIgnoreCaseOrderByIdAsc(String name);
+
+    /**
+     * @return the names of all the products, without loading the entities
+     */
+    @Query("select new com.nimbleways.springboilerplate.dto.product.ProductName(p.id, p.name) from Product p where p.name is not null")
+    List<ProductName> findAllNames();
+
+    /**
+     * Finds the names matching a LIKE pattern on the upper-cased name, in name order.
+     *
+     * @param pattern an upper-cased pattern, escaping its literal %, _ and ! with !
+     */
+    @Query("select new com.nimbleways.springboilerplate.dto.product.ProductName(p.id, p.name) from Product p"
+            + " where upper(p.name) like :pattern escape '!' order by upper(p.name), p.id")
+    List<ProductName> findNamesLike(@Param("pattern") String pattern, Pageable pageable);
+
+    @Query("select p.available from Product p where p.id = :id")
+    Optional<Integer> findAvailableById(@Param("id") Long id);
+
+    @Query("select new com.nimbleways.springboilerplate.dto.product.ProductStock(p.available, p.version) from Product p where p.id = :id")
+    Optional<ProductStock> findStockById(@Param("id") Long id);
+
+    @Query("select p.version from Product p where p.id = :id")
+    Optional<Long> findVersionById(@Param("id") Long id);
+
+    long countByTypeAndAvailableLessThanEqual(ProductType type, Integer available);
+
+    /**
+     * Atomically takes one unit from the stock of a product, only if there is stock left.
+     * The check and the decrement run as a single UPDATE so concurrent orders cannot oversell.
+     *
+     * @param id the ID of the product
+     * @return 1 if a unit was taken, 0 if the product is out of stock or does not exist
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("update Product p set p.available = p.available - 1, p.version = p.version + 1 where p.id = :id and p.available > 0")
+    int decrementAvailable(@Param("id") Long id);
+
+    /**
+     * Atomically takes several units from the stock of a product, only if enough stock is left.
+     *
+     * @param id       the ID of the product
+     * @param quantity the number of units to take
+     * @return 1 if the units were taken, 0 if there is not enough stock or the product does not exist
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("update Product p set p.available = p.available - :quantity, p.version = p.version + 1 where p.id = :id and p.available >= :quantity")
+    int decrementAvailableBy(@Param("id") Long id, @Param("quantity") int quantity);
+
+    /**
+     * Gives units back to the stock of a product.
+     *
+     * @return 1 if the stock was updated, 0 if the product does not exist
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("update Product p set p.available = p.available + :quantity, p.version = p.version + 1 where p.id = :id")
+    int incrementAvailableBy(@Param("id") Long id, @Param("quantity") int quantity);
+
+    /**
+     * Atomically moves units of a product from its stock to its reserved units, only if enough
+     * stock is left. Reserved units are no longer available, so the other orders need no join
+     * with the reservations to see them.
+     *
+     * @return 1 if the units were reserved, 0 if there is not enough stock or the product does not exist
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("update Product p set p.available = p.available - :quantity, p.reserved = p.reserved + :quantity, p.version = p.version + 1"
+            + " where p.id = :id and p.available >= :quantity")
+    int reserve(@Param("id") Long id, @Param("quantity") int quantity);
+
+    /**
+     * Sells reserved units: they are dropped from the reserved units, the stock was already taken.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("update Product p set p.reserved = p.reserved - :quantity where p.id = :id and p.reserved >= :quantity")
+    int commitReserved(@Param("id") Long id, @Param("quantity") int quantity);
+
+    /**
+     * Gives reserved units back to the stock.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("update Product p set p.available = p.available + :quantity, p.reserved = p.reserved - :quantity, p.version = p.version + 1"
+            + " where p.id = :id and p.reserved >= :quantity")
+    int releaseReserved(@Param("id") Long id, @Param("quantity") int quantity);
+
+    /**
+     * Adds units to the reserved units of a product whose stock was already taken elsewhere,
+     * by the stock ledger.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("update Product p set p.reserved = p.reserved + :quantity where p.id = :id")
+    int addReserved(@Param("id") Long id, @Param("quantity") int quantity);
+
+    /**
+     * Writes back the net number of units the stock ledger took from a product, a negative
+     * delta gives units back. The stock never goes below zero: units taken from a row that was
+     * meanwhile set to zero, an out-of-stock or expired product, are already gone.
+     *
+     * @return 1 if the stock was updated, 0 if the product does not exist
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "update products set available = greatest(available - :delta, 0), version = version + 1 where id = :id",
+            nativeQuery = true)
+    int applyStockDelta(@Param("id") Long id, @Param("delta") int delta);
+
+    long countByAvailableLessThan(Integer available);
+
+    /**
+     * Finds the products of a type expired on the given day and still in stock, ordered by expiry
+     * date then ID, after the given position in that order.
+     *
+     * @param lastExpiryDate the expiry date of the last product already seen
+     * @param lastId         the ID of the last product already seen
+     */
+    @Query("select p from Product p where p.type = :type and p.expiryDate <= :today and p.available > 0"
+            + " and (p.expiryDate > :lastExpiryDate or (p.expiryDate = :lastExpiryDate and p.id > :lastId))"
+            + " order by p.expiryDate, p.id")
+    List<Product> findExpiredInStockAfter(@Param("type") ProductType type, @Param("today") LocalDate today,
+                                          @Param("lastExpiryDate") LocalDate lastExpiryDate, @Param("lastId") Long lastId,
+                                          Pageable pageable);
+
+    /**
+     * Sets the stock of the given products to zero with a single UPDATE.
+     *
+     * @return the number of products whose stock was zeroed
+     */
+    @Transactional
+    @Modifying(flushAutomatically = true)
+    @Query("update Product p set p.available = 0, p.version = p.version + 1 where p.id in :ids and p.available > 0")
+    int zeroAvailable(@Param("ids") Collection<Long> ids);
+
+    /**
+     * @return the dates of the products having any, without loading the entities
+     */
+    @Query("select new com.nimbleways.springboilerplate.dto.product.ProductDates(p.id, p.type, p.expiryDate, p.seasonStartDate, p.seasonEndDate)"
+            + " from Product p where p.expiryDate is not null or p.seasonStartDate is not null or p.seasonEndDate is not null")
+    List<ProductDates> findAllDates();
 }
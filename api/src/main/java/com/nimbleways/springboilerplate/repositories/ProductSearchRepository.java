@@ -0,0 +1,27 @@
+package com.nimbleways.springboilerplate.repositories;
+
+import com.nimbleways.springboilerplate.dto.product.ProductCursor;
+import com.nimbleways.springboilerplate.dto.product.ProductDTO;
+import com.nimbleways.springboilerplate.dto.product.ProductFilter;
+
+import java.util.List;
+
+/**
+ * Product queries built from optional criteria, added to the ProductRepository.
+ */
+public interface ProductSearchRepository {
+
+    /**
+     * Lists the products matching a filter, in the order of {@link ProductFilter#sortDate()}, after
+     * a cursor. The query seeks straight to the first product past the cursor in the index of the
+     * sort column, so a deep page costs as much as the first one, and the columns are read into
+     * DTOs without building any entity.
+     *
+     * @param filter the criteria the products must match
+     * @param after  the position after the last product of the previous page, holding the sort date
+     *               if there is one, null for the first page
+     * @param limit  the maximum number of products to return
+     * @return the matching products
+     */
+    List<ProductDTO> search(ProductFilter filter, ProductCursor after, int limit);
+}
@@ -0,0 +1,78 @@
+package com.nimbleways.springboilerplate.repositories;
+
+import com.nimbleways.springboilerplate.dto.product.ProductCursor;
+import com.nimbleways.springboilerplate.dto.product.ProductDTO;
+import com.nimbleways.springboilerplate.dto.product.ProductFilter;
+import com.nimbleways.springboilerplate.entities.Product;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Only the criteria given end up in the WHERE clause, so the database can pick the matching index
+class ProductSearchRepositoryImpl implements ProductSearchRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<ProductDTO> search(ProductFilter filter, ProductCursor after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductDTO> query = cb.createQuery(ProductDTO.class);
+        Root<Product> p = query.from(Product.class);
+        query.select(cb.construct(ProductDTO.class, p.get("id"), p.get("leadTime"), p.get("available"), p.get("type"),
+                p.get("name"), p.get("expiryDate"), p.get("seasonStartDate"), p.get("seasonEndDate")));
+
+        String sortDate = filter.sortDate();
+        Path<Long> id = p.get("id");
+        List<Predicate> predicates = new ArrayList<>();
+        if (after != null) {
+            predicates.add(after(cb, p, sortDate, id, after));
+        }
+        if (filter.type() != null) {
+            predicates.add(cb.equal(p.get("type"), filter.type()));
+        }
+        if (filter.minAvailable() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(p.<Integer>get("available"), filter.minAvailable()));
+        }
+        if (filter.maxAvailable() != null) {
+            predicates.add(cb.lessThanOrEqualTo(p.<Integer>get("available"), filter.maxAvailable()));
+        }
+        if (filter.expiresFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(p.<LocalDate>get("expiryDate"), filter.expiresFrom()));
+        }
+        if (filter.expiresTo() != null) {
+            predicates.add(cb.lessThanOrEqualTo(p.<LocalDate>get("expiryDate"), filter.expiresTo()));
+        }
+        // Seasons overlapping the window
+        if (filter.seasonFrom() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(p.<LocalDate>get("seasonEndDate"), filter.seasonFrom()));
+        }
+        if (filter.seasonTo() != null) {
+            predicates.add(cb.lessThanOrEqualTo(p.<LocalDate>get("seasonStartDate"), filter.seasonTo()));
+        }
+        query.where(predicates.toArray(Predicate[]::new));
+        query.orderBy(sortDate == null ? List.of(cb.asc(id)) : List.of(cb.asc(p.get(sortDate)), cb.asc(id)));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    // (date, id) > (:date, :id), with the date bound alone repeated so it is used as the start of the index range
+    private static Predicate after(CriteriaBuilder cb, Root<Product> p, String sortDate, Path<Long> id, ProductCursor after) {
+        if (sortDate == null) {
+            return cb.greaterThan(id, after.id());
+        }
+        Path<LocalDate> date = p.get(sortDate);
+        return cb.and(cb.greaterThanOrEqualTo(date, after.date()),
+                cb.or(cb.greaterThan(date, after.date()), cb.greaterThan(id, after.id())));
+    }
+}
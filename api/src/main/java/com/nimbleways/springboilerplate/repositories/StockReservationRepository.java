@@ -0,0 +1,38 @@
+package com.nimbleways.springboilerplate.repositories;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.nimbleways.springboilerplate.entities.StockReservation;
+import com.nimbleways.springboilerplate.enums.ReservationStatus;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
+
+    @EntityGraph(attributePaths = "items")
+    Optional<StockReservation> findWithItemsById(Long id);
+
+    @EntityGraph(attributePaths = "items")
+    List<StockReservation> findWithItemsByIdIn(Collection<Long> ids);
+
+    @Query("select r.id from StockReservation r where r.status = :status and r.expiresAt < :now order by r.expiresAt")
+    List<Long> findIdsByStatusAndExpiresAtBefore(@Param("status") ReservationStatus status, @Param("now") Instant now,
+                                                 Pageable pageable);
+
+    /**
+     * Moves a reservation to another status, only if it is still in the expected one. Committing,
+     * releasing and sweeping all go through this update, so a reservation can leave HELD only once.
+     *
+     * @return 1 if the status changed, 0 otherwise
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("update StockReservation r set r.status = :to where r.id = :id and r.status = :from")
+    int transition(@Param("id") Long id, @Param("from") ReservationStatus from, @Param("to") ReservationStatus to);
+}
@@ -0,0 +1,61 @@
+package com.nimbleways.springboilerplate.services;
+
+import com.nimbleways.springboilerplate.dto.notification.Notification;
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.ProductOutcome;
+import com.nimbleways.springboilerplate.enums.ProductType;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Business rules of one product type, applied when a product of that type is ordered: which
+ * outcome an order item has, and what that outcome does to the product and who is told about it.
+ * Handlers are Spring beans collected by the ProductTypeHandlerRegistry, so supporting a new
+ * type of product only takes a new ProductType constant and a new handler.
+ */
+public interface ProductTypeHandler {
+
+    /**
+     * @return the product type whose rules this handler implements
+     */
+    ProductType type();
+
+    /**
+     * Resolves what should happen to a product when it is ordered, without modifying it.
+     *
+     * @param p         the ordered product
+     * @param available the stock to consider, which differs from the product's own when several
+     *                  orders take from it in the same pass
+     * @param today     the date the order is processed at
+     * @return the outcome to apply to the product
+     */
+    ProductOutcome resolve(Product p, int available, LocalDate today);
+
+    /**
+     * Resolves the outcome of all the products of this type in an order at once. Handlers whose
+     * rules can share work between products may override it.
+     *
+     * @param products the ordered products, all of this handler's type
+     * @param today    the date the order is processed at
+     * @param outcomes receives the outcome of every product
+     */
+    default void resolveAll(Collection<Product> products, LocalDate today, Map<Product, ProductOutcome> outcomes) {
+        for (Product p : products) {
+            outcomes.put(p, resolve(p, p.getAvailable(), today));
+        }
+    }
+
+    /**
+     * Applies an outcome this handler resolved, other than SOLD and UNCHANGED which the ProductService
+     * applies alike for every type. The product is changed if the outcome requires it, it is then
+     * written back by the caller.
+     *
+     * @param p       the ordered product
+     * @param outcome the outcome resolved for the product
+     * @return the notification to send the customers, null if there is none
+     * @throws IllegalArgumentException if this handler never resolves the outcome
+     */
+    Notification apply(Product p, ProductOutcome outcome);
+}
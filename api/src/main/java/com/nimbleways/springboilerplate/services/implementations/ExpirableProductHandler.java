@@ -0,0 +1,42 @@
+package com.nimbleways.springboilerplate.services.implementations;
+
+import com.nimbleways.springboilerplate.dto.notification.Notification;
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.ProductOutcome;
+import com.nimbleways.springboilerplate.enums.ProductType;
+import com.nimbleways.springboilerplate.services.ProductTypeHandler;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * An expirable product is sold while in stock and before its expiry date, otherwise it is
+ * withdrawn from sale.
+ */
+@Component
+public class ExpirableProductHandler implements ProductTypeHandler {
+
+    @Override
+    public ProductType type() {
+        return ProductType.EXPIRABLE;
+    }
+
+    @Override
+    public ProductOutcome resolve(Product p, int available, LocalDate today) {
+        if (available > 0 && p.getExpiryDate().isAfter(today)) {
+            // Product is available and not expired
+            return ProductOutcome.SOLD;
+        }
+        // Product is either out of stock or expired
+        return ProductOutcome.EXPIRED;
+    }
+
+    @Override
+    public Notification apply(Product p, ProductOutcome outcome) {
+        if (outcome == ProductOutcome.EXPIRED) {
+            p.setAvailable(0);  // Ensure availability is set to zero
+            return Notification.expiration(p.getName(), p.getExpiryDate());
+        }
+        throw new IllegalArgumentException("Expirable products are never " + outcome);
+    }
+}
@@ -0,0 +1,120 @@
+package com.nimbleways.springboilerplate.services.implementations;
+
+import com.nimbleways.springboilerplate.config.ExpirationSweepProperties;
+import com.nimbleways.springboilerplate.dto.notification.Notification;
+import com.nimbleways.springboilerplate.entities.ExpirationSweepCheckpoint;
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.ProductType;
+import com.nimbleways.springboilerplate.repositories.ExpirationSweepCheckpointRepository;
+import com.nimbleways.springboilerplate.repositories.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Zeroes the stock of the expirable products past their expiry date and records their expiration
+ * notifications, without waiting for an order to touch them. The products are paged by expiry
+ * date then ID through the idx_products_type_expiry_date index, each page in its own short
+ * transaction: one bulk UPDATE, the notifications added to the outbox, and the position of the
+ * run saved in the checkpoint row. A run interrupted by a restart resumes after the last page it
+ * committed; a run that completes drops its checkpoint, and every run starts from the first
+ * product, so the products restocked or whose expiry date was moved back are swept the next night.
+ */
+@Component
+public class ExpirationSweeper {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExpirationSweeper.class);
+
+    private final ProductRepository productRepository;
+    private final ExpirationSweepCheckpointRepository checkpointRepository;
+    private final NotificationOutboxService notificationOutboxService;
+    private final StockLedger stockLedger;
+    private final ExpirationSweepProperties properties;
+    private final TransactionTemplate transactionTemplate;
+    private final Clock clock;
+    private final Counter zeroed;
+
+    public ExpirationSweeper(ProductRepository productRepository, ExpirationSweepCheckpointRepository checkpointRepository,
+                             NotificationOutboxService notificationOutboxService, StockLedger stockLedger,
+                             ExpirationSweepProperties properties, TransactionTemplate transactionTemplate, Clock clock,
+                             MeterRegistry meterRegistry) {
+        this.productRepository = productRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.notificationOutboxService = notificationOutboxService;
+        this.stockLedger = stockLedger;
+        this.properties = properties;
+        this.transactionTemplate = transactionTemplate;
+        this.clock = clock;
+        this.zeroed = Counter.builder("products.expiration-sweep.zeroed")
+                .description("Expired products whose stock was zeroed by the expiration sweep")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Sweeps the products expired today page after page, until none is left.
+     *
+     * @return the number of expired products zeroed
+     */
+    @Scheduled(cron = "${products.expiration-sweep.cron:0 5 0 * * *}")
+    public int sweep() {
+        LocalDate today = LocalDate.now(clock);
+        int swept = 0;
+        List<Long> page;
+        do {
+            page = transactionTemplate.execute(status -> sweepPage(today));
+            if (stockLedger.isEnabled()) {
+                // The ledger would otherwise keep selling the units it holds in memory
+                page.forEach(productId -> stockLedger.reset(productId, 0));
+            }
+            zeroed.increment(page.size());
+            swept += page.size();
+        } while (page.size() == properties.getPageSize());
+        transactionTemplate.executeWithoutResult(status ->
+                checkpointRepository.findById(ExpirationSweepCheckpoint.ID).ifPresent(checkpointRepository::delete));
+        if (swept > 0) {
+            LOGGER.info("Expiration sweep zeroed {} expired products", swept);
+        }
+        return swept;
+    }
+
+    private List<Long> sweepPage(LocalDate today) {
+        // A checkpoint left by the interrupted run of another day does not hold for this one
+        ExpirationSweepCheckpoint checkpoint = checkpointRepository.findById(ExpirationSweepCheckpoint.ID)
+                .filter(saved -> today.equals(saved.getRunDate()))
+                .orElseGet(() -> ExpirationSweepCheckpoint.start(today));
+        List<Product> expired = productRepository.findExpiredInStockAfter(ProductType.EXPIRABLE, today,
+                checkpoint.getLastExpiryDate(), checkpoint.getLastProductId(), PageRequest.of(0, properties.getPageSize()));
+        if (expired.isEmpty()) {
+            return List.of();
+        }
+
+        List<Long> productIds = new ArrayList<>(expired.size());
+        Map<String, Notification> notifications = new LinkedHashMap<>();
+        for (Product p : expired) {
+            productIds.add(p.getId());
+            notifications.put(notificationKey(p), Notification.expiration(p.getName(), p.getExpiryDate()));
+        }
+        productRepository.zeroAvailable(productIds);
+        notificationOutboxService.enqueueAll(notifications);
+        Product last = expired.get(expired.size() - 1);
+        checkpointRepository.save(ExpirationSweepCheckpoint.at(today, last.getExpiryDate(), last.getId()));
+        return productIds;
+    }
+
+    // A product is notified once per expiry date, however many sweeps see it
+    private static String notificationKey(Product p) {
+        return "expired-product-" + p.getId() + "-" + p.getExpiryDate();
+    }
+}
@@ -0,0 +1,41 @@
+package com.nimbleways.springboilerplate.services.implementations;
+
+import com.nimbleways.springboilerplate.dto.notification.Notification;
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.ProductOutcome;
+import com.nimbleways.springboilerplate.enums.ProductType;
+import com.nimbleways.springboilerplate.services.ProductTypeHandler;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * A normal product is sold while in stock, otherwise customers are told about the delay
+ * if it can be restocked.
+ */
+@Component
+public class NormalProductHandler implements ProductTypeHandler {
+
+    @Override
+    public ProductType type() {
+        return ProductType.NORMAL;
+    }
+
+    @Override
+    public ProductOutcome resolve(Product p, int available, LocalDate today) {
+        if (available > 0) {
+            return ProductOutcome.SOLD;
+        } else if (p.getLeadTime() > 0) {
+            return ProductOutcome.DELAYED;
+        }
+        return ProductOutcome.UNCHANGED;
+    }
+
+    @Override
+    public Notification apply(Product p, ProductOutcome outcome) {
+        if (outcome == ProductOutcome.DELAYED) {
+            return Notification.delay(p.getLeadTime(), p.getName());
+        }
+        throw new IllegalArgumentException("Normal products are never " + outcome);
+    }
+}
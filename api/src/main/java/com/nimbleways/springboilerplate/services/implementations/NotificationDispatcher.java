@@ -0,0 +1,275 @@
+package com.nimbleways.springboilerplate.services.implementations;
+
+import com.nimbleways.springboilerplate.config.NotificationDispatchProperties;
+import com.nimbleways.springboilerplate.dto.notification.Notification;
+import com.nimbleways.springboilerplate.enums.NotificationOverflowPolicy;
+import com.nimbleways.springboilerplate.tracing.SpanAttributes;
+import com.nimbleways.springboilerplate.tracing.Spans;
+import io.opentelemetry.api.common.Attributes;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends customer notifications asynchronously so that a slow notification provider does not
+ * stall the NotificationOutboxRelay, which hands it the outbox entries it claimed.
+ * Notifications go through a bounded queue drained in batches by a pool of workers. A notification
+ * that is already waiting in the queue is not queued twice, the entries it was submitted for are
+ * added to the queued one. When the queue is full, the caller is either blocked or the notification
+ * is dropped, depending on the configured overflow policy. Once a batch is sent, the workers mark
+ * its entries as dispatched or record their failure through the NotificationOutboxService.
+ */
+@Service
+public class NotificationDispatcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NotificationDispatcher.class);
+
+    private static final long POLL_TIMEOUT_MS = 200;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    private final NotificationService notificationService;
+    private final NotificationOutboxService outboxService;
+    private final NotificationDispatchProperties properties;
+    private final Spans spans;
+
+    private final BlockingQueue<QueuedNotification> queue;
+    private final ConcurrentMap<Notification, QueuedNotification> pending = new ConcurrentHashMap<>();
+
+    private final Counter droppedCounter;
+    private final Counter coalescedCounter;
+    private final Counter failedCounter;
+    private final Timer latencyTimer;
+
+    private volatile boolean running;
+    private ExecutorService workers;
+
+    public NotificationDispatcher(NotificationService notificationService, NotificationOutboxService outboxService,
+                                  NotificationDispatchProperties properties, MeterRegistry meterRegistry, Spans spans) {
+        this.notificationService = notificationService;
+        this.outboxService = outboxService;
+        this.properties = properties;
+        this.spans = spans;
+        this.queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+        Gauge.builder("notifications.dispatch.queue.depth", queue, BlockingQueue::size)
+                .description("Number of notifications waiting to be sent")
+                .register(meterRegistry);
+        this.droppedCounter = Counter.builder("notifications.dispatch.dropped")
+                .description("Notifications left in the outbox because the queue was full")
+                .register(meterRegistry);
+        this.coalescedCounter = Counter.builder("notifications.dispatch.coalesced")
+                .description("Notifications merged with an identical one already queued")
+                .register(meterRegistry);
+        this.failedCounter = Counter.builder("notifications.dispatch.failed")
+                .description("Notifications the notification service failed to send")
+                .register(meterRegistry);
+        this.latencyTimer = Timer.builder("notifications.dispatch.latency")
+                .description("Time between queuing a notification and sending it")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        workers = Executors.newFixedThreadPool(properties.getWorkers(), new CustomizableThreadFactory("notification-dispatch-"));
+        for (int i = 0; i < properties.getWorkers(); i++) {
+            workers.execute(this::runWorker);
+        }
+        LOGGER.info("Notification dispatcher started with {} workers", properties.getWorkers());
+    }
+
+    /**
+     * Stops the workers once the queue is drained. Notifications still queued after the
+     * shutdown timeout are sent on the calling thread.
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (workers != null) {
+            workers.shutdown();
+            try {
+                if (!workers.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    LOGGER.warn("Notification workers did not stop within {} seconds", SHUTDOWN_TIMEOUT_SECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        List<QueuedNotification> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        deliver(remaining);
+    }
+
+    /**
+     * Queues a notification to be sent asynchronously.
+     *
+     * @param notification the notification to send
+     * @param entryIds     the outbox entries carrying the notification, marked once it is sent
+     * @return false if the notification was dropped because the queue is full, its entries are
+     * then left to the caller
+     */
+    public boolean submit(Notification notification, Collection<Long> entryIds) {
+        QueuedNotification created = new QueuedNotification(notification, System.nanoTime());
+        // The entries are added under the lock of the map, which the worker taking the notification also holds
+        QueuedNotification queued = pending.compute(notification, (n, current) -> {
+            QueuedNotification target = current != null ? current : created;
+            target.entryIds.addAll(entryIds);
+            return target;
+        });
+        if (queued != created) {
+            coalescedCounter.increment();
+            return true;
+        }
+        if (enqueue(created)) {
+            return true;
+        }
+        pending.remove(notification, created);
+        droppedCounter.increment();
+        LOGGER.warn("Notification queue is full, dropping {} notification for product {}",
+                notification.type(), notification.productName());
+        return false;
+    }
+
+    private boolean enqueue(QueuedNotification queued) {
+        if (properties.getOverflowPolicy() == NotificationOverflowPolicy.DROP) {
+            return queue.offer(queued);
+        }
+        try {
+            queue.put(queued);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    private void runWorker() {
+        List<QueuedNotification> batch = new ArrayList<>(properties.getBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                QueuedNotification first = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, properties.getBatchSize() - 1);
+                deliver(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void deliver(List<QueuedNotification> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Long> dispatchedIds = new ArrayList<>();
+        List<Long> failedIds = new ArrayList<>();
+        for (QueuedNotification queued : batch) {
+            Notification notification = queued.notification;
+            // Released before sending so that a new occurrence raised meanwhile is sent again
+            pending.remove(notification, queued);
+            if (trySend(notification)) {
+                dispatchedIds.addAll(queued.entryIds);
+            } else {
+                failedIds.addAll(queued.entryIds);
+            }
+            latencyTimer.record(System.nanoTime() - queued.enqueuedAt, TimeUnit.NANOSECONDS);
+        }
+        try {
+            outboxService.markDispatched(dispatchedIds);
+            outboxService.recordFailures(failedIds);
+        } catch (RuntimeException e) {
+            LOGGER.error("Failed to mark {} sent and {} failed outbox entries, they are relayed again once their claim expired",
+                    dispatchedIds.size(), failedIds.size(), e);
+        }
+    }
+
+    private boolean trySend(Notification notification) {
+        try {
+            send(notification);
+            return true;
+        } catch (RuntimeException e) {
+            failedCounter.increment();
+            LOGGER.error("Failed to send {} notification for product {}", notification.type(), notification.productName(), e);
+            return false;
+        }
+    }
+
+    private void send(Notification notification) {
+        Attributes attributes = Attributes.of(SpanAttributes.NOTIFICATION_TYPE, notification.type().name(),
+                SpanAttributes.PRODUCT_NAME, notification.productName());
+        spans.trace("NotificationService." + sendMethod(notification), attributes, () -> {
+            sendNow(notification);
+            return null;
+        });
+    }
+
+    private static String sendMethod(Notification notification) {
+        switch (notification.type()) {
+            case DELAY:
+                return "sendDelayNotification";
+            case OUT_OF_STOCK:
+                return "sendOutOfStockNotification";
+            case EXPIRATION:
+                return "sendExpirationNotification";
+            default:
+                return "send";
+        }
+    }
+
+    private void sendNow(Notification notification) {
+        switch (notification.type()) {
+            case DELAY:
+                notificationService.sendDelayNotification(notification.leadTime(), notification.productName());
+                break;
+            case OUT_OF_STOCK:
+                notificationService.sendOutOfStockNotification(notification.productName());
+                break;
+            case EXPIRATION:
+                notificationService.sendExpirationNotification(notification.productName(), notification.expiryDate());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown notification type: " + notification.type());
+        }
+    }
+
+    // Compared by identity, a notification sent and raised again is queued anew
+    private static final class QueuedNotification {
+
+        private final Notification notification;
+        private final long enqueuedAt;
+        // Filled under the lock of the pending map on the notification, read once removed from it under that lock
+        private final List<Long> entryIds = new ArrayList<>();
+
+        private QueuedNotification(Notification notification, long enqueuedAt) {
+            this.notification = notification;
+            this.enqueuedAt = enqueuedAt;
+        }
+    }
+}
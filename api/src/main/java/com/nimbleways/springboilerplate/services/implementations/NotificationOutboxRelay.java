@@ -0,0 +1,112 @@
+package com.nimbleways.springboilerplate.services.implementations;
+
+import com.nimbleways.springboilerplate.config.NotificationOutboxProperties;
+import com.nimbleways.springboilerplate.dto.notification.Notification;
+import com.nimbleways.springboilerplate.entities.NotificationOutboxEntry;
+import com.nimbleways.springboilerplate.repositories.NotificationOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Drains the notification outbox in batches and hands the notifications to the NotificationDispatcher.
+ * A batch is claimed in a short transaction, which hides its entries from the next runs for the
+ * claim timeout, then submitted with no transaction open. The dispatcher workers send the
+ * notifications and mark the entries in short transactions of their own, so a slow provider
+ * holds no connection nor lock and does not hold up the relay.
+ * Entries are marked as dispatched only once the NotificationService accepted them, so delivery
+ * is at-least-once: a crash between sending and marking resends the batch once its claim expired.
+ * Entries carrying the same notification are sent once. An entry that cannot be sent is retried
+ * with an exponential backoff, see NotificationOutboxService#recordFailures.
+ */
+@Component
+public class NotificationOutboxRelay {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NotificationOutboxRelay.class);
+
+    private final NotificationOutboxRepository outboxRepository;
+    private final NotificationDispatcher notificationDispatcher;
+    private final NotificationOutboxProperties properties;
+    private final TransactionTemplate transactionTemplate;
+
+    public NotificationOutboxRelay(NotificationOutboxRepository outboxRepository, NotificationDispatcher notificationDispatcher,
+                                   NotificationOutboxProperties properties, TransactionTemplate transactionTemplate) {
+        this.outboxRepository = outboxRepository;
+        this.notificationDispatcher = notificationDispatcher;
+        this.properties = properties;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Relays the entries due until none is left, then purges the entries dispatched before the
+     * retention period. Stops early when the dispatch queue is full and drops notifications, the
+     * entries dropped are relayed again by the next run.
+     *
+     * @return the number of entries handed to the dispatcher
+     */
+    @Scheduled(fixedDelayString = "${notifications.outbox.relay-interval-ms:1000}")
+    public int relay() {
+        int submitted = 0;
+        List<NotificationOutboxEntry> batch;
+        int batchSubmitted;
+        do {
+            batch = transactionTemplate.execute(status -> claimDue());
+            batchSubmitted = submit(batch);
+            submitted += batchSubmitted;
+        } while (batch.size() == properties.getBatchSize() && batchSubmitted == batch.size());
+
+        Integer purged = transactionTemplate.execute(status ->
+                outboxRepository.deleteDispatchedBefore(Instant.now().minus(properties.getRetention())));
+        if (submitted > 0 || purged > 0) {
+            LOGGER.info("Notification outbox relay submitted {} entries and purged {}", submitted, purged);
+        }
+        return submitted;
+    }
+
+    private List<NotificationOutboxEntry> claimDue() {
+        Instant now = Instant.now();
+        List<NotificationOutboxEntry> entries = outboxRepository.findDue(now, PageRequest.of(0, properties.getBatchSize()));
+        if (!entries.isEmpty()) {
+            outboxRepository.claim(ids(entries), now.plus(properties.getClaimTimeout()));
+        }
+        return entries;
+    }
+
+    // The entries were claimed by a committed transaction, they are only read here
+    private int submit(List<NotificationOutboxEntry> entries) {
+        Map<Notification, List<NotificationOutboxEntry>> entriesByNotification = new LinkedHashMap<>();
+        for (NotificationOutboxEntry entry : entries) {
+            entriesByNotification.computeIfAbsent(entry.toNotification(), n -> new ArrayList<>()).add(entry);
+        }
+        int submitted = 0;
+        List<Long> dropped = new ArrayList<>();
+        for (Map.Entry<Notification, List<NotificationOutboxEntry>> sameEntries : entriesByNotification.entrySet()) {
+            List<Long> ids = ids(sameEntries.getValue());
+            // Once the queue is full the entries left are not submitted either
+            if (dropped.isEmpty() && notificationDispatcher.submit(sameEntries.getKey(), ids)) {
+                submitted += ids.size();
+            } else {
+                dropped.addAll(ids);
+            }
+        }
+        if (!dropped.isEmpty()) {
+            // Claimed until now, the next run selects them again
+            transactionTemplate.executeWithoutResult(status -> outboxRepository.claim(dropped, Instant.now()));
+        }
+        return submitted;
+    }
+
+    private static List<Long> ids(List<NotificationOutboxEntry> entries) {
+        return entries.stream().map(NotificationOutboxEntry::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,115 @@
+package com.nimbleways.springboilerplate.services.implementations;
+
+import com.nimbleways.springboilerplate.config.NotificationOutboxProperties;
+import com.nimbleways.springboilerplate.dto.notification.Notification;
+import com.nimbleways.springboilerplate.entities.NotificationOutboxEntry;
+import com.nimbleways.springboilerplate.repositories.NotificationOutboxRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Records notifications in the outbox table. Called inside the transaction that changes the
+ * stock, so a notification is stored if and only if the change is committed.
+ * The NotificationOutboxRelay hands them to the NotificationDispatcher afterwards, whose workers
+ * mark them as dispatched or record their failure here.
+ */
+@Service
+public class NotificationOutboxService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NotificationOutboxService.class);
+
+    private final NotificationOutboxRepository outboxRepository;
+    private final NotificationOutboxProperties properties;
+
+    public NotificationOutboxService(NotificationOutboxRepository outboxRepository, NotificationOutboxProperties properties) {
+        this.outboxRepository = outboxRepository;
+        this.properties = properties;
+    }
+
+    /**
+     * Adds a notification to the outbox, unless one was already recorded with the same key.
+     *
+     * @param notification   the notification to send
+     * @param idempotencyKey identifies the event the notification is about, so that processing
+     *                       the same event twice does not notify twice
+     */
+    @Transactional
+    public void enqueue(Notification notification, String idempotencyKey) {
+        enqueueAll(Map.of(idempotencyKey, notification));
+    }
+
+    /**
+     * Adds several notifications to the outbox with a single lookup of the keys already recorded.
+     *
+     * @param notificationsByKey the notifications to send, by idempotency key
+     */
+    @Transactional
+    public void enqueueAll(Map<String, Notification> notificationsByKey) {
+        if (notificationsByKey.isEmpty()) {
+            return;
+        }
+        Set<String> recordedKeys = outboxRepository.findExistingIdempotencyKeys(notificationsByKey.keySet());
+        List<NotificationOutboxEntry> entries = new ArrayList<>(notificationsByKey.size());
+        notificationsByKey.forEach((key, notification) -> {
+            if (recordedKeys.contains(key)) {
+                LOGGER.info("Notification {} already recorded, skipping", key);
+            } else {
+                entries.add(NotificationOutboxEntry.of(notification, key));
+            }
+        });
+        outboxRepository.saveAll(entries);
+    }
+
+    /**
+     * Marks entries as dispatched, they are no longer relayed and are purged after the retention period.
+     */
+    @Transactional
+    public void markDispatched(Collection<Long> entryIds) {
+        if (!entryIds.isEmpty()) {
+            outboxRepository.markDispatched(entryIds, Instant.now());
+        }
+    }
+
+    /**
+     * Records a failed attempt to send entries. An entry is retried with an exponential backoff
+     * and skipped until then, so it does not hold back the entries behind it; after too many
+     * failures it is dead-lettered and kept, undispatched, for someone to look at.
+     */
+    @Transactional
+    public void recordFailures(Collection<Long> entryIds) {
+        if (entryIds.isEmpty()) {
+            return;
+        }
+        Instant now = Instant.now();
+        // The entries are managed, their new state is flushed when the transaction commits
+        for (NotificationOutboxEntry entry : outboxRepository.findAllById(entryIds)) {
+            entry.setAttempts(entry.getAttempts() + 1);
+            if (entry.getAttempts() >= properties.getMaxAttempts()) {
+                entry.setDeadLetteredAt(now);
+                LOGGER.error("Notification {} could not be sent after {} attempts, giving up", entry.getIdempotencyKey(), entry.getAttempts());
+                continue;
+            }
+            Duration backoff = retryBackoff(entry.getAttempts());
+            entry.setNextAttemptAt(now.plus(backoff));
+            LOGGER.warn("Notification {} could not be sent, will retry in {}", entry.getIdempotencyKey(), backoff);
+        }
+    }
+
+    private Duration retryBackoff(int attempts) {
+        Duration backoff = properties.getRetryBackoff();
+        for (int i = 1; i < attempts && backoff.compareTo(properties.getMaxRetryBackoff()) < 0; i++) {
+            backoff = backoff.multipliedBy(2);
+        }
+        return backoff.compareTo(properties.getMaxRetryBackoff()) < 0 ? backoff : properties.getMaxRetryBackoff();
+    }
+}
@@ -0,0 +1,98 @@
+package com.nimbleways.springboilerplate.services.implementations;
+
+import com.nimbleways.springboilerplate.config.OptimisticRetryProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs product writes again when they lose an optimistic locking conflict, that is when the
+ * product changed between the read and the write. Every attempt must read what it writes, so it
+ * works on the current product; the waits between attempts grow exponentially, with jitter so
+ * the writers that conflicted do not meet again, up to a bounded number of attempts.
+ * Inside a transaction nothing is retried: the transaction is rolled back as a whole, so it is up
+ * to the code that started it to run it again.
+ */
+@Component
+public class OptimisticRetry {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(OptimisticRetry.class);
+
+    private final OptimisticRetryProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public OptimisticRetry(OptimisticRetryProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @param operation the name of the write, tagging its metrics
+     * @param attempt   reads and writes the products, each time it is run
+     * @return what the first attempt without conflict returned
+     * @throws E                                 what an attempt threw other than a conflict, not retried
+     * @throws OptimisticLockingFailureException if the last attempt still conflicted
+     */
+    public <T, E extends Exception> T run(String operation, Attempt<T, E> attempt) throws E {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return attempt.run();
+        }
+        long backoffNanos = properties.getInitialBackoff().toNanos();
+        for (int attempts = 1; ; attempts++) {
+            try {
+                return attempt.run();
+            } catch (OptimisticLockingFailureException e) {
+                counter("products.optimistic.conflicts", "Product writes that found the product changed since it was read", operation)
+                        .increment();
+                if (attempts >= properties.getMaxAttempts()) {
+                    LOGGER.warn("{} still conflicting after {} attempts, giving up", operation, attempts);
+                    counter("products.optimistic.exhausted", "Product writes given up after their last conflicting attempt", operation)
+                            .increment();
+                    throw e;
+                }
+                counter("products.optimistic.retries", "Product writes run again after a conflict", operation).increment();
+                if (!backOff(backoffNanos)) {
+                    throw e;
+                }
+                backoffNanos = Math.min(backoffNanos * 2, properties.getMaxBackoff().toNanos());
+            }
+        }
+    }
+
+    // Waits between half and all of the backoff, false if the thread was interrupted meanwhile
+    private static boolean backOff(long backoffNanos) {
+        if (backoffNanos <= 0) {
+            return true;
+        }
+        long waitNanos = backoffNanos / 2 + ThreadLocalRandom.current().nextLong(backoffNanos / 2 + 1);
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private Counter counter(String name, String description, String operation) {
+        return Counter.builder(name)
+                .description(description)
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+
+    /**
+     * One attempt of a write, which may throw checked exceptions of its own.
+     */
+    @FunctionalInterface
+    public interface Attempt<T, E extends Exception> {
+        T run() throws E;
+    }
+}
@@ -0,0 +1,193 @@
+package com.nimbleways.springboilerplate.services.implementations;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nimbleways.springboilerplate.config.OrderIdempotencyProperties;
+import com.nimbleways.springboilerplate.dto.product.ProcessOrderResponse;
+import com.nimbleways.springboilerplate.entities.Order;
+import com.nimbleways.springboilerplate.entities.ProcessedOrderRequest;
+import com.nimbleways.springboilerplate.repositories.ProcessedOrderRequestRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Remembers the processOrder requests already handled, so that a retried request returns the
+ * first response instead of taking the stock again. Responses are kept in a bounded in-memory
+ * cache expiring after orders.idempotency.time-to-live, backed by the processed_order_requests
+ * table so that deduplication survives a restart. A retry found in memory costs no database
+ * access. The batch endpoint records one key per order, the one processOrder uses without
+ * header. Hit, miss and eviction statistics are published under the cache name "orders.processed".
+ */
+@Component
+public class ProcessedOrderStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProcessedOrderStore.class);
+
+    public static final String CACHE_NAME = "orders.processed";
+
+    private final ProcessedOrderRequestRepository repository;
+    private final OrderIdempotencyProperties properties;
+    private final Cache<String, ProcessOrderResponse> cache;
+
+    public ProcessedOrderStore(ProcessedOrderRequestRepository repository, OrderIdempotencyProperties properties,
+                               MeterRegistry meterRegistry) {
+        this.repository = repository;
+        this.properties = properties;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTimeToLive())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * @return the response of a request handled with this key, looked up in memory only
+     */
+    public Optional<ProcessOrderResponse> findCached(String idempotencyKey) {
+        return Optional.ofNullable(cache.getIfPresent(idempotencyKey));
+    }
+
+    /**
+     * @return the response of a request handled with this key, looked up in memory then in the database
+     */
+    public Optional<ProcessOrderResponse> find(String idempotencyKey) {
+        ProcessOrderResponse cached = cache.getIfPresent(idempotencyKey);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        Optional<ProcessOrderResponse> stored = repository
+                .findByIdempotencyKeyAndProcessedAtAfter(idempotencyKey, Instant.now().minus(properties.getTimeToLive()))
+                .map(request -> new ProcessOrderResponse(request.getOrderId()));
+        stored.ifPresent(response -> cache.put(idempotencyKey, response));
+        return stored;
+    }
+
+    /**
+     * @return the responses of the requests handled with these keys, by key, looked up in memory
+     *         then in the database in a single query
+     */
+    public Map<String, ProcessOrderResponse> findAll(Collection<String> idempotencyKeys) {
+        Map<String, ProcessOrderResponse> found = new HashMap<>(cache.getAllPresent(idempotencyKeys));
+        List<String> missing = idempotencyKeys.stream().filter(key -> !found.containsKey(key)).toList();
+        if (!missing.isEmpty()) {
+            repository.findByIdempotencyKeyInAndProcessedAtAfter(missing, Instant.now().minus(properties.getTimeToLive()))
+                    .forEach(request -> {
+                        ProcessOrderResponse response = new ProcessOrderResponse(request.getOrderId());
+                        cache.put(request.getIdempotencyKey(), response);
+                        found.put(request.getIdempotencyKey(), response);
+                    });
+        }
+        return found;
+    }
+
+    /**
+     * Records the key, then runs the processing in the same transaction. The key is inserted
+     * first, so a concurrent request with the same key waits on it and fails once this one
+     * commits, and a key left by a request processed before a restart fails the insert.
+     *
+     * @param idempotencyKey identifies the request
+     * @param orderId        the order processed
+     * @param processing     processes the order
+     * @throws DataIntegrityViolationException if the key was already recorded, nothing is processed then
+     */
+    @Transactional
+    public void runOnce(String idempotencyKey, Long orderId, Runnable processing) {
+        // A key past its time to live may not be purged yet
+        repository.deleteExpired(idempotencyKey, Instant.now().minus(properties.getTimeToLive()));
+        repository.saveAndFlush(ProcessedOrderRequest.of(idempotencyKey, orderId));
+        processing.run();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache.put(idempotencyKey, new ProcessOrderResponse(orderId));
+            }
+        });
+    }
+
+    /**
+     * Records a key per order, then runs the processing of all the orders in the same transaction,
+     * as runOnce does for one order. The keys of the orders the processing skipped, because they do
+     * not exist, are deleted again before the commit.
+     *
+     * @param orderIdsByKey the orders to process, by idempotency key
+     * @param processing    processes the orders, returns the ones it processed
+     * @return the orders processed
+     * @throws DataIntegrityViolationException if a key was already recorded, nothing is processed then
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public <E extends Exception> List<Order> runOnceEach(Map<String, Long> orderIdsByKey, BatchProcessing<E> processing) throws E {
+        repository.deleteAllExpired(orderIdsByKey.keySet(), Instant.now().minus(properties.getTimeToLive()));
+        List<ProcessedOrderRequest> requests = new ArrayList<>(orderIdsByKey.size());
+        orderIdsByKey.forEach((key, orderId) -> requests.add(ProcessedOrderRequest.of(key, orderId)));
+        repository.saveAllAndFlush(requests);
+
+        List<Order> orders = processing.run();
+        Set<Long> processedIds = new HashSet<>();
+        orders.forEach(order -> processedIds.add(order.getId()));
+        Map<String, ProcessOrderResponse> responses = new HashMap<>();
+        List<String> skippedKeys = new ArrayList<>();
+        orderIdsByKey.forEach((key, orderId) -> {
+            if (processedIds.contains(orderId)) {
+                responses.put(key, new ProcessOrderResponse(orderId));
+            } else {
+                skippedKeys.add(key);
+            }
+        });
+        if (!skippedKeys.isEmpty()) {
+            repository.deleteAllByIdInBatch(skippedKeys);
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache.putAll(responses);
+            }
+        });
+        return orders;
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Deletes the keys older than their time to live.
+     *
+     * @return the number of keys deleted
+     */
+    @Transactional
+    @Scheduled(fixedDelayString = "${orders.idempotency.purge-interval-ms:3600000}")
+    public int purge() {
+        int purged = repository.deleteProcessedBefore(Instant.now().minus(properties.getTimeToLive()));
+        if (purged > 0) {
+            LOGGER.info("{} processed order requests purged", purged);
+        }
+        return purged;
+    }
+
+    /**
+     * Processes a batch of orders, which may throw checked exceptions of its own.
+     */
+    @FunctionalInterface
+    public interface BatchProcessing<E extends Exception> {
+        List<Order> run() throws E;
+    }
+}
@@ -0,0 +1,293 @@
+package com.nimbleways.springboilerplate.services.implementations;
+
+import com.nimbleways.springboilerplate.dto.product.ProductDateEvent;
+import com.nimbleways.springboilerplate.dto.product.ProductDates;
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.ProductDateEventType;
+import com.nimbleways.springboilerplate.enums.ProductType;
+import com.nimbleways.springboilerplate.repositories.ProductRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index of the expiry dates of the expirable products and of the season dates of the
+ * seasonal products, bucketed by day. It lists the products expiring or changing season within a
+ * range of days by reading the buckets of those days only, and keeps the products expired and out
+ * of season today. The index is loaded once at startup and updated product by product when they
+ * are created or updated; at midnight only the products whose dates fall on the days passed are
+ * reclassified. The rules are those of the ExpirableProductHandler and SeasonalProductHandler.
+ */
+@Component
+public class ProductAvailabilityIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProductAvailabilityIndex.class);
+
+    private static final Comparator<ProductDateEvent> EVENT_ORDER = Comparator.comparing(ProductDateEvent::date)
+            .thenComparing(ProductDateEvent::productId)
+            .thenComparing(ProductDateEvent::type);
+
+    private final ProductRepository productRepository;
+    private final Clock clock;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, ProductDates> datesById = new HashMap<>();
+    private final NavigableMap<LocalDate, Set<Long>> expiries = new TreeMap<>();
+    private final NavigableMap<LocalDate, Set<Long>> seasonStarts = new TreeMap<>();
+    private final NavigableMap<LocalDate, Set<Long>> seasonEnds = new TreeMap<>();
+
+    // Status of the indexed products on the current day
+    private final Set<Long> expired = new HashSet<>();
+    private final Set<Long> outOfSeason = new HashSet<>();
+
+    private volatile LocalDate today;
+
+    public ProductAvailabilityIndex(ProductRepository productRepository, Clock clock, MeterRegistry meterRegistry) {
+        this.productRepository = productRepository;
+        this.clock = clock;
+        this.today = LocalDate.now(clock);
+        Gauge.builder("products.expired", this, index -> index.expired().size())
+                .description("Number of expirable products past their expiry date")
+                .register(meterRegistry);
+        Gauge.builder("products.out-of-season", this, index -> index.outOfSeason().size())
+                .description("Number of seasonal products out of their season")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Loads the dates of every product, replacing the current content of the index.
+     */
+    @PostConstruct
+    public void rebuild() {
+        List<ProductDates> allDates = productRepository.findAllDates();
+        lock.writeLock().lock();
+        try {
+            today = LocalDate.now(clock);
+            datesById.clear();
+            expiries.clear();
+            seasonStarts.clear();
+            seasonEnds.clear();
+            expired.clear();
+            outOfSeason.clear();
+            allDates.forEach(this::add);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        LOGGER.info("Availability index loaded with the dates of {} products", allDates.size());
+    }
+
+    /**
+     * Indexes the current dates of a product, replacing those indexed before.
+     */
+    public void put(Product product) {
+        lock.writeLock().lock();
+        try {
+            remove(product.getId());
+            add(ProductDates.of(product));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void putAll(Collection<Product> products) {
+        lock.writeLock().lock();
+        try {
+            for (Product product : products) {
+                remove(product.getId());
+                add(ProductDates.of(product));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves the index to the current day, reclassifying only the products whose dates fall
+     * between the previous day and this one. Queries also roll the index forward when the day
+     * changed, this only saves the first query of the day from doing it.
+     */
+    @Scheduled(cron = "${products.availability-index.roll-cron:0 0 0 * * *}")
+    public void rollForward() {
+        LocalDate now = LocalDate.now(clock);
+        if (now.equals(today)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            LocalDate previous = today;
+            if (now.equals(previous)) {
+                // Rolled forward by another thread meanwhile
+                return;
+            }
+            if (now.isBefore(previous)) {
+                // The clock went back, every product is reclassified
+                today = now;
+                new ArrayList<>(datesById.values()).forEach(this::classify);
+                return;
+            }
+            Set<Long> changed = new HashSet<>();
+            collect(expiries, previous, now, changed);
+            collect(seasonStarts, previous, now, changed);
+            collect(seasonEnds, previous, now, changed);
+            today = now;
+            changed.forEach(productId -> classify(datesById.get(productId)));
+            LOGGER.info("Availability index rolled forward from {} to {}, {} products reclassified", previous, now, changed.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the expirable products expiring between the two days, both included, by date
+     */
+    public List<ProductDateEvent> expiringBetween(LocalDate from, LocalDate to) {
+        rollForward();
+        lock.readLock().lock();
+        try {
+            List<ProductDateEvent> events = new ArrayList<>();
+            addEvents(expiries, from, to, ProductDateEventType.EXPIRY, events);
+            events.sort(EVENT_ORDER);
+            return events;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the seasons of seasonal products starting or ending between the two days, both included, by date
+     */
+    public List<ProductDateEvent> seasonTransitionsBetween(LocalDate from, LocalDate to) {
+        rollForward();
+        lock.readLock().lock();
+        try {
+            List<ProductDateEvent> events = new ArrayList<>();
+            addEvents(seasonStarts, from, to, ProductDateEventType.SEASON_START, events);
+            addEvents(seasonEnds, from, to, ProductDateEventType.SEASON_END, events);
+            events.sort(EVENT_ORDER);
+            return events;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the IDs of the expirable products that can no longer be sold today
+     */
+    public List<Long> expired() {
+        return sorted(expired);
+    }
+
+    /**
+     * @return the IDs of the seasonal products that cannot be sold today
+     */
+    public List<Long> outOfSeason() {
+        return sorted(outOfSeason);
+    }
+
+    public LocalDate today() {
+        rollForward();
+        return today;
+    }
+
+    private List<Long> sorted(Set<Long> productIds) {
+        rollForward();
+        lock.readLock().lock();
+        try {
+            List<Long> sorted = new ArrayList<>(productIds);
+            sorted.sort(Comparator.naturalOrder());
+            return sorted;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void addEvents(NavigableMap<LocalDate, Set<Long>> buckets, LocalDate from, LocalDate to,
+                                  ProductDateEventType type, List<ProductDateEvent> events) {
+        if (from.isAfter(to)) {
+            return;
+        }
+        buckets.subMap(from, true, to, true)
+                .forEach((date, productIds) -> productIds.forEach(productId -> events.add(new ProductDateEvent(productId, type, date))));
+    }
+
+    private static void collect(NavigableMap<LocalDate, Set<Long>> buckets, LocalDate from, LocalDate to, Set<Long> productIds) {
+        buckets.subMap(from, true, to, true).values().forEach(productIds::addAll);
+    }
+
+    // Only the dates the handlers look at are indexed, the others do not decide anything
+    private void add(ProductDates dates) {
+        if (dates.id() == null) {
+            return;
+        }
+        if (dates.type() == ProductType.EXPIRABLE && dates.expiryDate() != null) {
+            bucket(expiries, dates.expiryDate()).add(dates.id());
+        } else if (dates.type() == ProductType.SEASONAL && dates.seasonStartDate() != null && dates.seasonEndDate() != null) {
+            bucket(seasonStarts, dates.seasonStartDate()).add(dates.id());
+            bucket(seasonEnds, dates.seasonEndDate()).add(dates.id());
+        } else {
+            return;
+        }
+        datesById.put(dates.id(), dates);
+        classify(dates);
+    }
+
+    private void remove(Long productId) {
+        ProductDates dates = datesById.remove(productId);
+        if (dates == null) {
+            return;
+        }
+        unbucket(expiries, dates.expiryDate(), productId);
+        unbucket(seasonStarts, dates.seasonStartDate(), productId);
+        unbucket(seasonEnds, dates.seasonEndDate(), productId);
+        expired.remove(productId);
+        outOfSeason.remove(productId);
+    }
+
+    private void classify(ProductDates dates) {
+        if (dates.type() == ProductType.EXPIRABLE) {
+            // Sold while the expiry date is after today
+            if (dates.expiryDate().isAfter(today)) {
+                expired.remove(dates.id());
+            } else {
+                expired.add(dates.id());
+            }
+        } else if (today.isAfter(dates.seasonStartDate()) && today.isBefore(dates.seasonEndDate())) {
+            outOfSeason.remove(dates.id());
+        } else {
+            outOfSeason.add(dates.id());
+        }
+    }
+
+    private static Set<Long> bucket(NavigableMap<LocalDate, Set<Long>> buckets, LocalDate date) {
+        return buckets.computeIfAbsent(date, day -> new HashSet<>());
+    }
+
+    private static void unbucket(NavigableMap<LocalDate, Set<Long>> buckets, LocalDate date, Long productId) {
+        if (date == null) {
+            return;
+        }
+        Set<Long> productIds = buckets.get(date);
+        if (productIds != null && productIds.remove(productId) && productIds.isEmpty()) {
+            buckets.remove(date);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.nimbleways.springboilerplate.services.implementations;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.nimbleways.springboilerplate.config.ProductCatalogCacheProperties;
+import com.nimbleways.springboilerplate.dto.product.ProductAttributes;
+import com.nimbleways.springboilerplate.entities.Product;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Bounded in-memory cache of the product attributes that rarely change (name, type, lead time,
+ * expiry and season dates). Stock is never cached, it stays authoritative in the database.
+ * Hit, miss and eviction statistics are published under the cache name "products.catalog".
+ */
+@Component
+public class ProductCatalogCache {
+
+    public static final String CACHE_NAME = "products.catalog";
+
+    private final Cache<Long, ProductAttributes> cache;
+
+    public ProductCatalogCache(ProductCatalogCacheProperties properties, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTimeToLive())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Returns the attributes of a product, loading them on a miss.
+     *
+     * @param productId the ID of the product
+     * @param loader    loads the attributes from the database, returns null if the product does not exist
+     * @return the attributes, or empty if the product does not exist
+     */
+    public Optional<ProductAttributes> get(Long productId, Function<Long, ProductAttributes> loader) {
+        return Optional.ofNullable(cache.get(productId, loader));
+    }
+
+    public void put(Product product) {
+        cache.put(product.getId(), ProductAttributes.of(product));
+    }
+
+    public void invalidate(Long productId) {
+        cache.invalidate(productId);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
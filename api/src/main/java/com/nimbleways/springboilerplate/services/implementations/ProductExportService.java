@@ -0,0 +1,198 @@
+package com.nimbleways.springboilerplate.services.implementations;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.nimbleways.springboilerplate.config.ProductExportProperties;
+import com.nimbleways.springboilerplate.dto.product.ProductDTO;
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.ProductExportFormat;
+import com.nimbleways.springboilerplate.enums.ProductType;
+import com.nimbleways.springboilerplate.mappers.ProductMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports the whole product catalog without loading it in memory. The products table is read
+ * through a forward-only, read-only JDBC cursor fetching fetchSize rows at a time, and each row
+ * is mapped through the ProductMapper and written out before the next one is read: no entity is
+ * managed, nothing is collected, so memory use does not depend on the size of the catalog.
+ * The cursor is read in a read-only transaction, which PostgreSQL requires to honour the fetch size.
+ */
+@Service
+public class ProductExportService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProductExportService.class);
+
+    private static final String SELECT_PRODUCTS = "select id, lead_time, available, type, name, expiry_date,"
+            + " season_start_date, season_end_date from products order by id";
+
+    private static final String CSV_HEADER = "id,leadTime,available,type,name,expiryDate,seasonStartDate,seasonEndDate";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductMapper productMapper;
+    private final ObjectWriter productWriter;
+    private final ObjectMapper objectMapper;
+    private final ProductExportProperties properties;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public ProductExportService(JdbcTemplate jdbcTemplate, ProductMapper productMapper, ObjectMapper objectMapper,
+                                ProductExportProperties properties, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.productMapper = productMapper;
+        this.objectMapper = objectMapper;
+        // The buffers are flushed once the export is over, not after every product
+        this.productWriter = objectMapper.writerFor(ProductDTO.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.properties = properties;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Writes every product, in ID order, to the given stream. The stream is not closed.
+     *
+     * @param format the format of the products written
+     * @param gzip   whether to compress what is written with gzip
+     * @param out    where to write the products
+     * @return the number of products exported
+     */
+    public long export(ProductExportFormat format, boolean gzip, OutputStream out) throws IOException {
+        OutputStream buffered = gzip
+                ? new GZIPOutputStream(new NonClosingOutputStream(out), properties.getBufferSize())
+                : new BufferedOutputStream(new NonClosingOutputStream(out), properties.getBufferSize());
+        long exported;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(buffered, StandardCharsets.UTF_8), properties.getBufferSize())) {
+            exported = switch (format) {
+                case NDJSON -> exportNdjson(writer);
+                case CSV -> exportCsv(writer);
+            };
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        LOGGER.info("Exported {} products in {} format", exported, format);
+        return exported;
+    }
+
+    private long exportNdjson(Writer writer) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(writer)) {
+            // Lines are separated by the newlines written below, not by the default root separator
+            generator.setRootValueSeparator(null);
+            return forEachProduct(product -> {
+                productWriter.writeValue(generator, product);
+                generator.writeRaw('\n');
+            });
+        }
+    }
+
+    private long exportCsv(Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        return forEachProduct(product -> {
+            writer.write(String.valueOf(product.getId()));
+            writer.write(',');
+            writer.write(csv(product.getLeadTime()));
+            writer.write(',');
+            writer.write(csv(product.getAvailable()));
+            writer.write(',');
+            writer.write(csv(product.getType()));
+            writer.write(',');
+            writer.write(csv(product.getName()));
+            writer.write(',');
+            writer.write(csv(product.getExpiryDate()));
+            writer.write(',');
+            writer.write(csv(product.getSeasonStartDate()));
+            writer.write(',');
+            writer.write(csv(product.getSeasonEndDate()));
+            writer.write('\n');
+        });
+    }
+
+    private long forEachProduct(ProductConsumer consumer) {
+        long[] count = {0};
+        readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(SELECT_PRODUCTS,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(properties.getFetchSize());
+            return statement;
+        }, (RowCallbackHandler) rs -> {
+            try {
+                consumer.accept(productMapper.toDTO(toProduct(rs)));
+            } catch (IOException e) {
+                // Stops the cursor, the client went away or the stream is broken
+                throw new UncheckedIOException(e);
+            }
+            count[0]++;
+        }));
+        return count[0];
+    }
+
+    // The type column holds the ordinal of the ProductType, as mapped by Hibernate
+    private static Product toProduct(ResultSet rs) throws SQLException {
+        Integer type = rs.getObject("type", Integer.class);
+        return new Product(
+                rs.getLong("id"),
+                rs.getObject("lead_time", Integer.class),
+                rs.getObject("available", Integer.class),
+                type == null ? null : ProductType.values()[type],
+                rs.getString("name"),
+                rs.getObject("expiry_date", LocalDate.class),
+                rs.getObject("season_start_date", LocalDate.class),
+                rs.getObject("season_end_date", LocalDate.class));
+    }
+
+    // Quoted when it holds a separator, a quote or a line break, with its quotes doubled
+    private static String csv(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+
+    @FunctionalInterface
+    private interface ProductConsumer {
+        void accept(ProductDTO product) throws IOException;
+    }
+
+    // Lets the writers be closed, finishing the gzip stream, while the caller keeps its stream open
+    private static final class NonClosingOutputStream extends FilterOutputStream {
+
+        NonClosingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.nimbleways.springboilerplate.services.implementations;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nimbleways.springboilerplate.config.ProductImportProperties;
+import com.nimbleways.springboilerplate.dto.product.BulkImportError;
+import com.nimbleways.springboilerplate.dto.product.BulkImportReport;
+import com.nimbleways.springboilerplate.dto.product.ProductDTO;
+import com.nimbleways.springboilerplate.dto.product.ProductPatch;
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.mappers.ProductMapper;
+import com.nimbleways.springboilerplate.repositories.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Imports products from a JSON array or an NDJSON stream without holding the upload in memory.
+ * Rows are parsed one at a time, mapped through the ProductMapper and inserted in chunks, each
+ * chunk in its own transaction with JDBC batch inserts. The persistence context is cleared after
+ * every chunk so memory use does not depend on the size of the upload.
+ * A row without the dates its type requires is rejected, as a patch removing them would be.
+ */
+@Service
+public class ProductImportService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProductImportService.class);
+
+    private final ProductRepository productRepository;
+    private final ProductMapper productMapper;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductImportProperties properties;
+    private final ProductAvailabilityIndex productAvailabilityIndex;
+    private final ProductNameIndex productNameIndex;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ProductImportService(ProductRepository productRepository, ProductMapper productMapper, ObjectMapper objectMapper,
+                                TransactionTemplate transactionTemplate, ProductImportProperties properties,
+                                ProductAvailabilityIndex productAvailabilityIndex, ProductNameIndex productNameIndex) {
+        this.productRepository = productRepository;
+        this.productMapper = productMapper;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.productAvailabilityIndex = productAvailabilityIndex;
+        this.productNameIndex = productNameIndex;
+    }
+
+    /**
+     * Imports the products of a JSON array, e.g. [{"name": "USB Cable", ...}, ...]
+     * A row that cannot be mapped to a product is rejected, a syntax error stops the import and is
+     * reported as the reason it was aborted, the rows before it being imported.
+     */
+    public BulkImportReport importJsonArray(InputStream body) {
+        ImportRun run = new ImportRun();
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Expected a JSON array of products");
+            }
+            long row = 0;
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new IllegalArgumentException("Unexpected end of the JSON array after row " + row);
+                }
+                row++;
+                JsonNode node = objectMapper.readTree(parser);
+                try {
+                    run.add(row, objectMapper.treeToValue(node, ProductDTO.class));
+                } catch (JsonProcessingException e) {
+                    run.reject(row, e.getOriginalMessage());
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            run.abort(e);
+        }
+        return run.finish();
+    }
+
+    /**
+     * Imports newline-delimited JSON, one product per line. Blank lines are ignored and
+     * a malformed line only rejects that row. A body that cannot be read to the end is reported
+     * as the reason the import was aborted, the rows before it being imported.
+     */
+    public BulkImportReport importNdjson(InputStream body) {
+        ImportRun run = new ImportRun();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8))) {
+            long row = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                row++;
+                try {
+                    run.add(row, objectMapper.readValue(line, ProductDTO.class));
+                } catch (JsonProcessingException e) {
+                    run.reject(row, e.getOriginalMessage());
+                }
+            }
+        } catch (IOException e) {
+            run.abort(e);
+        }
+        return run.finish();
+    }
+
+    private void insertChunk(List<Product> chunk) {
+        transactionTemplate.executeWithoutResult(status -> {
+            productRepository.saveAll(chunk);
+            entityManager.flush();
+            entityManager.clear();
+        });
+        productAvailabilityIndex.putAll(chunk);
+        productNameIndex.putAll(chunk);
+    }
+
+    private static String validate(ProductDTO dto) {
+        if (dto.getName() == null || dto.getName().isBlank()) {
+            return "name is required";
+        }
+        if (dto.getType() == null) {
+            return "type is required";
+        }
+        if (dto.getAvailable() != null && dto.getAvailable() < 0) {
+            return "available must not be negative";
+        }
+        if (dto.getLeadTime() != null && dto.getLeadTime() < 0) {
+            return "leadTime must not be negative";
+        }
+        return null;
+    }
+
+    // Accumulates the rows of one import into chunks and keeps the counters of the report
+    private final class ImportRun {
+        private final List<Product> chunk = new ArrayList<>(properties.getChunkSize());
+        private final List<Long> chunkRows = new ArrayList<>(properties.getChunkSize());
+        private final List<BulkImportError> errors = new ArrayList<>();
+        private long received;
+        private long imported;
+        private long rejected;
+        private String aborted;
+
+        void add(long row, ProductDTO dto) {
+            received++;
+            String error = validate(dto);
+            if (error != null) {
+                recordError(row, error);
+                return;
+            }
+            dto.setId(null);
+            Product product = productMapper.toEntity(dto);
+            try {
+                ProductPatch.checkRequiredDates(product);
+            } catch (IllegalArgumentException e) {
+                recordError(row, e.getMessage());
+                return;
+            }
+            chunk.add(product);
+            chunkRows.add(row);
+            if (chunk.size() >= properties.getChunkSize()) {
+                flush();
+            }
+        }
+
+        void reject(long row, String message) {
+            received++;
+            recordError(row, message);
+        }
+
+        void abort(Exception e) {
+            aborted = "Import stopped after row " + received + ": "
+                    + (e instanceof JsonProcessingException ? ((JsonProcessingException) e).getOriginalMessage() : e.getMessage());
+        }
+
+        private void recordError(long row, String message) {
+            rejected++;
+            if (errors.size() < properties.getMaxReportedErrors()) {
+                errors.add(new BulkImportError(row, message));
+            }
+        }
+
+        private void flush() {
+            if (chunk.isEmpty()) {
+                return;
+            }
+            try {
+                insertChunk(chunk);
+                imported += chunk.size();
+            } catch (DataAccessException e) {
+                LOGGER.error("Failed to insert products of rows {} to {}", chunkRows.get(0), chunkRows.get(chunkRows.size() - 1), e);
+                for (Long row : chunkRows) {
+                    recordError(row, "insert failed: " + e.getMostSpecificCause().getMessage());
+                }
+            }
+            chunk.clear();
+            chunkRows.clear();
+        }
+
+        BulkImportReport finish() {
+            flush();
+            if (aborted != null) {
+                LOGGER.error("Bulk import aborted: {}", aborted);
+            }
+            LOGGER.info("Bulk import finished: {} rows received, {} imported, {} rejected", received, imported, rejected);
+            return new BulkImportReport(received, imported, rejected, List.copyOf(errors), aborted);
+        }
+    }
+}
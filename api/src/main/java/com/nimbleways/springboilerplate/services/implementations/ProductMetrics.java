@@ -0,0 +1,167 @@
+package com.nimbleways.springboilerplate.services.implementations;
+
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.ProductOutcome;
+import com.nimbleways.springboilerplate.enums.ProductType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters of the order-processing hot path: how long orders take, which outcome every ordered
+ * product gets and how long applying it takes, and which products cause delay notifications.
+ * The meters recorded for every ordered product or request are created upfront so recording them
+ * does not allocate; the only exception are the delay counters, one per delayed product.
+ */
+@Component
+public class ProductMetrics {
+
+    public static final String PRODUCT_DELAYS = "products.delayed";
+    public static final String PRODUCT_TAG = "product";
+
+    private static final String UNKNOWN_TYPE = "UNKNOWN";
+
+    private static final List<String> PROCESS_ORDER_RESULTS = List.of("processed", "not_found", "conflict", "failed",
+            "key_reused", "replayed");
+    private static final List<String> PROCESS_ORDERS_RESULTS = List.of("batched", "sequential");
+    private static final List<String> RESERVATION_RESULTS = List.of("held", "rejected", "committed", "released", "expired");
+
+    private final MeterRegistry meterRegistry;
+    private final Map<ProductType, Map<ProductOutcome, Counter>> outcomeCounters = new EnumMap<>(ProductType.class);
+    private final Map<ProductOutcome, Counter> untypedOutcomeCounters = new EnumMap<>(ProductOutcome.class);
+    private final Map<ProductOutcome, Timer> outcomeTimers = new EnumMap<>(ProductOutcome.class);
+    private final Counter stockRanOutCounter;
+    private final Map<String, Timer> processOrderTimers = new HashMap<>();
+    private final Map<String, Timer> processOrdersTimers = new HashMap<>();
+    private final Map<String, Counter> processOrdersCounters = new HashMap<>();
+    private final Map<String, Counter> reservationCounters = new HashMap<>();
+
+    public ProductMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (ProductType type : ProductType.values()) {
+            outcomeCounters.put(type, outcomeCounters(type.name()));
+        }
+        untypedOutcomeCounters.putAll(outcomeCounters(UNKNOWN_TYPE));
+        for (ProductOutcome outcome : ProductOutcome.values()) {
+            outcomeTimers.put(outcome, Timer.builder("products.outcome.latency")
+                    .description("Time taken to apply the outcome of an ordered product, stock update included")
+                    .tag("outcome", outcome.name())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+        this.stockRanOutCounter = Counter.builder("products.stock.ran.out")
+                .description("Products resolved as sold whose stock was taken by a concurrent order")
+                .register(meterRegistry);
+        for (String result : PROCESS_ORDER_RESULTS) {
+            processOrderTimers.put(result, Timer.builder("orders.process")
+                    .description("Time taken to process an order")
+                    .tag("result", result)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+        for (String result : PROCESS_ORDERS_RESULTS) {
+            processOrdersTimers.put(result, Timer.builder("orders.process.batch")
+                    .description("Time taken to process a batch of orders")
+                    .tag("result", result)
+                    .register(meterRegistry));
+            processOrdersCounters.put(result, Counter.builder("orders.process.batch.orders")
+                    .description("Orders processed through the batch endpoint")
+                    .tag("result", result)
+                    .register(meterRegistry));
+        }
+        for (String result : RESERVATION_RESULTS) {
+            reservationCounters.put(result, Counter.builder("orders.reservations")
+                    .description("Stock reservations by the change they went through")
+                    .tag("result", result)
+                    .register(meterRegistry));
+        }
+    }
+
+    private Map<ProductOutcome, Counter> outcomeCounters(String type) {
+        Map<ProductOutcome, Counter> counters = new EnumMap<>(ProductOutcome.class);
+        for (ProductOutcome outcome : ProductOutcome.values()) {
+            counters.put(outcome, Counter.builder("products.outcomes")
+                    .description("Ordered products by product type and outcome")
+                    .tag("type", type)
+                    .tag("outcome", outcome.name())
+                    .register(meterRegistry));
+        }
+        return counters;
+    }
+
+    /**
+     * Records the outcome applied to an ordered product.
+     *
+     * @param elapsedNanos time taken to apply it
+     */
+    public void recordOutcome(Product p, ProductOutcome outcome, long elapsedNanos) {
+        counter(p, outcome).increment();
+        outcomeTimers.get(outcome).record(elapsedNanos, TimeUnit.NANOSECONDS);
+        if (outcome == ProductOutcome.DELAYED) {
+            meterRegistry.counter(PRODUCT_DELAYS, PRODUCT_TAG, String.valueOf(p.getId())).increment();
+        }
+    }
+
+    /**
+     * Records units sold together, as done when several orders are processed in one pass.
+     */
+    public void recordSold(Product p, int units) {
+        counter(p, ProductOutcome.SOLD).increment(units);
+    }
+
+    public void recordStockRanOut() {
+        stockRanOutCounter.increment();
+    }
+
+    /**
+     * Records the processing of an order by the API.
+     *
+     * @param result     processed, not_found or failed
+     * @param startNanos System.nanoTime() when the request started
+     */
+    public void recordProcessOrder(String result, long startNanos) {
+        meter(processOrderTimers, result).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the processing of several orders in one request.
+     *
+     * @param result     batched, or sequential when the batch fell back to processing the orders one by one
+     * @param orders     number of orders processed
+     * @param startNanos System.nanoTime() when the request started
+     */
+    public void recordProcessOrders(String result, int orders, long startNanos) {
+        meter(processOrdersTimers, result).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        meter(processOrdersCounters, result).increment(orders);
+    }
+
+    /**
+     * Records a change of the stock reservations.
+     *
+     * @param result held, rejected, committed, released or expired
+     * @param count  number of reservations concerned
+     */
+    public void recordReservations(String result, int count) {
+        meter(reservationCounters, result).increment(count);
+    }
+
+    private static <M> M meter(Map<String, M> meters, String result) {
+        M meter = meters.get(result);
+        if (meter == null) {
+            throw new IllegalArgumentException("No meter for the result " + result);
+        }
+        return meter;
+    }
+
+    private Counter counter(Product p, ProductOutcome outcome) {
+        Map<ProductOutcome, Counter> counters = p.getType() == null ? untypedOutcomeCounters : outcomeCounters.get(p.getType());
+        return counters.get(outcome);
+    }
+}
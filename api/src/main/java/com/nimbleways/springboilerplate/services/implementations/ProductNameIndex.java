@@ -0,0 +1,167 @@
+package com.nimbleways.springboilerplate.services.implementations;
+
+import com.nimbleways.springboilerplate.config.ProductNameIndexProperties;
+import com.nimbleways.springboilerplate.dto.product.ProductName;
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.repositories.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory index of the product names, enabled with products.name-index.enabled. Names are kept
+ * upper-cased in a sorted map, so a case-insensitive exact lookup is one map access and a prefix
+ * lookup reads the sub-map of the names starting with the prefix, never the whole catalog.
+ * The index is loaded at startup and updated product by product when they are created or updated.
+ */
+@Component
+public class ProductNameIndex {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProductNameIndex.class);
+
+    private final ProductNameIndexProperties properties;
+    private final ProductRepository productRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Upper-cased name to the IDs of the products bearing it
+    private final NavigableMap<String, TreeSet<Long>> idsByName = new TreeMap<>();
+    private final Map<Long, String> namesById = new HashMap<>();
+
+    public ProductNameIndex(ProductNameIndexProperties properties, ProductRepository productRepository) {
+        this.properties = properties;
+        this.productRepository = productRepository;
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Loads the names of every product, replacing the current content of the index.
+     */
+    @PostConstruct
+    public void rebuild() {
+        if (!isEnabled()) {
+            return;
+        }
+        List<ProductName> names = productRepository.findAllNames();
+        lock.writeLock().lock();
+        try {
+            idsByName.clear();
+            namesById.clear();
+            names.forEach(name -> add(name.id(), name.name()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        LOGGER.info("Name index loaded with {} products", names.size());
+    }
+
+    /**
+     * Indexes the current name of a product, replacing the one indexed before.
+     */
+    public void put(Product product) {
+        putAll(List.of(product));
+    }
+
+    public void putAll(Collection<Product> products) {
+        if (!isEnabled()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (Product product : products) {
+                remove(product.getId());
+                add(product.getId(), product.getName());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return the ID of the first product bearing this name, whatever its case
+     */
+    public Optional<Long> findIdByName(String name) {
+        requireEnabled();
+        lock.readLock().lock();
+        try {
+            TreeSet<Long> ids = idsByName.get(normalize(name));
+            return ids == null ? Optional.empty() : Optional.of(ids.first());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param prefix the beginning of the names, whatever its case
+     * @param limit  the maximum number of names to return
+     * @return the products whose name starts with the prefix, in name then ID order
+     */
+    public List<ProductName> findStartingWith(String prefix, int limit) {
+        requireEnabled();
+        String from = normalize(prefix);
+        lock.readLock().lock();
+        try {
+            List<ProductName> names = new ArrayList<>(limit);
+            for (Map.Entry<String, TreeSet<Long>> entry : idsByName.tailMap(from, true).entrySet()) {
+                if (!entry.getKey().startsWith(from)) {
+                    break;
+                }
+                for (Long id : entry.getValue()) {
+                    if (names.size() == limit) {
+                        return names;
+                    }
+                    names.add(new ProductName(id, namesById.get(id)));
+                }
+            }
+            return names;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(Long id, String name) {
+        if (id == null || name == null) {
+            return;
+        }
+        idsByName.computeIfAbsent(normalize(name), key -> new TreeSet<>()).add(id);
+        namesById.put(id, name);
+    }
+
+    private void remove(Long id) {
+        String name = namesById.remove(id);
+        if (name == null) {
+            return;
+        }
+        String key = normalize(name);
+        TreeSet<Long> ids = idsByName.get(key);
+        if (ids != null && ids.remove(id) && ids.isEmpty()) {
+            idsByName.remove(key);
+        }
+    }
+
+    // Upper case, as the upper(name) queries used when the index is disabled
+    private static String normalize(String name) {
+        return name.toUpperCase(Locale.ROOT);
+    }
+
+    private void requireEnabled() {
+        if (!isEnabled()) {
+            throw new IllegalStateException("The product name index is disabled");
+        }
+    }
+}
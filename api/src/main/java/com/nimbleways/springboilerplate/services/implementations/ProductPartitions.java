@@ -0,0 +1,258 @@
+package com.nimbleways.springboilerplate.services.implementations;
+
+import com.nimbleways.springboilerplate.config.OrderPartitionProperties;
+import com.nimbleways.springboilerplate.repositories.ProductRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Takes the stock of the orders on single-writer partitions, enabled with orders.partitions.enabled.
+ * Every product is owned by the partition its ID hashes to, and only the thread of that partition
+ * writes its stock, so concurrent orders no longer wait on each other's row locks. A partition
+ * drains its queue in batches and applies the units asked for each product with one read and
+ * one decrement per batch. An order spanning several partitions asks each of them for its own
+ * products at once and waits for all the answers.
+ */
+@Component
+public class ProductPartitions {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProductPartitions.class);
+
+    private static final long POLL_TIMEOUT_MS = 200;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    private final OrderPartitionProperties properties;
+    private final ProductRepository productRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final List<BlockingQueue<StockOperation>> partitions;
+
+    private volatile boolean running;
+    private ExecutorService workers;
+
+    public ProductPartitions(OrderPartitionProperties properties, ProductRepository productRepository,
+                             PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.productRepository = productRepository;
+        // A partition commits its batch on its own, whatever transaction the orders run in
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        int count = properties.getCount() > 0 ? properties.getCount() : Runtime.getRuntime().availableProcessors();
+        this.partitions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            BlockingQueue<StockOperation> queue = new ArrayBlockingQueue<>(properties.getQueueCapacity());
+            partitions.add(queue);
+            Gauge.builder("orders.partitions.queue.depth", queue, BlockingQueue::size)
+                    .description("Number of stock operations waiting on a product partition")
+                    .tag("partition", String.valueOf(i))
+                    .register(meterRegistry);
+        }
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    public int getPartitionCount() {
+        return partitions.size();
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        running = true;
+        workers = Executors.newFixedThreadPool(partitions.size(), new CustomizableThreadFactory("order-partition-"));
+        for (BlockingQueue<StockOperation> partition : partitions) {
+            workers.execute(() -> runPartition(partition));
+        }
+        LOGGER.info("Order processing takes stock on {} product partitions", partitions.size());
+    }
+
+    /**
+     * Stops the partitions once their queues are drained.
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (workers != null) {
+            workers.shutdown();
+            try {
+                if (!workers.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    LOGGER.warn("Product partitions did not stop within {} seconds", SHUTDOWN_TIMEOUT_SECONDS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Takes one unit of each product, every partition taking its own products concurrently.
+     * Inside a transaction the units are given back if the transaction rolls back.
+     *
+     * @param productIds the products sold, each once
+     * @return the IDs of the products a unit was taken from, the others ran out of stock
+     */
+    public Set<Long> takeOneEach(Collection<Long> productIds) {
+        List<CompletableFuture<Set<Long>>> answers = new ArrayList<>();
+        groupByPartition(productIds).forEach((partition, ids) -> answers.add(submit(partition, ids, 1)));
+
+        try {
+            CompletableFuture.allOf(answers.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            // The partitions that did not fail took their units
+            answers.stream().filter(answer -> !answer.isCompletedExceptionally()).forEach(answer -> giveBack(answer.join()));
+            throw e;
+        }
+        Set<Long> taken = new HashSet<>();
+        answers.forEach(answer -> taken.addAll(answer.join()));
+        if (!taken.isEmpty() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        giveBack(taken);
+                    }
+                }
+            });
+        }
+        return taken;
+    }
+
+    /**
+     * Gives one unit of each product back, without waiting for the partitions to apply it.
+     */
+    public void giveBack(Collection<Long> productIds) {
+        groupByPartition(productIds).forEach((partition, ids) -> submit(partition, ids, -1));
+    }
+
+    private Map<Integer, List<Long>> groupByPartition(Collection<Long> productIds) {
+        Map<Integer, List<Long>> idsByPartition = new TreeMap<>();
+        for (Long productId : productIds) {
+            idsByPartition.computeIfAbsent(partitionOf(productId), partition -> new ArrayList<>()).add(productId);
+        }
+        return idsByPartition;
+    }
+
+    private int partitionOf(Long productId) {
+        return Math.floorMod(productId.hashCode(), partitions.size());
+    }
+
+    private CompletableFuture<Set<Long>> submit(int partition, List<Long> productIds, int units) {
+        if (!running) {
+            throw new IllegalStateException("The product partitions are not running");
+        }
+        StockOperation operation = new StockOperation(productIds, units, new CompletableFuture<>());
+        try {
+            partitions.get(partition).put(operation);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            operation.result().completeExceptionally(e);
+        }
+        return operation.result();
+    }
+
+    private void runPartition(BlockingQueue<StockOperation> partition) {
+        List<StockOperation> batch = new ArrayList<>(properties.getBatchSize());
+        while (running || !partition.isEmpty()) {
+            try {
+                StockOperation first = partition.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                partition.drainTo(batch, properties.getBatchSize() - 1);
+                apply(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Applies a batch in one transaction, then shares the units taken between the operations in
+     * the order they were submitted.
+     */
+    private void apply(List<StockOperation> batch) {
+        Map<Long, Integer> taken;
+        try {
+            taken = transactionTemplate.execute(status -> applyBatch(batch));
+        } catch (RuntimeException e) {
+            LOGGER.error("Product partition failed to apply {} stock operations", batch.size(), e);
+            batch.forEach(operation -> operation.result().completeExceptionally(e));
+            return;
+        }
+        for (StockOperation operation : batch) {
+            Set<Long> granted = new HashSet<>();
+            if (operation.units() > 0) {
+                for (Long productId : operation.productIds()) {
+                    if (taken.merge(productId, -1, Integer::sum) >= 0) {
+                        granted.add(productId);
+                    }
+                }
+            }
+            operation.result().complete(granted);
+        }
+    }
+
+    // Units given back are applied first, so they can be sold again in the same batch
+    private Map<Long, Integer> applyBatch(List<StockOperation> batch) {
+        Map<Long, Integer> wanted = new TreeMap<>();
+        Map<Long, Integer> returned = new TreeMap<>();
+        for (StockOperation operation : batch) {
+            Map<Long, Integer> units = operation.units() > 0 ? wanted : returned;
+            operation.productIds().forEach(productId -> units.merge(productId, Math.abs(operation.units()), Integer::sum));
+        }
+        returned.forEach(productRepository::incrementAvailableBy);
+
+        Map<Long, Integer> taken = new HashMap<>();
+        wanted.forEach((productId, units) -> {
+            int available = productRepository.findAvailableById(productId).orElse(0);
+            int granted = Math.min(units, available);
+            // Stock is also written outside the partitions, by product updates and reservations, so the decrement stays conditional
+            if (granted > 0 && productRepository.decrementAvailableBy(productId, granted) == 1) {
+                taken.put(productId, granted);
+            } else {
+                taken.put(productId, 0);
+            }
+        });
+        return taken;
+    }
+
+    /**
+     * @param units 1 to take one unit of each product, -1 to give one back
+     */
+    private record StockOperation(List<Long> productIds, int units, CompletableFuture<Set<Long>> result) {
+    }
+}
@@ -0,0 +1,188 @@
+package com.nimbleways.springboilerplate.services.implementations;
+
+import com.nimbleways.springboilerplate.config.ProductPatchProperties;
+import com.nimbleways.springboilerplate.dto.product.ProductPatch;
+import com.nimbleways.springboilerplate.dto.product.StockLevel;
+import com.nimbleways.springboilerplate.dto.product.StockUpdateReport;
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.exceptions.ProductNotFoundException;
+import com.nimbleways.springboilerplate.repositories.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Changes some attributes of products without rewriting the others. A patch is written in one
+ * UPDATE of the columns it names, without reading the product first; the product is only read
+ * back when the in-memory indexes hold one of the attributes changed. Stock levels are written in
+ * JDBC batches, one statement per product, a batch per transaction.
+ */
+@Service
+public class ProductPatchService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProductPatchService.class);
+
+    private static final String UPDATE_STOCK = "update products set available = ?, version = version + 1 where id = ?";
+
+    private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductPatchProperties properties;
+    private final ProductCatalogCache productCatalogCache;
+    private final ProductAvailabilityIndex productAvailabilityIndex;
+    private final ProductNameIndex productNameIndex;
+    private final StockLedger stockLedger;
+    private final OptimisticRetry optimisticRetry;
+
+    public ProductPatchService(ProductRepository productRepository, JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                               ProductPatchProperties properties, ProductCatalogCache productCatalogCache,
+                               ProductAvailabilityIndex productAvailabilityIndex, ProductNameIndex productNameIndex,
+                               StockLedger stockLedger, OptimisticRetry optimisticRetry) {
+        this.productRepository = productRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.productCatalogCache = productCatalogCache;
+        this.productAvailabilityIndex = productAvailabilityIndex;
+        this.productNameIndex = productNameIndex;
+        this.stockLedger = stockLedger;
+        this.optimisticRetry = optimisticRetry;
+    }
+
+    /**
+     * Applies a merge patch to a product.
+     *
+     * @param productId the ID of the product to change
+     * @param patch     the attributes to change
+     * @throws ProductNotFoundException          if there is no product with this ID
+     * @throws IllegalArgumentException          if the product would be left without the dates its type requires
+     * @throws OptimisticLockingFailureException if the product kept changing while its dates were checked
+     */
+    public void patchProduct(Long productId, ProductPatch patch) throws ProductNotFoundException {
+        LOGGER.info("Patching {} of product with ID: {}", patch.changes().keySet(), productId);
+        if (patch.isEmpty()) {
+            if (!productRepository.existsById(productId)) {
+                throw new ProductNotFoundException("Product not found");
+            }
+            return;
+        }
+        if (patch.changes(ProductPatch.AVAILABLE)) {
+            // The stock given replaces the current one, so the units the ledger took so far are written back first
+            stockLedger.overwrite(() -> {
+                write(productId, patch);
+                if (stockLedger.isEnabled()) {
+                    stockLedger.reset(productId, (Integer) patch.changes().get(ProductPatch.AVAILABLE));
+                }
+                return null;
+            });
+        } else {
+            write(productId, patch);
+        }
+
+        if (patch.changesAttributes()) {
+            productCatalogCache.invalidate(productId);
+        }
+        boolean dates = patch.changes(ProductPatch.TYPE, ProductPatch.EXPIRY_DATE, ProductPatch.SEASON_START_DATE,
+                ProductPatch.SEASON_END_DATE);
+        boolean name = patch.changes(ProductPatch.NAME) && productNameIndex.isEnabled();
+        if (dates || name) {
+            productRepository.findById(productId).ifPresent(product -> {
+                if (dates) {
+                    productAvailabilityIndex.put(product);
+                }
+                if (name) {
+                    productNameIndex.put(product);
+                }
+            });
+        }
+        LOGGER.info("Product with ID: {} patched successfully", productId);
+    }
+
+    private void write(Long productId, ProductPatch patch) throws ProductNotFoundException {
+        if (!patch.dependsOnCurrentDates()) {
+            if (productRepository.patch(productId, patch, null) == 0) {
+                throw notFound(productId);
+            }
+            return;
+        }
+        // The dates are checked against the product read, which must not change before it is written
+        optimisticRetry.run("patch-product", () -> {
+            Product current = productRepository.findById(productId).orElseThrow(() -> notFound(productId));
+            patch.checkDates(current);
+            if (productRepository.patch(productId, patch, current.getVersion()) == 0) {
+                throw new ObjectOptimisticLockingFailureException(Product.class, productId);
+            }
+            return null;
+        });
+    }
+
+    private static ProductNotFoundException notFound(Long productId) {
+        LOGGER.error("Product with ID {} not found for patch", productId);
+        return new ProductNotFoundException("Product not found");
+    }
+
+    /**
+     * Sets the stock of many products at once. Every level is checked before anything is written;
+     * the batches written before a failing one stay committed.
+     *
+     * @param levels the new stock of each product, the last one wins for a product given twice
+     * @return the number of levels written and the IDs of the products that do not exist
+     * @throws IllegalArgumentException if a level has no ID or no valid stock, or there are too many levels
+     */
+    public StockUpdateReport updateStock(List<StockLevel> levels) {
+        if (levels.size() > properties.getMaxStockLevels()) {
+            throw new IllegalArgumentException("At most " + properties.getMaxStockLevels() + " stock levels per request");
+        }
+        for (StockLevel level : levels) {
+            if (level == null || level.id() == null) {
+                throw new IllegalArgumentException("Every stock level needs a product id");
+            }
+            if (level.available() == null || level.available() < 0) {
+                throw new IllegalArgumentException("available of product " + level.id() + " must be a non-negative integer");
+            }
+        }
+
+        // Rows are locked in ID order, so concurrent batches wait for each other instead of deadlocking
+        List<StockLevel> ordered = new ArrayList<>(levels);
+        ordered.sort(Comparator.comparing(StockLevel::id));
+        List<Long> unknownIds = new ArrayList<>();
+        long updated = stockLedger.overwrite(() -> write(ordered, unknownIds));
+        LOGGER.info("Stock update finished: {} levels received, {} written, {} unknown products",
+                levels.size(), updated, unknownIds.size());
+        return new StockUpdateReport(levels.size(), updated, List.copyOf(unknownIds));
+    }
+
+    private long write(List<StockLevel> ordered, List<Long> unknownIds) {
+        long updated = 0;
+        for (int from = 0; from < ordered.size(); from += properties.getBatchSize()) {
+            List<StockLevel> batch = ordered.subList(from, Math.min(from + properties.getBatchSize(), ordered.size()));
+            int[][] counts = transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(UPDATE_STOCK, batch, batch.size(),
+                    (statement, level) -> {
+                        statement.setInt(1, level.available());
+                        statement.setLong(2, level.id());
+                    }));
+            int[] rows = counts[0];
+            for (int i = 0; i < batch.size(); i++) {
+                StockLevel level = batch.get(i);
+                // Some drivers only tell that the statement succeeded (SUCCESS_NO_INFO), not how many rows it changed
+                if (rows[i] == 0) {
+                    unknownIds.add(level.id());
+                    continue;
+                }
+                updated++;
+                if (stockLedger.isEnabled()) {
+                    stockLedger.reset(level.id(), level.available());
+                }
+            }
+        }
+        return updated;
+    }
+}
@@ -1,14 +1,48 @@
 package com.nimbleways.springboilerplate.services.implementations;
 
+import java.time.Clock;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Predicate;
 
+import com.nimbleways.springboilerplate.dto.notification.Notification;
+import com.nimbleways.springboilerplate.dto.product.ProductAttributes;
+import com.nimbleways.springboilerplate.dto.product.ProductCursor;
+import com.nimbleways.springboilerplate.dto.product.ProductDTO;
+import com.nimbleways.springboilerplate.dto.product.ProductFilter;
+import com.nimbleways.springboilerplate.dto.product.ProductName;
+import com.nimbleways.springboilerplate.dto.product.ProductPage;
+import com.nimbleways.springboilerplate.dto.product.ProductPatch;
+import com.nimbleways.springboilerplate.dto.product.ProductStock;
 import com.nimbleways.springboilerplate.entities.Order;
+import com.nimbleways.springboilerplate.enums.ProductOutcome;
+import com.nimbleways.springboilerplate.enums.ProductType;
 import com.nimbleways.springboilerplate.exceptions.OrderNotFoundException;
 import com.nimbleways.springboilerplate.exceptions.ProductNotFoundException;
+import com.nimbleways.springboilerplate.exceptions.StockConflictException;
 import com.nimbleways.springboilerplate.repositories.OrderRepository;
+import com.nimbleways.springboilerplate.services.ProductTypeHandler;
+import com.nimbleways.springboilerplate.tracing.SpanAttributes;
+import com.nimbleways.springboilerplate.tracing.Spans;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.nimbleways.springboilerplate.entities.Product;
 import com.nimbleways.springboilerplate.repositories.ProductRepository;
@@ -22,35 +56,245 @@ public class ProductService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ProductService.class);
 
+    // Rows are locked in ID order, so concurrent orders sharing products wait for each other instead of deadlocking
+    private static final Comparator<Product> LOCK_ORDER = Comparator.comparing(Product::getId,
+            Comparator.nullsLast(Comparator.naturalOrder()));
+
 
     ProductRepository productRepository;
 
-    NotificationService notificationService;
+    NotificationOutboxService notificationOutboxService;
 
     private OrderRepository orderRepository;
 
-    public ProductService(ProductRepository productRepository, NotificationService notificationService, OrderRepository orderRepository) {
+    private ProductCatalogCache productCatalogCache;
+
+    private ProductTypeHandlerRegistry productTypeHandlerRegistry;
+
+    private ProductMetrics productMetrics;
+
+    private Spans spans;
+
+    private StockLedger stockLedger;
+
+    private ProductPartitions productPartitions;
+
+    private ProductAvailabilityIndex productAvailabilityIndex;
+
+    private ProductNameIndex productNameIndex;
+
+    private Clock clock;
+
+    public ProductService(ProductRepository productRepository, NotificationOutboxService notificationOutboxService, OrderRepository orderRepository,
+                          ProductCatalogCache productCatalogCache, ProductTypeHandlerRegistry productTypeHandlerRegistry,
+                          ProductMetrics productMetrics, Spans spans, StockLedger stockLedger, ProductPartitions productPartitions,
+                          ProductAvailabilityIndex productAvailabilityIndex, ProductNameIndex productNameIndex, Clock clock) {
         this.productRepository = productRepository;
-        this.notificationService = notificationService;
+        this.notificationOutboxService = notificationOutboxService;
         this.orderRepository = orderRepository;
+        this.productCatalogCache = productCatalogCache;
+        this.productTypeHandlerRegistry = productTypeHandlerRegistry;
+        this.productMetrics = productMetrics;
+        this.spans = spans;
+        this.stockLedger = stockLedger;
+        this.productPartitions = productPartitions;
+        this.productAvailabilityIndex = productAvailabilityIndex;
+        this.productNameIndex = productNameIndex;
+        this.clock = clock;
     }
 
 
+    @Transactional
     public void notifyDelay(int leadTime, Product p) {
         p.setLeadTime(leadTime);
         productRepository.save(p);
-        notificationService.sendDelayNotification(leadTime, p.getName());
+        notificationOutboxService.enqueue(Notification.delay(leadTime, p.getName()), UUID.randomUUID().toString());
     }
 
 
+    /**
+     * Finds an order by ID. The items of the order are fetched in the same query so that
+     * processing the order does not trigger one lazy load per product.
+     *
+     * @param orderId the ID of the order
+     * @return the order with its items
+     * @throws OrderNotFoundException if no order exists with this ID
+     */
     public Order findOrderById(Long orderId) throws OrderNotFoundException {
-        return orderRepository.findById(orderId)
-                .orElseThrow(() -> {
-                    LOGGER.error("Order with ID {} not found", orderId);
-                    return new OrderNotFoundException("Order with ID " + orderId + " not found");
+        return spans.trace("ProductService.findOrderById", Attributes.of(SpanAttributes.ORDER_ID, orderId),
+                () -> orderRepository.findWithItemsById(orderId)
+                        .orElseThrow(() -> {
+                            LOGGER.error("Order with ID {} not found", orderId);
+                            return new OrderNotFoundException("Order with ID " + orderId + " not found");
+                        }));
+    }
+
+    /**
+     * Processes every item of an order as a single unit of work. The outcome of each item is
+     * resolved first, then sales are taken from stock with atomic decrements and the remaining
+     * stock and lead time changes are written back with a single batched save. The resulting
+     * notifications are recorded in the outbox in the same transaction.
+     *
+     * @param order the order whose items should be processed
+     */
+    @Transactional
+    public void processOrder(Order order) {
+        spans.trace("ProductService.processOrder",
+                Attributes.of(SpanAttributes.ORDER_ID, order.getId(), SpanAttributes.ITEM_COUNT, (long) order.getItems().size()),
+                () -> {
+                    applyOrder(order);
+                    return null;
                 });
     }
 
+    private void applyOrder(Order order) {
+        LocalDate today = LocalDate.now(clock);
+        Map<Product, ProductOutcome> outcomes = inLockOrder(productTypeHandlerRegistry.resolveAll(order.getItems(), today));
+        Predicate<Product> unitTaker = unitTaker(outcomes);
+
+        List<Product> changedProducts = new ArrayList<>(outcomes.size());
+        Map<String, Notification> notifications = new LinkedHashMap<>();
+        outcomes.forEach((p, outcome) -> {
+            if (applyAndRecord(p, p.getType(), outcome, today, order.getId(), notifications, unitTaker)) {
+                changedProducts.add(p);
+            }
+        });
+        productRepository.saveAll(changedProducts);
+        resetZeroedInLedger(changedProducts);
+        notificationOutboxService.enqueueAll(notifications);
+        LOGGER.info("Order {} processed, {} of {} products updated", order.getId(), changedProducts.size(), outcomes.size());
+    }
+
+    private static Map<Product, ProductOutcome> inLockOrder(Map<Product, ProductOutcome> outcomes) {
+        List<Map.Entry<Product, ProductOutcome>> entries = new ArrayList<>(outcomes.entrySet());
+        entries.sort(Map.Entry.comparingByKey(LOCK_ORDER));
+        Map<Product, ProductOutcome> ordered = new LinkedHashMap<>();
+        entries.forEach(entry -> ordered.put(entry.getKey(), entry.getValue()));
+        return ordered;
+    }
+
+    /**
+     * With the product partitions enabled, the units of all products sold are taken up front,
+     * each partition taking the units of its own products while the others do the same.
+     *
+     * @return tells whether a unit of a product sold could be taken
+     */
+    private Predicate<Product> unitTaker(Map<Product, ProductOutcome> outcomes) {
+        if (stockLedger.isEnabled() || !productPartitions.isEnabled()) {
+            return this::takeUnit;
+        }
+        List<Long> soldIds = new ArrayList<>();
+        outcomes.forEach((p, outcome) -> {
+            if (outcome == ProductOutcome.SOLD) {
+                soldIds.add(p.getId());
+            }
+        });
+        Set<Long> taken = soldIds.isEmpty() ? Set.of() : productPartitions.takeOneEach(soldIds);
+        return p -> taken.contains(p.getId());
+    }
+
+    /**
+     * Processes several orders in one pass. Every product referenced by the orders is loaded once
+     * and the rules are applied order after order against an in-memory stock count, so the outcome
+     * is the same as processing the orders one at a time in the given sequence. Units sold are then
+     * taken from stock with one conditional decrement per product, the other changes are written
+     * back with a single batched save and all notifications are recorded at once. A product both
+     * sold and written back has its units sold written with it, under its version check.
+     *
+     * @param orderIds the IDs of the orders to process, in processing order
+     * @return the processed orders, in processing order; unknown IDs are skipped
+     * @throws StockConflictException if the stock of a product changed since it was loaded, nothing is written then
+     */
+    @Transactional(rollbackFor = StockConflictException.class)
+    public List<Order> processOrders(List<Long> orderIds) throws StockConflictException {
+        return spans.trace("ProductService.processOrders", Attributes.of(SpanAttributes.ORDER_COUNT, (long) orderIds.size()),
+                () -> applyOrders(orderIds));
+    }
+
+    private List<Order> applyOrders(List<Long> orderIds) throws StockConflictException {
+        LocalDate today = LocalDate.now(clock);
+        Set<Long> uniqueOrderIds = new LinkedHashSet<>(orderIds);
+        Map<Long, Order> ordersById = new HashMap<>();
+        for (Order order : orderRepository.findAllWithItemsByIdIn(uniqueOrderIds)) {
+            ordersById.put(order.getId(), order);
+        }
+
+        // Resolve every item against the stock left by the orders before it
+        Map<Long, Integer> remainingStock = new HashMap<>();
+        Map<Product, Integer> soldUnits = new LinkedHashMap<>();
+        List<ResolvedItem> unsoldItems = new ArrayList<>();
+        List<Order> processedOrders = new ArrayList<>(ordersById.size());
+        for (Long orderId : uniqueOrderIds) {
+            Order order = ordersById.get(orderId);
+            if (order == null) {
+                LOGGER.warn("Order with ID {} not found, skipping it", orderId);
+                continue;
+            }
+            for (Product p : order.getItems()) {
+                int available = remainingStock.computeIfAbsent(p.getId(), id -> p.getAvailable());
+                ProductOutcome outcome = resolveOutcome(p, available, today);
+                if (outcome == ProductOutcome.SOLD) {
+                    remainingStock.put(p.getId(), available - 1);
+                    soldUnits.merge(p, 1, Integer::sum);
+                } else {
+                    if (outcome == ProductOutcome.OUT_OF_STOCK || outcome == ProductOutcome.EXPIRED) {
+                        remainingStock.put(p.getId(), 0);
+                    }
+                    unsoldItems.add(new ResolvedItem(orderId, p, outcome));
+                }
+            }
+            processedOrders.add(order);
+        }
+
+        // The decrement would increment the version of the rows saved below, failing their version check
+        Set<Long> rewrittenIds = new HashSet<>();
+        if (!stockLedger.isEnabled()) {
+            unsoldItems.stream().filter(item -> isRewritten(item.outcome())).forEach(item -> rewrittenIds.add(item.product().getId()));
+        }
+
+        // Take the units sold before any other change is flushed
+        List<Map.Entry<Product, Integer>> soldInLockOrder = new ArrayList<>(soldUnits.entrySet());
+        soldInLockOrder.sort(Map.Entry.comparingByKey(LOCK_ORDER));
+        for (Map.Entry<Product, Integer> sold : soldInLockOrder) {
+            if (!rewrittenIds.contains(sold.getKey().getId()) && !takeStock(sold.getKey().getId(), sold.getValue())) {
+                throw new StockConflictException("Stock of product " + sold.getKey().getId() + " changed while processing the orders");
+            }
+            productMetrics.recordSold(sold.getKey(), sold.getValue());
+        }
+
+        Set<Product> changedProducts = new LinkedHashSet<>();
+        Map<String, Notification> notifications = new LinkedHashMap<>();
+        for (ResolvedItem item : unsoldItems) {
+            if (applyAndRecord(item.product(), item.product().getType(), item.outcome(), today, item.orderId(), notifications,
+                    this::takeUnit)) {
+                changedProducts.add(item.product());
+            }
+        }
+        // The whole row is written back, so the stock must not be the one loaded before the decrements
+        changedProducts.forEach(p -> p.setAvailable(remainingStock.get(p.getId())));
+        productRepository.saveAll(changedProducts);
+        resetZeroedInLedger(changedProducts);
+        notificationOutboxService.enqueueAll(notifications);
+        LOGGER.info("{} orders processed in one batch, {} products sold and {} updated",
+                processedOrders.size(), soldUnits.size(), changedProducts.size());
+        return processedOrders;
+    }
+
+    /**
+     * Resolves what should happen to a product when it is ordered, without modifying it.
+     *
+     * @param p     the ordered product
+     * @param today the date the order is processed at
+     * @return the outcome to apply to the product
+     */
+    public ProductOutcome resolveOutcome(Product p, LocalDate today) {
+        return resolveOutcome(p, p.getAvailable(), today);
+    }
+
+    private ProductOutcome resolveOutcome(Product p, int available, LocalDate today) {
+        return productTypeHandlerRegistry.resolve(p, available, today);
+    }
+
     /**
      * Handles the processing of an expirable product. If the product is available and has not expired,
      * it decrements the stock and allows the sale. If the product has expired or is out of stock,
@@ -58,17 +302,10 @@ public class ProductService {
      *
      * @param p the expirable product to process
      */
+    @Transactional
     public void handleExpirableProduct(Product p) {
-        if (p.getAvailable() > 0 && p.getExpiryDate().isAfter(LocalDate.now())) {
-            // Product is available and not expired, decrement stock
-            p.setAvailable(p.getAvailable() - 1);
-            productRepository.save(p);
-        } else {
-            // Product is either out of stock or expired
-            notificationService.sendExpirationNotification(p.getName(), p.getExpiryDate());
-            p.setAvailable(0);  // Ensure availability is set to zero
-            productRepository.save(p);
-        }
+        LocalDate today = LocalDate.now(clock);
+        applyAndSave(p, ProductType.EXPIRABLE, today);
     }
 
     /**
@@ -79,29 +316,10 @@ public class ProductService {
      *
      * @param p the seasonal product to process
      */
+    @Transactional
     public void handleSeasonalProduct(Product p) {
-        LocalDate now = LocalDate.now();
-
-        // Check if the product is in season and available
-        if (now.isAfter(p.getSeasonStartDate()) && now.isBefore(p.getSeasonEndDate()) && p.getAvailable() > 0) {
-            p.setAvailable(p.getAvailable() - 1);
-            productRepository.save(p);
-        }
-        // Out of stock and lead time extends past the season
-        else if (now.plusDays(p.getLeadTime()).isAfter(p.getSeasonEndDate())) {
-            notificationService.sendOutOfStockNotification(p.getName());
-            p.setAvailable(0);
-            productRepository.save(p);
-        }
-        // Not yet in season
-        else if (p.getSeasonStartDate().isAfter(now)) {
-            notificationService.sendOutOfStockNotification(p.getName());
-        }
-        // Notify delay for other cases
-        else {
-            notifyDelay(p.getLeadTime(), p);
-        }
-
+        LocalDate today = LocalDate.now(clock);
+        applyAndSave(p, ProductType.SEASONAL, today);
     }
 
     /**
@@ -111,15 +329,111 @@ public class ProductService {
      *
      * @param p the normal product to process
      */
+    @Transactional
     public void handleNormalProduct(Product p) {
-        if (p.getAvailable() > 0) {
-            p.setAvailable(p.getAvailable() - 1);
+        LocalDate today = LocalDate.now(clock);
+        applyAndSave(p, ProductType.NORMAL, today);
+    }
+
+    // Applies the rules of the given type whatever the type of the product, as the handle methods always did
+    private void applyAndSave(Product p, ProductType type, LocalDate today) {
+        ProductOutcome outcome = productTypeHandlerRegistry.handlerFor(type).resolve(p, p.getAvailable(), today);
+        Map<String, Notification> notifications = new LinkedHashMap<>();
+        if (applyAndRecord(p, type, outcome, today, null, notifications, this::takeUnit)) {
             productRepository.save(p);
-        } else if (p.getLeadTime() > 0) {
-            notifyDelay(p.getLeadTime(), p);
+            resetZeroedInLedger(List.of(p));
+        }
+        notificationOutboxService.enqueueAll(notifications);
+    }
+
+    // Applies an outcome and records it in the metrics and in a span of its own
+    private boolean applyAndRecord(Product p, ProductType type, ProductOutcome outcome, LocalDate today, Long orderId,
+                                   Map<String, Notification> notifications, Predicate<Product> unitTaker) {
+        ProductOutcome applied = spans.trace("ProductService.applyOutcome", Spans.productAttributes(p), () -> {
+            long start = System.nanoTime();
+            ProductOutcome result = applyOutcome(p, type, outcome, today, orderId, notifications, unitTaker);
+            productMetrics.recordOutcome(p, result, System.nanoTime() - start);
+            Span.current().setAttribute(SpanAttributes.PRODUCT_OUTCOME, result.name());
+            return result;
+        });
+        return isRewritten(applied);
+    }
+
+    // The ledger would otherwise keep selling the units it holds in memory for the products written back without stock
+    private void resetZeroedInLedger(Collection<Product> written) {
+        if (stockLedger.isEnabled()) {
+            written.stream()
+                    .filter(p -> p.getAvailable() != null && p.getAvailable() == 0)
+                    .forEach(p -> stockLedger.resetAfterCommit(p.getId(), 0));
         }
     }
 
+    // Outcomes that modify the product, which then has to be written back
+    private static boolean isRewritten(ProductOutcome outcome) {
+        return outcome == ProductOutcome.DELAYED || outcome == ProductOutcome.OUT_OF_STOCK || outcome == ProductOutcome.EXPIRED;
+    }
+
+    /**
+     * Applies an outcome to the product and collects the matching notification. Sales are taken
+     * from stock with an atomic conditional decrement, so the entity itself is left untouched;
+     * if the stock ran out since the product was loaded, the item is handled as out of stock.
+     * The other outcomes are applied by the handler of the product type, the delayed, out-of-stock
+     * and expired products it modifies have to be written back.
+     *
+     * @param type          the type whose rules resolved the outcome
+     * @param orderId       the order being processed, used to build notification idempotency keys
+     * @param notifications the notifications to record, by idempotency key
+     * @param unitTaker     takes the unit of a product sold, false if the stock ran out
+     * @return the outcome actually applied, which differs from the given one when the stock ran out
+     */
+    private ProductOutcome applyOutcome(Product p, ProductType type, ProductOutcome outcome, LocalDate today, Long orderId,
+                                        Map<String, Notification> notifications, Predicate<Product> unitTaker) {
+        if (outcome == ProductOutcome.UNCHANGED) {
+            return outcome;
+        }
+        ProductTypeHandler handler = productTypeHandlerRegistry.handlerFor(type);
+        if (outcome == ProductOutcome.SOLD) {
+            if (unitTaker.test(p)) {
+                return outcome;
+            }
+            LOGGER.info("Product {} ran out of stock while processing the order", p.getId());
+            productMetrics.recordStockRanOut();
+            return applyOutcome(p, type, handler.resolve(p, 0, today), today, orderId, notifications, unitTaker);
+        }
+        Notification notification = handler.apply(p, outcome);
+        if (notification != null) {
+            notifications.put(notificationKey(orderId, p, outcome), notification);
+        }
+        return outcome;
+    }
+
+    // Takes one unit with an atomic conditional decrement, or from the stock ledger when it is enabled
+    private boolean takeUnit(Product p) {
+        if (stockLedger.isEnabled()) {
+            return stockLedger.take(p.getId(), 1);
+        }
+        return productRepository.decrementAvailable(p.getId()) == 1;
+    }
+
+    // Takes the units sold by a batch of orders, whatever their number
+    private boolean takeStock(Long productId, int quantity) {
+        if (stockLedger.isEnabled()) {
+            return stockLedger.take(productId, quantity);
+        }
+        return productRepository.decrementAvailableBy(productId, quantity) == 1;
+    }
+
+    private record ResolvedItem(Long orderId, Product product, ProductOutcome outcome) {
+    }
+
+    // Processing the same order twice yields the same keys, outside of an order every notification is unique
+    private static String notificationKey(Long orderId, Product p, ProductOutcome outcome) {
+        if (orderId == null) {
+            return UUID.randomUUID().toString();
+        }
+        return "order-" + orderId + "-product-" + p.getId() + "-" + outcome;
+    }
+
     /**
      * Creates a new product.
      *
@@ -129,34 +443,145 @@ public class ProductService {
     public Product createProduct(Product product) {
         LOGGER.info("Creating new product with name: {}", product.getName());
         Product createdProduct = productRepository.save(product);
+        productCatalogCache.put(createdProduct);
+        productAvailabilityIndex.put(createdProduct);
+        productNameIndex.put(createdProduct);
         LOGGER.info("Product created with ID: {}", createdProduct.getId());
         return createdProduct;
     }
 
     /**
-     * Updates an existing product by ID.
-     * If the product with the specified ID does not exist, an exception is thrown.
+     * Finds a product by ID. Its attributes are served from the catalog cache while its stock
+     * is always read from the database, or from the stock ledger when it is enabled.
      *
-     * @param productId      the ID of the product to update
-     * @param updatedProduct the product entity containing updated details
-     * @return the updated product entity
-     * @throws RuntimeException if the product with the specified ID is not found
+     * @param productId the ID of the product
+     * @return a detached product holding the cached attributes and the current stock
+     * @throws ProductNotFoundException if no product exists with this ID
      */
-    public Product updateProduct(Long productId, Product updatedProduct) throws ProductNotFoundException {
-        LOGGER.info("Updating product with ID: {}", productId);
-
-
-        Product product = productRepository.findById(productId)
+    public Product getProduct(Long productId) throws ProductNotFoundException {
+        ProductAttributes attributes = productCatalogCache.get(productId, id -> productRepository.findById(id)
+                        .map(ProductAttributes::of)
+                        .orElse(null))
+                .orElseThrow(() -> new ProductNotFoundException("Product not found"));
+        ProductStock stock = productRepository.findStockById(productId)
                 .orElseThrow(() -> {
-                    LOGGER.error("Product with ID {} not found for update", productId);
+                    productCatalogCache.invalidate(productId);
                     return new ProductNotFoundException("Product not found");
                 });
-        product.setName(updatedProduct.getName());
-        product.setAvailable(updatedProduct.getAvailable());
-        product.setExpiryDate(updatedProduct.getExpiryDate());
-        product.setLeadTime(updatedProduct.getLeadTime());
-        product.setType(updatedProduct.getType());
-        Product savedProduct = productRepository.save(product);
+        Integer available = stock.available();
+        if (stockLedger.isEnabled()) {
+            available = stockLedger.available(productId).orElse(available);
+        }
+        Product product = attributes.toProduct(available);
+        product.setVersion(stock.version());
+        return product;
+    }
+
+    /**
+     * Lists the products matching a filter, one page at a time, sorted by the date the filter
+     * bounds or else by ID. The stock listed is the one of the products table, which lags behind
+     * the stock ledger when it is enabled.
+     *
+     * @param filter the criteria the products must match
+     * @param after  the cursor returned with the previous page, null for the first page
+     * @param size   the maximum number of products in the page
+     * @return the page, with the cursor of the next one if more products match
+     * @throws IllegalArgumentException if the cursor was not returned with a page of this listing
+     */
+    public ProductPage listProducts(ProductFilter filter, String after, int size) {
+        ProductCursor cursor = after == null ? null : ProductCursor.parse(after);
+        if (cursor != null && filter.sortDate() != null && cursor.date() == null) {
+            throw new IllegalArgumentException("The cursor does not hold the " + filter.sortDate() + " the products are sorted by");
+        }
+        // One more product than asked tells whether there is a next page
+        List<ProductDTO> items = productRepository.search(filter, cursor, size + 1);
+        if (items.size() <= size) {
+            return new ProductPage(items, null);
+        }
+        items = items.subList(0, size);
+        return new ProductPage(items, ProductCursor.after(items.get(size - 1), filter.sortDate()).toString());
+    }
+
+    /**
+     * Finds a product by name, whatever its case. The name is resolved to an ID by the name
+     * index when it is enabled, the product is then read as by {@link #getProduct(Long)}.
+     *
+     * @param name the name of the product
+     * @return the product bearing this name, the one with the lowest ID if several do
+     * @throws ProductNotFoundException if no product bears this name
+     */
+    public Product getProductByName(String name) throws ProductNotFoundException {
+        if (!productNameIndex.isEnabled()) {
+            return productRepository.findFirstByNameIgnoreCaseOrderByIdAsc(name)
+                    .orElseThrow(() -> new ProductNotFoundException("Product not found"));
+        }
+        Long productId = productNameIndex.findIdByName(name)
+                .orElseThrow(() -> new ProductNotFoundException("Product not found"));
+        return getProduct(productId);
+    }
+
+    /**
+     * Suggests the products whose name starts with a prefix, whatever its case. Names are read
+     * from the name index when it is enabled, otherwise from the database indexes.
+     *
+     * @param prefix the beginning of the names
+     * @param limit  the maximum number of names to return
+     * @return the matching products, in name order
+     */
+    public List<ProductName> findProductNames(String prefix, int limit) {
+        if (productNameIndex.isEnabled()) {
+            return productNameIndex.findStartingWith(prefix, limit);
+        }
+        return productRepository.findNamesLike(likePrefix(prefix), PageRequest.of(0, limit));
+    }
+
+    // Upper-cased like the queried names, the wildcards typed are matched literally
+    private static String likePrefix(String prefix) {
+        return prefix.toUpperCase(Locale.ROOT)
+                .replace("!", "!!")
+                .replace("%", "!%")
+                .replace("_", "!_") + "%";
+    }
+
+    /**
+     * Updates an existing product by ID, provided it is still at the version the client read.
+     * Every attribute is replaced, so the product is not read: the whole product is written in one
+     * UPDATE checking the version. A product changed since, e.g. by an order, is left as it is and
+     * the client has to read it again, as its update would undo the change. With the stock ledger
+     * enabled, the units it took and had not written back yet also count as a change.
+     *
+     * @param productId       the ID of the product to update
+     * @param updatedProduct  the product entity containing updated details
+     * @param expectedVersion the version of the product the client read
+     * @return the updated product entity, at its new version
+     * @throws ProductNotFoundException if the product does not exist
+     * @throws ObjectOptimisticLockingFailureException if the product is no longer at the expected version
+     */
+    public Product updateProduct(Long productId, Product updatedProduct, long expectedVersion) throws ProductNotFoundException {
+        LOGGER.info("Updating product with ID: {} at version {}", productId, expectedVersion);
+        ProductPatch patch = ProductPatch.replacing(updatedProduct);
+
+        // The stock given replaces the current one, so the units the ledger took so far are written back first
+        stockLedger.overwrite(() -> {
+            if (productRepository.patch(productId, patch, expectedVersion) == 0) {
+                if (productRepository.findVersionById(productId).isEmpty()) {
+                    LOGGER.error("Product with ID {} not found for update", productId);
+                    throw new ProductNotFoundException("Product not found");
+                }
+                throw new ObjectOptimisticLockingFailureException(Product.class, productId);
+            }
+            if (stockLedger.isEnabled()) {
+                stockLedger.reset(productId, updatedProduct.getAvailable());
+            }
+            return null;
+        });
+        Product savedProduct = new Product(productId, updatedProduct.getLeadTime(), updatedProduct.getAvailable(),
+                updatedProduct.getType(), updatedProduct.getName(), updatedProduct.getExpiryDate(),
+                updatedProduct.getSeasonStartDate(), updatedProduct.getSeasonEndDate());
+        savedProduct.setVersion(expectedVersion + 1);
+        productCatalogCache.put(savedProduct);
+        productAvailabilityIndex.put(savedProduct);
+        productNameIndex.put(savedProduct);
         LOGGER.info("Product with ID: {} updated successfully", productId);
         return savedProduct;
     }
@@ -0,0 +1,83 @@
+package com.nimbleways.springboilerplate.services.implementations;
+
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.ProductOutcome;
+import com.nimbleways.springboilerplate.enums.ProductType;
+import com.nimbleways.springboilerplate.services.ProductTypeHandler;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the ProductTypeHandler of a product with an EnumMap lookup. Products without a
+ * handler are left unchanged.
+ */
+@Component
+public class ProductTypeHandlerRegistry {
+
+    private final Map<ProductType, ProductTypeHandler> handlers = new EnumMap<>(ProductType.class);
+
+    public ProductTypeHandlerRegistry(List<ProductTypeHandler> handlers) {
+        for (ProductTypeHandler handler : handlers) {
+            ProductTypeHandler previous = this.handlers.put(handler.type(), handler);
+            if (previous != null) {
+                throw new IllegalStateException("Both " + previous.getClass().getSimpleName() + " and "
+                        + handler.getClass().getSimpleName() + " handle " + handler.type() + " products");
+            }
+        }
+    }
+
+    /**
+     * @param type a product type
+     * @return the handler of the given type
+     * @throws IllegalArgumentException if no handler is registered for the type
+     */
+    public ProductTypeHandler handlerFor(ProductType type) {
+        ProductTypeHandler handler = handlers.get(type);
+        if (handler == null) {
+            throw new IllegalArgumentException("No handler for " + type + " products");
+        }
+        return handler;
+    }
+
+    /**
+     * Resolves what should happen to a product when it is ordered, without modifying it.
+     *
+     * @param p         the ordered product
+     * @param available the stock to consider
+     * @param today     the date the order is processed at
+     * @return the outcome to apply to the product, UNCHANGED if its type has no handler
+     */
+    public ProductOutcome resolve(Product p, int available, LocalDate today) {
+        ProductTypeHandler handler = handlers.get(p.getType());
+        return handler == null ? ProductOutcome.UNCHANGED : handler.resolve(p, available, today);
+    }
+
+    /**
+     * Resolves the outcome of every product of an order. The products are grouped by type and
+     * each handler resolves its whole group in one call.
+     *
+     * @param products the ordered products
+     * @param today    the date the order is processed at
+     * @return the outcome of every product, grouped by product type
+     */
+    public Map<Product, ProductOutcome> resolveAll(Collection<Product> products, LocalDate today) {
+        Map<ProductType, List<Product>> productsByType = new EnumMap<>(ProductType.class);
+        Map<Product, ProductOutcome> outcomes = new LinkedHashMap<>();
+        for (Product p : products) {
+            if (p.getType() != null && handlers.containsKey(p.getType())) {
+                productsByType.computeIfAbsent(p.getType(), type -> new ArrayList<>()).add(p);
+            } else {
+                outcomes.put(p, ProductOutcome.UNCHANGED);
+            }
+        }
+        productsByType.forEach((type, group) -> handlers.get(type).resolveAll(group, today, outcomes));
+        return outcomes;
+    }
+}
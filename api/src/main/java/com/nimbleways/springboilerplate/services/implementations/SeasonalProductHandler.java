@@ -0,0 +1,56 @@
+package com.nimbleways.springboilerplate.services.implementations;
+
+import com.nimbleways.springboilerplate.dto.notification.Notification;
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.ProductOutcome;
+import com.nimbleways.springboilerplate.enums.ProductType;
+import com.nimbleways.springboilerplate.services.ProductTypeHandler;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * A seasonal product is sold only during its season. Outside of it, or when it cannot be
+ * restocked before the season ends, it is reported as out of stock.
+ */
+@Component
+public class SeasonalProductHandler implements ProductTypeHandler {
+
+    @Override
+    public ProductType type() {
+        return ProductType.SEASONAL;
+    }
+
+    @Override
+    public ProductOutcome resolve(Product p, int available, LocalDate today) {
+        // Check if the product is in season and available
+        if (today.isAfter(p.getSeasonStartDate()) && today.isBefore(p.getSeasonEndDate()) && available > 0) {
+            return ProductOutcome.SOLD;
+        }
+        // Out of stock and lead time extends past the season
+        if (today.plusDays(p.getLeadTime()).isAfter(p.getSeasonEndDate())) {
+            return ProductOutcome.OUT_OF_STOCK;
+        }
+        // Not yet in season
+        if (p.getSeasonStartDate().isAfter(today)) {
+            return ProductOutcome.NOT_IN_SEASON;
+        }
+        // Notify delay for other cases
+        return ProductOutcome.DELAYED;
+    }
+
+    @Override
+    public Notification apply(Product p, ProductOutcome outcome) {
+        switch (outcome) {
+            case DELAYED:
+                return Notification.delay(p.getLeadTime(), p.getName());
+            case OUT_OF_STOCK:
+                p.setAvailable(0);
+                return Notification.outOfStock(p.getName());
+            case NOT_IN_SEASON:
+                return Notification.outOfStock(p.getName());
+            default:
+                throw new IllegalArgumentException("Seasonal products are never " + outcome);
+        }
+    }
+}
@@ -0,0 +1,480 @@
+package com.nimbleways.springboilerplate.services.implementations;
+
+import com.nimbleways.springboilerplate.config.StockLedgerProperties;
+import com.nimbleways.springboilerplate.entities.StockLedgerCheckpoint;
+import com.nimbleways.springboilerplate.repositories.ProductRepository;
+import com.nimbleways.springboilerplate.repositories.StockLedgerCheckpointRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Optional in-memory stock count for products sold in bursts, enabled with products.stock-ledger.enabled.
+ * Units are taken from memory under one of a fixed set of striped locks, so orders of different
+ * products do not wait for each other and orders of the same product no longer queue on its row.
+ * Every change is written to the StockLedgerJournal before it is acknowledged, the stripe being
+ * released while the journal writes the records of concurrent changes in one batch. The net
+ * change of every product is written back to the products table in one transaction, on a
+ * schedule or once enough units changed. The transaction also saves the last journal sequence
+ * written back, so on startup the journal records past it are replayed exactly once.
+ * While the ledger is enabled the stock in memory is authoritative; the products table lags
+ * behind by the units not written back yet and never shows less stock than there is.
+ */
+@Component
+public class StockLedger {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StockLedger.class);
+
+    private final StockLedgerProperties properties;
+    private final ProductRepository productRepository;
+    private final StockLedgerCheckpointRepository checkpointRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicLong unflushedUnits = new AtomicLong();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    // Incremented by every reset, so that a stock loaded before one is not installed after it
+    private final AtomicLong resets = new AtomicLong();
+
+    private StockLedgerJournal journal;
+    private ExecutorService flushExecutor;
+    private long checkpointedSequence;
+
+    public StockLedger(StockLedgerProperties properties, ProductRepository productRepository,
+                       StockLedgerCheckpointRepository checkpointRepository, PlatformTransactionManager transactionManager,
+                       MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.productRepository = productRepository;
+        this.checkpointRepository = checkpointRepository;
+        // Writing back must commit on its own, whatever transaction the caller runs in
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.stripes = new ReentrantLock[properties.getStripes()];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        Gauge.builder("products.stock-ledger.unflushed", unflushedUnits, AtomicLong::get)
+                .description("Units taken or given back in memory and not written back to the products table yet")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Opens the journal and writes back the changes it holds past the last checkpoint, then
+     * checks that no product was left with a negative stock.
+     */
+    @PostConstruct
+    public void start() throws IOException {
+        if (!isEnabled()) {
+            return;
+        }
+        journal = StockLedgerJournal.open(properties.getJournal(), properties.isSyncJournal(),
+                properties.getJournalCompactionSize().toBytes());
+        recover();
+        flushExecutor = Executors.newSingleThreadExecutor(new CustomizableThreadFactory("stock-ledger-flush-"));
+        LOGGER.info("Stock ledger started with {} stripes, journal {}", stripes.length, properties.getJournal());
+    }
+
+    /**
+     * Writes back what is left in memory and closes the journal.
+     */
+    @PreDestroy
+    public void stop() throws IOException {
+        if (journal == null) {
+            return;
+        }
+        flushExecutor.shutdown();
+        flushLock.lock();
+        try {
+            writeBackAll();
+        } finally {
+            flushLock.unlock();
+        }
+        journal.close();
+    }
+
+    /**
+     * Takes units from the stock of a product, only if enough stock is left. Inside a transaction
+     * the units are given back if the transaction rolls back.
+     *
+     * @return false if there is not enough stock or the product does not exist
+     */
+    public boolean take(Long productId, int quantity) {
+        Entry entry = entry(productId);
+        if (entry == null) {
+            return false;
+        }
+        ReentrantLock lock = stripe(productId);
+        long sequence;
+        lock.lock();
+        try {
+            if (entry.available < quantity) {
+                return false;
+            }
+            sequence = record(productId, entry, quantity);
+        } finally {
+            lock.unlock();
+        }
+        awaitJournaled(productId, entry, quantity, sequence);
+        requestFlushAboveThreshold();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        giveBack(productId, quantity);
+                    }
+                }
+            });
+        }
+        return true;
+    }
+
+    /**
+     * Gives units back to the stock of a product. Inside a transaction they are given back
+     * once it commits.
+     */
+    public void restock(Long productId, int quantity) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    giveBack(productId, quantity);
+                }
+            });
+        } else {
+            giveBack(productId, quantity);
+        }
+    }
+
+    /**
+     * @return the stock of a product, or empty if the ledger does not hold it and the products table is up to date
+     */
+    public Optional<Integer> available(Long productId) {
+        ReentrantLock lock = stripe(productId);
+        lock.lock();
+        try {
+            Entry entry = entries.get(productId);
+            return entry == null ? Optional.empty() : Optional.of(entry.available);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Aligns the stock in memory on a stock written to the products table by other means, such
+     * as a product update. The units not written back yet are still taken from it.
+     */
+    public void reset(Long productId, int available) {
+        ReentrantLock lock = stripe(productId);
+        lock.lock();
+        try {
+            resets.incrementAndGet();
+            Entry entry = entries.get(productId);
+            if (entry != null) {
+                entry.available = Math.max(available - entry.unflushed, 0);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Resets the stock of a product once the current transaction commits, or right away outside
+     * of a transaction.
+     */
+    public void resetAfterCommit(Long productId, int available) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    reset(productId, available);
+                }
+            });
+        } else {
+            reset(productId, available);
+        }
+    }
+
+    /**
+     * Writes back the net change of every product since the last write-back, in one transaction.
+     * A write-back already running is not waited for. If the transaction fails, the changes are
+     * kept in memory and written back with the next one.
+     *
+     * @return the number of products written back
+     */
+    @Scheduled(fixedDelayString = "${products.stock-ledger.flush-interval-ms:1000}")
+    public int flush() {
+        if (journal == null || !flushLock.tryLock()) {
+            return 0;
+        }
+        try {
+            return writeBackAll();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Runs a write setting the stock of products in the products table, after writing back what
+     * the ledger holds. A write-back already running is waited for, and none runs until the write
+     * is over: a delta written back meanwhile would land on the stock just set. The write should
+     * reset the stock of the products it set, the units taken meanwhile are then applied to it.
+     *
+     * @param write sets the stock of products and resets them in the ledger
+     * @return what the write returned
+     */
+    public <T, E extends Exception> T overwrite(StockWrite<T, E> write) throws E {
+        if (journal == null) {
+            return write.run();
+        }
+        flushLock.lock();
+        try {
+            writeBackAll();
+            return write.run();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Called with the flush lock held
+    private int writeBackAll() {
+        flushRequested.set(false);
+        Map<Long, Integer> deltas = new TreeMap<>();
+        long sequence;
+        long units;
+        lockAll();
+        try {
+            sequence = journal.lastSequence();
+            units = unflushedUnits.getAndSet(0);
+            entries.forEach((productId, entry) -> {
+                if (entry.unflushed != 0) {
+                    deltas.put(productId, entry.unflushed);
+                    entry.unflushed = 0;
+                }
+            });
+        } finally {
+            unlockAll();
+        }
+        if (sequence == checkpointedSequence) {
+            return 0;
+        }
+
+        try {
+            writeBack(deltas, sequence);
+        } catch (RuntimeException e) {
+            lockAll();
+            try {
+                deltas.forEach((productId, delta) -> entries.get(productId).unflushed += delta);
+                unflushedUnits.addAndGet(units);
+            } finally {
+                unlockAll();
+            }
+            LOGGER.error("Stock ledger write-back of {} products failed, will retry", deltas.size(), e);
+            return 0;
+        }
+        checkpointedSequence = sequence;
+        compactJournal(sequence);
+        return deltas.size();
+    }
+
+    private void recover() throws IOException {
+        long checkpoint = checkpointRepository.findById(StockLedgerCheckpoint.ID)
+                .map(StockLedgerCheckpoint::getLastSequence)
+                .orElse(0L);
+        List<StockLedgerJournal.Record> records = journal.read();
+        Map<Long, Integer> deltas = new TreeMap<>();
+        long lastSequence = checkpoint;
+        for (StockLedgerJournal.Record record : records) {
+            if (record.sequence() <= checkpoint) {
+                continue;
+            }
+            if (record.sequence() != lastSequence + 1) {
+                LOGGER.error("Stock ledger journal records {} to {} are missing, the stock of some products may be too high",
+                        lastSequence + 1, record.sequence() - 1);
+            }
+            deltas.merge(record.productId(), record.delta(), Integer::sum);
+            lastSequence = record.sequence();
+        }
+        journal.skipTo(checkpoint);
+
+        if (lastSequence > checkpoint) {
+            writeBack(deltas, lastSequence);
+            LOGGER.info("Stock ledger recovered {} journal records for {} products", lastSequence - checkpoint, deltas.size());
+        }
+        checkpointedSequence = lastSequence;
+        compactJournal(lastSequence);
+
+        long negative = productRepository.countByAvailableLessThan(0);
+        if (negative > 0) {
+            LOGGER.error("{} products have a negative stock after the stock ledger recovery", negative);
+        }
+    }
+
+    private void writeBack(Map<Long, Integer> deltas, long sequence) {
+        transactionTemplate.executeWithoutResult(status -> {
+            deltas.forEach((productId, delta) -> {
+                if (delta != 0 && productRepository.applyStockDelta(productId, delta) == 0) {
+                    LOGGER.warn("Product {} no longer exists, its stock change of {} units is dropped", productId, delta);
+                }
+            });
+            checkpointRepository.save(StockLedgerCheckpoint.at(sequence));
+        });
+    }
+
+    private void compactJournal(long sequence) {
+        try {
+            journal.compact(sequence);
+        } catch (IOException e) {
+            // The records are only replayed past the checkpoint, the journal is compacted on the next write-back
+            LOGGER.warn("Cannot compact the stock ledger journal {}", properties.getJournal(), e);
+        }
+    }
+
+    private void giveBack(Long productId, int quantity) {
+        Entry entry = entry(productId);
+        if (entry == null) {
+            LOGGER.warn("Product {} no longer exists, {} units cannot be given back", productId, quantity);
+            return;
+        }
+        ReentrantLock lock = stripe(productId);
+        long sequence;
+        lock.lock();
+        try {
+            sequence = record(productId, entry, -quantity);
+        } finally {
+            lock.unlock();
+        }
+        try {
+            awaitJournaled(productId, entry, -quantity, sequence);
+        } catch (UncheckedIOException e) {
+            LOGGER.error("{} units of product {} cannot be given back", quantity, productId, e);
+            return;
+        }
+        requestFlushAboveThreshold();
+    }
+
+    // Buffers the journal record of a change and applies it, the caller holds the stripe of the product
+    private long record(Long productId, Entry entry, int delta) {
+        long sequence = journal.append(productId, delta);
+        entry.available -= delta;
+        entry.unflushed += delta;
+        unflushedUnits.addAndGet(Math.abs(delta));
+        return sequence;
+    }
+
+    // Waits for the record of a change to be written, without holding the stripe, and undoes the change if it cannot be
+    private void awaitJournaled(Long productId, Entry entry, int delta, long sequence) {
+        try {
+            journal.awaitWritten(sequence);
+        } catch (UncheckedIOException e) {
+            ReentrantLock lock = stripe(productId);
+            lock.lock();
+            try {
+                entry.available += delta;
+                entry.unflushed -= delta;
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+    }
+
+    private void requestFlushAboveThreshold() {
+        if (unflushedUnits.get() >= properties.getFlushThreshold() && flushRequested.compareAndSet(false, true)) {
+            flushExecutor.execute(this::flush);
+        }
+    }
+
+    // Loads the stock of a product on first use. The products table is read without holding the stripe,
+    // so the other products of the stripe do not wait for it; entries are never removed once installed.
+    private Entry entry(Long productId) {
+        Entry entry = entries.get(productId);
+        while (entry == null) {
+            if (journal == null) {
+                throw new IllegalStateException("The stock ledger is not enabled");
+            }
+            long resetsBefore = resets.get();
+            Integer available = productRepository.findAvailableById(productId).orElse(null);
+            if (available == null) {
+                return null;
+            }
+            ReentrantLock lock = stripe(productId);
+            lock.lock();
+            try {
+                // A stock reset since the read may not be the one read, it is read again then
+                if (resets.get() == resetsBefore || entries.containsKey(productId)) {
+                    entries.putIfAbsent(productId, new Entry(available));
+                    entry = entries.get(productId);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        return entry;
+    }
+
+    private ReentrantLock stripe(Long productId) {
+        return stripes[Math.floorMod(productId.hashCode(), stripes.length)];
+    }
+
+    private void lockAll() {
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+
+    // Guarded by the stripe of the product
+    private static final class Entry {
+        private int available;
+        // Units taken since the last write-back, negative when more units were given back
+        private int unflushed;
+
+        private Entry(int available) {
+            this.available = available;
+        }
+    }
+
+    /**
+     * A write of the stock of products, which may throw checked exceptions of its own.
+     */
+    @FunctionalInterface
+    public interface StockWrite<T, E extends Exception> {
+        T run() throws E;
+    }
+}
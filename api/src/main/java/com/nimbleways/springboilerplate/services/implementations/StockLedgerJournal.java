@@ -0,0 +1,271 @@
+package com.nimbleways.springboilerplate.services.implementations;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Append-only file of the stock changes taken by the StockLedger, one "sequence productId delta"
+ * line per change. A record is written to the file before the change is acknowledged, so the
+ * changes not yet written back to the products table survive a crash of the application. A line
+ * torn by a crash is the last one and is dropped when the journal is opened.
+ * Records are written by group commit: appending a record only buffers it, and the first thread
+ * waiting for its record to be written writes every record buffered so far in one write, forced
+ * once, while the threads appending meanwhile fill the next batch.
+ */
+public class StockLedgerJournal implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StockLedgerJournal.class);
+
+    private final Path path;
+    private final boolean sync;
+    private final long compactionBytes;
+
+    // Guards the records buffered and their numbering, only held to buffer or hand over a batch
+    private final ReentrantLock appendLock = new ReentrantLock();
+    // Guards the file, held while a batch is written or the journal compacted
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private final StringBuilder buffered = new StringBuilder();
+    private long lastSequence;
+    private volatile long writtenSequence;
+    // Once a batch is lost the journal no longer tells which changes were made, it is not written to any more
+    private volatile UncheckedIOException failure;
+
+    private FileChannel channel;
+
+    private StockLedgerJournal(Path path, boolean sync, long compactionBytes) {
+        this.path = path;
+        this.sync = sync;
+        this.compactionBytes = compactionBytes;
+    }
+
+    /**
+     * Opens the journal, creating it if needed.
+     *
+     * @param path            the journal file
+     * @param sync            whether every batch of records is forced to the disk
+     * @param compactionBytes the size past which the journal is rewritten without the records written back
+     */
+    public static StockLedgerJournal open(Path path, boolean sync, long compactionBytes) throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        StockLedgerJournal journal = new StockLedgerJournal(path, sync, compactionBytes);
+        journal.channel = openForAppend(path);
+        journal.dropTornRecord();
+        for (Record record : journal.read()) {
+            journal.lastSequence = Math.max(journal.lastSequence, record.sequence());
+        }
+        journal.writtenSequence = journal.lastSequence;
+        return journal;
+    }
+
+    /**
+     * Buffers a stock change, to be written with the next batch. The change must not be
+     * acknowledged before {@link #awaitWritten(long)} returns for its sequence.
+     *
+     * @param productId the product whose stock changed
+     * @param delta     the units taken, negative when units were given back
+     * @return the sequence of the record
+     * @throws UncheckedIOException if a previous batch could not be written
+     */
+    public long append(long productId, int delta) {
+        appendLock.lock();
+        try {
+            checkNotFailed();
+            long sequence = ++lastSequence;
+            buffered.append(sequence).append(' ').append(productId).append(' ').append(delta).append('\n');
+            return sequence;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Returns once the record of the given sequence is written, writing the records buffered
+     * so far unless another thread is already writing a batch holding it.
+     *
+     * @throws UncheckedIOException if the record could not be written, the change must then be undone
+     */
+    public void awaitWritten(long sequence) {
+        if (writtenSequence >= sequence) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            // The batch written by the thread that held the lock may have held the record
+            if (writtenSequence < sequence) {
+                writeBatch();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public long lastSequence() {
+        appendLock.lock();
+        try {
+            return lastSequence;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Continues the numbering after the given sequence if it is past the last record, for
+     * instance when the journal was emptied after its records were written back.
+     */
+    public void skipTo(long sequence) {
+        appendLock.lock();
+        try {
+            lastSequence = Math.max(lastSequence, sequence);
+            writtenSequence = Math.max(writtenSequence, lastSequence);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * @return the records written to the journal, in the order they were appended
+     */
+    public List<Record> read() throws IOException {
+        writeLock.lock();
+        try {
+            String content = Files.readString(path, StandardCharsets.US_ASCII);
+            List<Record> records = new ArrayList<>();
+            int lineNumber = 0;
+            int start = 0;
+            for (int end = content.indexOf('\n'); end >= 0; end = content.indexOf('\n', start)) {
+                lineNumber++;
+                String[] fields = content.substring(start, end).split(" ");
+                try {
+                    records.add(new Record(Long.parseLong(fields[0]), Long.parseLong(fields[1]), Integer.parseInt(fields[2])));
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                    throw new IOException("Stock ledger journal " + path + " is corrupted at line " + lineNumber, e);
+                }
+                start = end + 1;
+            }
+            return records;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Drops the records up to the given sequence once they were written back. The journal is
+     * truncated when it holds no other record; otherwise, once it grew past the compaction size,
+     * the remaining records are copied to a new file that atomically replaces it. Records are
+     * buffered meanwhile, only the threads waiting for their record to be written wait for it.
+     *
+     * @param sequence the last record written back
+     */
+    public void compact(long sequence) throws IOException {
+        writeLock.lock();
+        try {
+            if (failure != null) {
+                return;
+            }
+            if (sequence >= writtenSequence) {
+                // Records buffered up to the sequence are written later and skipped on replay
+                channel.truncate(0);
+                return;
+            }
+            if (channel.size() < compactionBytes) {
+                return;
+            }
+            List<String> remaining = new ArrayList<>();
+            for (Record record : read()) {
+                if (record.sequence() > sequence) {
+                    remaining.add(record.sequence() + " " + record.productId() + " " + record.delta());
+                }
+            }
+            Path compacted = path.resolveSibling(path.getFileName() + ".compact");
+            Files.write(compacted, remaining, StandardCharsets.US_ASCII, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE, StandardOpenOption.SYNC);
+            channel.close();
+            Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = openForAppend(path);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            channel.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Writes every record buffered so far and forces them once, the caller holds the write lock
+    private void writeBatch() {
+        checkNotFailed();
+        ByteBuffer batch;
+        long batchSequence;
+        appendLock.lock();
+        try {
+            batch = ByteBuffer.wrap(buffered.toString().getBytes(StandardCharsets.US_ASCII));
+            buffered.setLength(0);
+            batchSequence = lastSequence;
+        } finally {
+            appendLock.unlock();
+        }
+        try {
+            while (batch.hasRemaining()) {
+                channel.write(batch);
+            }
+            if (sync) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            failure = new UncheckedIOException("Cannot append to the stock ledger journal " + path, e);
+            LOGGER.error("Stock ledger journal {} lost the records up to {}, it is no longer written to", path, batchSequence, e);
+            throw failure;
+        }
+        writtenSequence = batchSequence;
+    }
+
+    private void checkNotFailed() {
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // A record cut short by a crash is the last one, it was never acknowledged
+    private void dropTornRecord() throws IOException {
+        String content = Files.readString(path, StandardCharsets.US_ASCII);
+        int end = content.lastIndexOf('\n') + 1;
+        if (end < content.length()) {
+            LOGGER.warn("Dropping the torn last record of the stock ledger journal {}", path);
+            channel.truncate(end);
+        }
+    }
+
+    private static FileChannel openForAppend(Path path) throws IOException {
+        return FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * @param delta the units taken, negative when units were given back
+     */
+    public record Record(long sequence, long productId, int delta) {
+    }
+}
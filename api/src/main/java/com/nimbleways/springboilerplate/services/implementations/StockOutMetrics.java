@@ -0,0 +1,44 @@
+package com.nimbleways.springboilerplate.services.implementations;
+
+import com.nimbleways.springboilerplate.enums.ProductType;
+import com.nimbleways.springboilerplate.repositories.ProductRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gauges of the number of products out of stock, by product type. They are counted in the
+ * database on a schedule, every products.metrics.stock-out-refresh-ms, and a scrape only reads
+ * the last counts.
+ */
+@Component
+public class StockOutMetrics {
+
+    private final ProductRepository productRepository;
+    private final Map<ProductType, AtomicLong> outOfStock = new EnumMap<>(ProductType.class);
+
+    public StockOutMetrics(MeterRegistry meterRegistry, ProductRepository productRepository) {
+        this.productRepository = productRepository;
+        for (ProductType type : ProductType.values()) {
+            AtomicLong count = new AtomicLong();
+            outOfStock.put(type, count);
+            Gauge.builder("products.stock.out", count, AtomicLong::get)
+                    .description("Products with no stock left, as of the last refresh")
+                    .tag("type", type.name())
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Counts the products out of stock again, one query per product type.
+     */
+    @Scheduled(fixedDelayString = "${products.metrics.stock-out-refresh-ms:60000}")
+    public void refresh() {
+        outOfStock.forEach((type, count) -> count.set(productRepository.countByTypeAndAvailableLessThanEqual(type, 0)));
+    }
+}
@@ -0,0 +1,207 @@
+package com.nimbleways.springboilerplate.services.implementations;
+
+import com.nimbleways.springboilerplate.config.StockReservationProperties;
+import com.nimbleways.springboilerplate.entities.Order;
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.entities.ReservedItem;
+import com.nimbleways.springboilerplate.entities.StockReservation;
+import com.nimbleways.springboilerplate.enums.ProductOutcome;
+import com.nimbleways.springboilerplate.enums.ReservationStatus;
+import com.nimbleways.springboilerplate.exceptions.InsufficientStockException;
+import com.nimbleways.springboilerplate.exceptions.ReservationNotFoundException;
+import com.nimbleways.springboilerplate.exceptions.ReservationStateException;
+import com.nimbleways.springboilerplate.repositories.ProductRepository;
+import com.nimbleways.springboilerplate.repositories.StockReservationRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Two-phase stock allocation: the items of an order are reserved all at once for a limited time,
+ * then the reservation is either committed, selling the units, or released, giving them back.
+ * Reserving moves the units out of the products' stock, so orders processed meanwhile cannot
+ * take them. A reservation leaves the HELD status through a single conditional update, so a
+ * reservation committed, released and swept concurrently is applied exactly once.
+ */
+@Service
+public class StockReservationService {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StockReservationService.class);
+
+    private final StockReservationRepository reservationRepository;
+    private final ProductRepository productRepository;
+    private final ProductTypeHandlerRegistry productTypeHandlerRegistry;
+    private final ProductMetrics productMetrics;
+    private final StockReservationProperties properties;
+    private final StockLedger stockLedger;
+    private final Clock clock;
+
+    public StockReservationService(StockReservationRepository reservationRepository, ProductRepository productRepository,
+                                   ProductTypeHandlerRegistry productTypeHandlerRegistry, ProductMetrics productMetrics,
+                                   StockReservationProperties properties, StockLedger stockLedger, Clock clock) {
+        this.reservationRepository = reservationRepository;
+        this.productRepository = productRepository;
+        this.productTypeHandlerRegistry = productTypeHandlerRegistry;
+        this.productMetrics = productMetrics;
+        this.properties = properties;
+        this.stockLedger = stockLedger;
+        this.clock = clock;
+    }
+
+    /**
+     * Reserves one unit of every item of an order. Either all items are reserved or none is.
+     *
+     * @param order the order whose items should be reserved
+     * @return the held reservation
+     * @throws InsufficientStockException if an item would not be sold by the product rules or its stock ran out
+     */
+    @Transactional(rollbackFor = InsufficientStockException.class)
+    public StockReservation reserve(Order order) throws InsufficientStockException {
+        LocalDate today = LocalDate.now(clock);
+        Map<Product, ProductOutcome> outcomes = productTypeHandlerRegistry.resolveAll(order.getItems(), today);
+        for (Map.Entry<Product, ProductOutcome> outcome : outcomes.entrySet()) {
+            if (outcome.getValue() != ProductOutcome.SOLD) {
+                productMetrics.recordReservations("rejected", 1);
+                throw new InsufficientStockException("Product " + outcome.getKey().getId() + " of order " + order.getId()
+                        + " cannot be reserved: " + outcome.getValue());
+            }
+        }
+
+        // Rows are updated in ID order so that concurrent reservations of the same products cannot deadlock
+        List<Product> products = new ArrayList<>(outcomes.keySet());
+        products.sort(Comparator.comparing(Product::getId));
+        List<ReservedItem> items = new ArrayList<>(products.size());
+        for (Product p : products) {
+            if (!hold(p.getId(), 1)) {
+                productMetrics.recordReservations("rejected", 1);
+                throw new InsufficientStockException("Product " + p.getId() + " of order " + order.getId() + " ran out of stock");
+            }
+            items.add(new ReservedItem(p.getId(), 1));
+        }
+
+        Instant now = Instant.now(clock);
+        StockReservation reservation = reservationRepository.save(
+                StockReservation.held(order.getId(), items, now, now.plus(properties.getTtl())));
+        productMetrics.recordReservations("held", 1);
+        LOGGER.info("Reservation {} holds {} products of order {} until {}",
+                reservation.getId(), items.size(), order.getId(), reservation.getExpiresAt());
+        return reservation;
+    }
+
+    public StockReservation getReservation(Long reservationId) throws ReservationNotFoundException {
+        return reservationRepository.findWithItemsById(reservationId)
+                .orElseThrow(() -> new ReservationNotFoundException("Reservation with ID " + reservationId + " not found"));
+    }
+
+    /**
+     * Sells the units held by a reservation.
+     *
+     * @throws ReservationStateException if the reservation was already committed, released or expired
+     */
+    @Transactional(rollbackFor = ReservationStateException.class)
+    public StockReservation commit(Long reservationId) throws ReservationNotFoundException, ReservationStateException {
+        StockReservation reservation = leaveHeld(reservationId, ReservationStatus.COMMITTED);
+        for (ReservedItem item : reservation.getItems()) {
+            productRepository.commitReserved(item.getProductId(), item.getQuantity());
+        }
+        productMetrics.recordReservations("committed", 1);
+        LOGGER.info("Reservation {} of order {} committed", reservationId, reservation.getOrderId());
+        return reservation;
+    }
+
+    /**
+     * Gives the units held by a reservation back to the stock.
+     *
+     * @throws ReservationStateException if the reservation was already committed, released or expired
+     */
+    @Transactional(rollbackFor = ReservationStateException.class)
+    public StockReservation release(Long reservationId) throws ReservationNotFoundException, ReservationStateException {
+        StockReservation reservation = leaveHeld(reservationId, ReservationStatus.RELEASED);
+        for (ReservedItem item : reservation.getItems()) {
+            giveBack(item.getProductId(), item.getQuantity());
+        }
+        productMetrics.recordReservations("released", 1);
+        LOGGER.info("Reservation {} of order {} released", reservationId, reservation.getOrderId());
+        return reservation;
+    }
+
+    /**
+     * Releases one batch of the reservations that expired before the given instant. The units
+     * given back are summed per product, so each product is updated once per batch.
+     *
+     * @return the number of reservations found expired, the batch size when more may be left
+     */
+    @Transactional
+    public int releaseExpired(Instant now) {
+        List<Long> expiredIds = reservationRepository.findIdsByStatusAndExpiresAtBefore(
+                ReservationStatus.HELD, now, PageRequest.of(0, properties.getSweepBatchSize()));
+        List<Long> releasedIds = new ArrayList<>(expiredIds.size());
+        for (Long id : expiredIds) {
+            // Skips the reservations committed or released since they were selected
+            if (reservationRepository.transition(id, ReservationStatus.HELD, ReservationStatus.EXPIRED) == 1) {
+                releasedIds.add(id);
+            }
+        }
+        if (releasedIds.isEmpty()) {
+            return expiredIds.size();
+        }
+
+        Map<Long, Integer> unitsByProduct = new TreeMap<>();
+        for (StockReservation reservation : reservationRepository.findWithItemsByIdIn(releasedIds)) {
+            for (ReservedItem item : reservation.getItems()) {
+                unitsByProduct.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+            }
+        }
+        unitsByProduct.forEach(this::giveBack);
+        productMetrics.recordReservations("expired", releasedIds.size());
+        LOGGER.info("{} expired reservations released, {} products restocked", releasedIds.size(), unitsByProduct.size());
+        return expiredIds.size();
+    }
+
+    // With the stock ledger enabled the units are taken from memory, only the reserved units are counted on the row
+    private boolean hold(Long productId, int quantity) {
+        if (!stockLedger.isEnabled()) {
+            return productRepository.reserve(productId, quantity) == 1;
+        }
+        if (!stockLedger.take(productId, quantity)) {
+            return false;
+        }
+        productRepository.addReserved(productId, quantity);
+        return true;
+    }
+
+    private void giveBack(Long productId, int quantity) {
+        if (!stockLedger.isEnabled()) {
+            productRepository.releaseReserved(productId, quantity);
+            return;
+        }
+        productRepository.commitReserved(productId, quantity);
+        stockLedger.restock(productId, quantity);
+    }
+
+    private StockReservation leaveHeld(Long reservationId, ReservationStatus to)
+            throws ReservationNotFoundException, ReservationStateException {
+        StockReservation reservation = getReservation(reservationId);
+        // An expired reservation may not be swept yet, its stock must still not be sold
+        if (to == ReservationStatus.COMMITTED && reservation.getExpiresAt().isBefore(Instant.now(clock))) {
+            throw new ReservationStateException("Reservation " + reservationId + " expired at " + reservation.getExpiresAt());
+        }
+        if (reservationRepository.transition(reservationId, ReservationStatus.HELD, to) == 0) {
+            throw new ReservationStateException("Reservation " + reservationId + " is " + reservation.getStatus()
+                    + ", it cannot be " + to);
+        }
+        reservation.setStatus(to);
+        return reservation;
+    }
+}
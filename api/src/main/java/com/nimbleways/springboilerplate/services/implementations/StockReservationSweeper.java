@@ -0,0 +1,42 @@
+package com.nimbleways.springboilerplate.services.implementations;
+
+import com.nimbleways.springboilerplate.config.StockReservationProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+
+/**
+ * Gives the stock of expired reservations back, batch after batch, each batch in its own transaction.
+ */
+@Component
+public class StockReservationSweeper {
+
+    private final StockReservationService reservationService;
+    private final StockReservationProperties properties;
+    private final Clock clock;
+
+    public StockReservationSweeper(StockReservationService reservationService, StockReservationProperties properties, Clock clock) {
+        this.reservationService = reservationService;
+        this.properties = properties;
+        this.clock = clock;
+    }
+
+    /**
+     * Releases the reservations expired at the start of the sweep until none is left.
+     *
+     * @return the number of expired reservations found
+     */
+    @Scheduled(fixedDelayString = "${orders.reservations.sweep-interval-ms:10000}")
+    public int sweep() {
+        Instant now = Instant.now(clock);
+        int swept = 0;
+        int batch;
+        do {
+            batch = reservationService.releaseExpired(now);
+            swept += batch;
+        } while (batch == properties.getSweepBatchSize());
+        return swept;
+    }
+}
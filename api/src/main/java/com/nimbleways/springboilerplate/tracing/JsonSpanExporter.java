@@ -0,0 +1,125 @@
+package com.nimbleways.springboilerplate.tracing;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes every finished span as one JSON document per line, either to the application log
+ * or appended to a local file, so traces can be read without a collector.
+ */
+public final class JsonSpanExporter implements SpanExporter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JsonSpanExporter.class);
+    // Spans are logged by a dedicated logger so they can be routed or silenced on their own
+    private static final Logger SPAN_LOGGER = LoggerFactory.getLogger("tracing.spans");
+
+    private final ObjectMapper objectMapper;
+    private final BufferedWriter writer;
+
+    private JsonSpanExporter(ObjectMapper objectMapper, BufferedWriter writer) {
+        this.objectMapper = objectMapper;
+        this.writer = writer;
+    }
+
+    public static JsonSpanExporter toLog(ObjectMapper objectMapper) {
+        return new JsonSpanExporter(objectMapper, null);
+    }
+
+    public static JsonSpanExporter toFile(ObjectMapper objectMapper, Path file) {
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            return new JsonSpanExporter(objectMapper, Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open the span file " + file, e);
+        }
+    }
+
+    @Override
+    public CompletableResultCode export(Collection<SpanData> spans) {
+        List<String> lines = new ArrayList<>(spans.size());
+        for (SpanData span : spans) {
+            try {
+                lines.add(objectMapper.writeValueAsString(toDocument(span)));
+            } catch (JsonProcessingException e) {
+                LOGGER.warn("Cannot serialize span {}", span.getName(), e);
+            }
+        }
+        if (writer == null) {
+            lines.forEach(SPAN_LOGGER::info);
+            return CompletableResultCode.ofSuccess();
+        }
+        synchronized (writer) {
+            try {
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.newLine();
+                }
+                writer.flush();
+                return CompletableResultCode.ofSuccess();
+            } catch (IOException e) {
+                LOGGER.warn("Cannot write {} spans", lines.size(), e);
+                return CompletableResultCode.ofFailure();
+            }
+        }
+    }
+
+    @Override
+    public CompletableResultCode flush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        if (writer != null) {
+            synchronized (writer) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    LOGGER.warn("Cannot close the span file", e);
+                    return CompletableResultCode.ofFailure();
+                }
+            }
+        }
+        return CompletableResultCode.ofSuccess();
+    }
+
+    private static Map<String, Object> toDocument(SpanData span) {
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("traceId", span.getTraceId());
+        document.put("spanId", span.getSpanId());
+        if (span.getParentSpanContext().isValid()) {
+            document.put("parentSpanId", span.getParentSpanId());
+        }
+        document.put("name", span.getName());
+        document.put("start", Instant.ofEpochSecond(0, span.getStartEpochNanos()).toString());
+        document.put("durationMicros", TimeUnit.NANOSECONDS.toMicros(span.getEndEpochNanos() - span.getStartEpochNanos()));
+        document.put("status", span.getStatus().getStatusCode().name());
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        span.getAttributes().forEach((key, value) -> attributes.put(key.getKey(), value));
+        document.put("attributes", attributes);
+        return document;
+    }
+}
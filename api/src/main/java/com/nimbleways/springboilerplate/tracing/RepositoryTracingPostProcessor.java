@@ -0,0 +1,78 @@
+package com.nimbleways.springboilerplate.tracing;
+
+import com.nimbleways.springboilerplate.entities.Product;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.common.AttributesBuilder;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.framework.Advised;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.data.repository.Repository;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Traces every call to a Spring Data repository of the application, in a span named after the
+ * repository and the method and carrying the ID of the entity or the number of entities involved.
+ */
+public class RepositoryTracingPostProcessor implements BeanPostProcessor {
+
+    private final ObjectProvider<Spans> spans;
+
+    public RepositoryTracingPostProcessor(ObjectProvider<Spans> spans) {
+        this.spans = spans;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        // Spring Data repositories are proxies already, the tracing advice is added to them
+        if (!(bean instanceof Repository<?, ?>) || !(bean instanceof Advised advised) || advised.isFrozen()) {
+            return bean;
+        }
+        String repositoryName = Arrays.stream(AopProxyUtils.proxiedUserInterfaces(bean))
+                .filter(Repository.class::isAssignableFrom)
+                .findFirst()
+                .map(Class::getSimpleName)
+                .orElse(beanName);
+        // Outermost, so that the span covers the transaction of the repository method
+        advised.addAdvice(0, new TracingInterceptor(repositoryName));
+        return bean;
+    }
+
+    private final class TracingInterceptor implements MethodInterceptor {
+
+        private final String repositoryName;
+
+        TracingInterceptor(String repositoryName) {
+            this.repositoryName = repositoryName;
+        }
+
+        @Override
+        public Object invoke(MethodInvocation invocation) throws Throwable {
+            if (invocation.getMethod().getDeclaringClass() == Object.class) {
+                return invocation.proceed();
+            }
+            String name = repositoryName + "." + invocation.getMethod().getName();
+            return spans.getObject().trace(name, attributes(invocation.getArguments()), invocation::proceed);
+        }
+
+        private Attributes attributes(Object[] arguments) {
+            AttributesBuilder attributes = Attributes.builder();
+            if (arguments.length == 0) {
+                return attributes.build();
+            }
+            Object first = arguments[0];
+            if (first instanceof Product product) {
+                Spans.addProduct(attributes, product);
+            } else if (first instanceof Long id) {
+                attributes.put(SpanAttributes.ENTITY_ID, id);
+            } else if (first instanceof Collection<?> entities) {
+                attributes.put(SpanAttributes.ITEM_COUNT, (long) entities.size());
+            }
+            return attributes.build();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.nimbleways.springboilerplate.tracing;
+
+import io.opentelemetry.api.common.AttributeKey;
+
+/**
+ * Keys of the attributes put on the application spans.
+ */
+public final class SpanAttributes {
+
+    public static final AttributeKey<Long> ORDER_ID = AttributeKey.longKey("order.id");
+    public static final AttributeKey<Long> ORDER_COUNT = AttributeKey.longKey("order.count");
+    public static final AttributeKey<Long> PRODUCT_ID = AttributeKey.longKey("product.id");
+    public static final AttributeKey<String> PRODUCT_TYPE = AttributeKey.stringKey("product.type");
+    public static final AttributeKey<String> PRODUCT_OUTCOME = AttributeKey.stringKey("product.outcome");
+    public static final AttributeKey<Long> ITEM_COUNT = AttributeKey.longKey("item.count");
+    public static final AttributeKey<Long> ENTITY_ID = AttributeKey.longKey("entity.id");
+    public static final AttributeKey<String> NOTIFICATION_TYPE = AttributeKey.stringKey("notification.type");
+    public static final AttributeKey<String> PRODUCT_NAME = AttributeKey.stringKey("product.name");
+
+    private SpanAttributes() {
+    }
+}
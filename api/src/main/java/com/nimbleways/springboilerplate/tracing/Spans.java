@@ -0,0 +1,70 @@
+package com.nimbleways.springboilerplate.tracing;
+
+import com.nimbleways.springboilerplate.entities.Product;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.common.AttributesBuilder;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Scope;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs code inside a tracing span. The span is the current one while the code runs, so spans
+ * started meanwhile become its children, and it is marked as failed if the code throws.
+ */
+@Component
+public class Spans {
+
+    private static final String INSTRUMENTATION_NAME = "com.nimbleways.springboilerplate";
+
+    private final Tracer tracer;
+
+    public Spans(OpenTelemetry openTelemetry) {
+        this.tracer = openTelemetry.getTracer(INSTRUMENTATION_NAME);
+    }
+
+    @FunctionalInterface
+    public interface TracedCall<T, E extends Throwable> {
+        T call() throws E;
+    }
+
+    /**
+     * @param name       name of the span
+     * @param attributes attributes of the span
+     * @param call       the code to trace
+     * @return what the code returned
+     */
+    public <T, E extends Throwable> T trace(String name, Attributes attributes, TracedCall<T, E> call) throws E {
+        Span span = tracer.spanBuilder(name).setAllAttributes(attributes).startSpan();
+        Scope scope = span.makeCurrent();
+        try {
+            return call.call();
+        } catch (Throwable t) {
+            span.recordException(t);
+            span.setStatus(StatusCode.ERROR);
+            throw t;
+        } finally {
+            scope.close();
+            span.end();
+        }
+    }
+
+    /**
+     * @return the ID and type of the product, as span attributes
+     */
+    public static Attributes productAttributes(Product p) {
+        return addProduct(Attributes.builder(), p).build();
+    }
+
+    static AttributesBuilder addProduct(AttributesBuilder attributes, Product p) {
+        if (p.getId() != null) {
+            attributes.put(SpanAttributes.PRODUCT_ID, p.getId());
+        }
+        if (p.getType() != null) {
+            attributes.put(SpanAttributes.PRODUCT_TYPE, p.getType().name());
+        }
+        return attributes;
+    }
+}
@@ -95,7 +95,7 @@ class ApplicationIntegrationTests {
         // Act - update the product's details
         createdProduct.setName("Updated Service Product");
         createdProduct.setAvailable(20);
-        Product updatedProduct = productService.updateProduct(createdProduct.getId(), createdProduct);
+        Product updatedProduct = productService.updateProduct(createdProduct.getId(), createdProduct, createdProduct.getVersion());
 
         // Assert - verify the updated details
         Optional<Product> retrievedProduct = productRepository.findById(updatedProduct.getId());
@@ -113,6 +113,7 @@ class ApplicationIntegrationTests {
         updatedProduct.setType(ProductType.NORMAL);
 
         mockMvc.perform(put("/products/{productId}", 999L)
+                        .header("If-Match", "\"0\"")
                         .contentType("application/json")
                         .content("{\"name\":\"Non-Existent Product\",\"available\":0}"))
                 .andExpect(status().isNotFound());
@@ -0,0 +1,122 @@
+package com.nimbleways.springboilerplate.benchmarks;
+
+import com.nimbleways.springboilerplate.controllers.OrdersController;
+import com.nimbleways.springboilerplate.entities.Order;
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.ProductType;
+import com.nimbleways.springboilerplate.repositories.OrderRepository;
+import com.nimbleways.springboilerplate.repositories.ProductRepository;
+import com.nimbleways.springboilerplate.services.implementations.NotificationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Measures how the latency of POST /orders/{orderId}/processOrder grows with the number of items, and fails
+// when its p90 exceeds a budget growing linearly with them, as a query issued per item would make it.
+// Excluded from the default test run, execute it with: mvnw test -Pbenchmark
+@SpringBootTest
+@AutoConfigureMockMvc
+class ProcessOrderLatencyBenchmarks {
+
+    private static final int WARMUP_RUNS = 20;
+    private static final int MEASURED_RUNS = 50;
+    // Loose enough for a shared CI machine, e.g. -Dbenchmark.p90-budget-ms=100 -Dbenchmark.p90-budget-ms-per-item=2 on a quiet one
+    private static final double P90_BUDGET_MILLIS = Double.parseDouble(System.getProperty("benchmark.p90-budget-ms", "250"));
+    private static final double P90_BUDGET_MILLIS_PER_ITEM = Double.parseDouble(System.getProperty("benchmark.p90-budget-ms-per-item", "5"));
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ProcessOrderLatencyBenchmarks.class);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private NotificationService notificationService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 50, 200, 500})
+    void processOrderLatency(int itemCount) throws Exception {
+        List<Product> products = productRepository.saveAll(createProducts(itemCount));
+        Order order = orderRepository.save(new Order(null, new HashSet<>(products)));
+
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            processOrder(order.getId());
+        }
+        long[] latencies = new long[MEASURED_RUNS];
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            processOrder(order.getId());
+            latencies[i] = System.nanoTime() - start;
+        }
+
+        Arrays.sort(latencies);
+        double p90 = toMillis(latencies[MEASURED_RUNS * 9 / 10]);
+        double budget = P90_BUDGET_MILLIS + P90_BUDGET_MILLIS_PER_ITEM * itemCount;
+        LOGGER.info(String.format("processOrder items=%d p50=%.2fms p90=%.2fms max=%.2fms budget=%.0fms", itemCount,
+                toMillis(latencies[MEASURED_RUNS / 2]), p90, toMillis(latencies[MEASURED_RUNS - 1]), budget));
+        assertTrue(p90 <= budget, String.format("p90 of %.2fms over the %.0fms budget for %d items", p90, budget, itemCount));
+    }
+
+    private void processOrder(Long orderId) throws Exception {
+        // A new idempotency key for every run, the same order being processed again
+        mockMvc.perform(post("/orders/{orderId}/processOrder", orderId)
+                        .header(OrdersController.IDEMPOTENCY_KEY_HEADER, UUID.randomUUID().toString())
+                        .contentType("application/json"))
+                .andExpect(status().isOk());
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    // Stock is large enough for every run to take the "sold" branch
+    private static List<Product> createProducts(int count) {
+        List<Product> products = new ArrayList<>(count);
+        LocalDate now = LocalDate.now();
+        for (int i = 0; i < count; i++) {
+            switch (i % 3) {
+                case 0:
+                    products.add(new Product(null, 10, 1_000_000, ProductType.NORMAL, "Normal " + i, null, null, null));
+                    break;
+                case 1:
+                    products.add(new Product(null, 10, 1_000_000, ProductType.SEASONAL, "Seasonal " + i, null,
+                            now.minusDays(10), now.plusDays(60)));
+                    break;
+                default:
+                    products.add(new Product(null, 10, 1_000_000, ProductType.EXPIRABLE, "Expirable " + i,
+                            now.plusDays(30), null, null));
+                    break;
+            }
+        }
+        return products;
+    }
+}
@@ -0,0 +1,136 @@
+package com.nimbleways.springboilerplate.controllers;
+
+import com.nimbleways.springboilerplate.entities.Order;
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.ProductType;
+import com.nimbleways.springboilerplate.repositories.NotificationOutboxRepository;
+import com.nimbleways.springboilerplate.repositories.OrderRepository;
+import com.nimbleways.springboilerplate.repositories.ProductRepository;
+import com.nimbleways.springboilerplate.services.implementations.NotificationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The batch endpoint must leave the stock and the notifications exactly as processing the orders one by one
+@SpringBootTest
+@AutoConfigureMockMvc
+class ProcessOrderBatchIntegrationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private NotificationService notificationService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private NotificationOutboxRepository notificationOutboxRepository;
+
+    // Other test classes may leave notifications in the outbox, which is compared as a whole
+    @BeforeEach
+    void setUp() {
+        cleanUp();
+    }
+
+    @AfterEach
+    void tearDown() {
+        cleanUp();
+    }
+
+    @Test
+    void processBatch_ShouldMatchSequentialProcessing() throws Exception {
+        List<Long> orderIds = createOrders();
+        mockMvc.perform(post("/orders/processBatch")
+                        .contentType("application/json")
+                        .content(toJson(orderIds)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(orderIds.size()));
+        Map<String, String> batchStock = stockByName();
+        List<String> batchNotifications = notifications();
+        cleanUp();
+
+        orderIds = createOrders();
+        for (Long orderId : orderIds) {
+            mockMvc.perform(post("/orders/{orderId}/processOrder", orderId)
+                            .contentType("application/json"))
+                    .andExpect(status().isOk());
+        }
+
+        assertEquals(stockByName(), batchStock);
+        assertEquals(notifications(), batchNotifications);
+    }
+
+    @Test
+    void processBatch_ShouldSkipUnknownOrders() throws Exception {
+        List<Long> orderIds = new ArrayList<>(createOrders());
+        orderIds.add(0, -1L);
+
+        mockMvc.perform(post("/orders/processBatch")
+                        .contentType("application/json")
+                        .content(toJson(orderIds)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(orderIds.size() - 1))
+                .andExpect(jsonPath("$[0].id").value(orderIds.get(1)));
+    }
+
+    // Three orders competing for the same low-stock products
+    private List<Long> createOrders() {
+        Product cable = new Product(null, 15, 3, ProductType.NORMAL, "USB Cable", null, null, null);
+        Product dongle = new Product(null, 10, 1, ProductType.NORMAL, "USB Dongle", null, null, null);
+        Product butter = new Product(null, 15, 2, ProductType.EXPIRABLE, "Butter", LocalDate.now().plusDays(26), null, null);
+        Product milk = new Product(null, 90, 6, ProductType.EXPIRABLE, "Milk", LocalDate.now().minusDays(2), null, null);
+        Product watermelon = new Product(null, 15, 1, ProductType.SEASONAL, "Watermelon", null,
+                LocalDate.now().minusDays(2), LocalDate.now().plusDays(10));
+        productRepository.saveAll(List.of(cable, dongle, butter, milk, watermelon));
+        List<Order> orders = orderRepository.saveAll(List.of(
+                new Order(null, Set.of(cable, dongle, butter)),
+                new Order(null, Set.of(cable, dongle, milk, watermelon)),
+                new Order(null, Set.of(cable, dongle, butter, watermelon))));
+        return orders.stream().map(Order::getId).toList();
+    }
+
+    private Map<String, String> stockByName() {
+        return productRepository.findAll().stream()
+                .collect(Collectors.toMap(Product::getName, p -> p.getAvailable() + "/" + p.getLeadTime(), (a, b) -> a, TreeMap::new));
+    }
+
+    private List<String> notifications() {
+        return notificationOutboxRepository.findAll().stream()
+                .map(entry -> entry.getType() + " " + entry.getProductName())
+                .sorted()
+                .toList();
+    }
+
+    private void cleanUp() {
+        notificationOutboxRepository.deleteAll();
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    private static String toJson(List<Long> ids) {
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(",", "[", "]"));
+    }
+}
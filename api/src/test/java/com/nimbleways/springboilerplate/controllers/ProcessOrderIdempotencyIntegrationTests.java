@@ -0,0 +1,178 @@
+package com.nimbleways.springboilerplate.controllers;
+
+import com.nimbleways.springboilerplate.entities.Order;
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.ProductType;
+import com.nimbleways.springboilerplate.repositories.OrderRepository;
+import com.nimbleways.springboilerplate.repositories.ProcessedOrderRequestRepository;
+import com.nimbleways.springboilerplate.repositories.ProductRepository;
+import com.nimbleways.springboilerplate.services.implementations.NotificationService;
+import com.nimbleways.springboilerplate.services.implementations.ProcessedOrderStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ProcessOrderIdempotencyIntegrationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private NotificationService notificationService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProcessedOrderRequestRepository processedOrderRequestRepository;
+
+    @Autowired
+    private ProcessedOrderStore processedOrderStore;
+
+    @AfterEach
+    void tearDown() {
+        processedOrderStore.invalidateAll();
+        processedOrderRequestRepository.deleteAll();
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void processOrder_ShouldTakeTheStockOnce_WhenRetried() throws Exception {
+        Product cable = productRepository.save(cable());
+        Long orderId = orderRepository.save(new Order(null, new HashSet<>(Set.of(cable)))).getId();
+
+        for (int i = 0; i < 3; i++) {
+            mockMvc.perform(processOrder(orderId))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.id").value(orderId));
+        }
+
+        assertEquals(9, available(cable));
+    }
+
+    @Test
+    void processOrder_ShouldTakeTheStockAgain_WhenTheKeyDiffers() throws Exception {
+        Product cable = productRepository.save(cable());
+        Long orderId = orderRepository.save(new Order(null, new HashSet<>(Set.of(cable)))).getId();
+
+        mockMvc.perform(processOrder(orderId).header(OrdersController.IDEMPOTENCY_KEY_HEADER, "first"))
+                .andExpect(status().isOk());
+        mockMvc.perform(processOrder(orderId).header(OrdersController.IDEMPOTENCY_KEY_HEADER, "second"))
+                .andExpect(status().isOk());
+        mockMvc.perform(processOrder(orderId).header(OrdersController.IDEMPOTENCY_KEY_HEADER, "second"))
+                .andExpect(status().isOk());
+
+        assertEquals(8, available(cable));
+    }
+
+    @Test
+    void processOrder_ShouldBeRejected_WhenTheKeyWasUsedForAnotherOrder() throws Exception {
+        Product cable = productRepository.save(cable());
+        Long firstOrderId = orderRepository.save(new Order(null, new HashSet<>(Set.of(cable)))).getId();
+        Long secondOrderId = orderRepository.save(new Order(null, new HashSet<>(Set.of(cable)))).getId();
+
+        mockMvc.perform(processOrder(firstOrderId).header(OrdersController.IDEMPOTENCY_KEY_HEADER, "checkout-42"))
+                .andExpect(status().isOk());
+        mockMvc.perform(processOrder(secondOrderId).header(OrdersController.IDEMPOTENCY_KEY_HEADER, "checkout-42"))
+                .andExpect(status().isUnprocessableEntity());
+
+        assertEquals(9, available(cable));
+    }
+
+    @Test
+    void processOrder_ShouldTakeTheStockOnce_WhenRetriedAfterTheCacheWasLost() throws Exception {
+        Product cable = productRepository.save(cable());
+        Long orderId = orderRepository.save(new Order(null, new HashSet<>(Set.of(cable)))).getId();
+
+        mockMvc.perform(processOrder(orderId))
+                .andExpect(status().isOk());
+        // As after a restart
+        processedOrderStore.invalidateAll();
+        mockMvc.perform(processOrder(orderId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(orderId));
+
+        assertEquals(9, available(cable));
+        // Other test classes leave the keys of their own orders behind
+        assertEquals(1, processedOrderRequestRepository.findAll().stream().filter(request -> request.getOrderId().equals(orderId)).count());
+    }
+
+    @Test
+    void processBatch_ShouldTakeTheStockOnce_WhenRetried() throws Exception {
+        Product cable = productRepository.save(cable());
+        Long firstOrderId = orderRepository.save(new Order(null, new HashSet<>(Set.of(cable)))).getId();
+        Long secondOrderId = orderRepository.save(new Order(null, new HashSet<>(Set.of(cable)))).getId();
+
+        for (int i = 0; i < 2; i++) {
+            // As after a restart on the second run
+            processedOrderStore.invalidateAll();
+            mockMvc.perform(processBatch(firstOrderId, secondOrderId))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.length()").value(2))
+                    .andExpect(jsonPath("$[0].id").value(firstOrderId))
+                    .andExpect(jsonPath("$[1].id").value(secondOrderId));
+        }
+
+        assertEquals(8, available(cable));
+    }
+
+    @Test
+    void processBatch_ShouldSkipTheOrdersAlreadyProcessedOneByOne() throws Exception {
+        Product cable = productRepository.save(cable());
+        Long firstOrderId = orderRepository.save(new Order(null, new HashSet<>(Set.of(cable)))).getId();
+        Long secondOrderId = orderRepository.save(new Order(null, new HashSet<>(Set.of(cable)))).getId();
+        mockMvc.perform(processOrder(firstOrderId))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(processBatch(firstOrderId, secondOrderId, -1L))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+        mockMvc.perform(processOrder(secondOrderId))
+                .andExpect(status().isOk());
+
+        assertEquals(8, available(cable));
+        // No key is kept for an order that does not exist
+        assertFalse(processedOrderRequestRepository.existsById("order--1"));
+    }
+
+    private static MockHttpServletRequestBuilder processBatch(Long... orderIds) {
+        return post("/orders/processBatch")
+                .contentType("application/json")
+                .content(Arrays.stream(orderIds).map(String::valueOf).collect(Collectors.joining(",", "[", "]")));
+    }
+
+    private static MockHttpServletRequestBuilder processOrder(Long orderId) {
+        return post("/orders/{orderId}/processOrder", orderId)
+                .contentType("application/json");
+    }
+
+    private static Product cable() {
+        return new Product(null, 15, 10, ProductType.NORMAL, "USB Cable", null, null, null);
+    }
+
+    private int available(Product product) {
+        return productRepository.findById(product.getId()).orElseThrow().getAvailable();
+    }
+}
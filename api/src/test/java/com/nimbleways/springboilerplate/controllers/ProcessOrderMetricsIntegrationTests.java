@@ -0,0 +1,84 @@
+package com.nimbleways.springboilerplate.controllers;
+
+import com.nimbleways.springboilerplate.entities.Order;
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.ProductType;
+import com.nimbleways.springboilerplate.repositories.OrderRepository;
+import com.nimbleways.springboilerplate.repositories.ProductRepository;
+import com.nimbleways.springboilerplate.services.implementations.NotificationService;
+import com.nimbleways.springboilerplate.services.implementations.StockOutMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = {
+        "management.endpoint.prometheus.enabled=true",
+        "management.endpoints.web.exposure.include=prometheus"
+})
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+class ProcessOrderMetricsIntegrationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private NotificationService notificationService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockOutMetrics stockOutMetrics;
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void processOrder_ShouldBeExposedToPrometheus() throws Exception {
+        List<Product> products = productRepository.saveAll(List.of(
+                new Product(null, 15, 30, ProductType.NORMAL, "USB Cable", null, null, null),
+                new Product(null, 10, 0, ProductType.NORMAL, "USB Dongle", null, null, null),
+                new Product(null, 90, 6, ProductType.EXPIRABLE, "Milk", LocalDate.now().minusDays(2), null, null)));
+        Order order = orderRepository.save(new Order(null, Set.copyOf(products)));
+
+        mockMvc.perform(post("/orders/{orderId}/processOrder", order.getId())
+                        .contentType("application/json"))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/orders/{orderId}/processOrder", -1L)
+                        .contentType("application/json"))
+                .andExpect(status().isNotFound());
+        stockOutMetrics.refresh();
+
+        mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("orders_process_seconds_count{result=\"processed\",} 1.0")))
+                .andExpect(content().string(containsString("orders_process_seconds_count{result=\"not_found\",} 1.0")))
+                .andExpect(content().string(containsString("products_outcomes_total{outcome=\"SOLD\",type=\"NORMAL\",} 1.0")))
+                .andExpect(content().string(containsString("products_outcomes_total{outcome=\"DELAYED\",type=\"NORMAL\",} 1.0")))
+                .andExpect(content().string(containsString("products_outcomes_total{outcome=\"EXPIRED\",type=\"EXPIRABLE\",} 1.0")))
+                .andExpect(content().string(containsString("products_delayed_total{product=\"" + products.get(1).getId() + "\",} 1.0")))
+                .andExpect(content().string(containsString("products_stock_out{type=\"EXPIRABLE\",} 1.0")));
+    }
+}
@@ -0,0 +1,87 @@
+package com.nimbleways.springboilerplate.controllers;
+
+import com.nimbleways.springboilerplate.entities.Order;
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.ProductType;
+import com.nimbleways.springboilerplate.repositories.OrderRepository;
+import com.nimbleways.springboilerplate.repositories.ProductRepository;
+import com.nimbleways.springboilerplate.services.implementations.NotificationService;
+import com.nimbleways.springboilerplate.services.implementations.ProductService;
+import com.nimbleways.springboilerplate.utils.QueryCountInspector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Guards the process-order path against N+1 queries on Order.items
+@SpringBootTest
+@AutoConfigureMockMvc
+class ProcessOrderQueryCountIntegrationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private NotificationService notificationService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        List<Product> products = productRepository.saveAll(List.of(
+                new Product(null, 15, 30, ProductType.NORMAL, "USB Cable", null, null, null),
+                new Product(null, 10, 0, ProductType.NORMAL, "USB Dongle", null, null, null),
+                new Product(null, 15, 30, ProductType.EXPIRABLE, "Butter", LocalDate.now().plusDays(26), null, null),
+                new Product(null, 90, 6, ProductType.EXPIRABLE, "Milk", LocalDate.now().minusDays(2), null, null),
+                new Product(null, 15, 30, ProductType.SEASONAL, "Watermelon", null, LocalDate.now().minusDays(2),
+                        LocalDate.now().plusDays(58))));
+        order = orderRepository.save(new Order(null, new HashSet<>(products)));
+        QueryCountInspector.reset();
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void findOrderById_ShouldLoadOrderAndItemsInOneQuery() throws Exception {
+        Order loaded = productService.findOrderById(order.getId());
+
+        // Items are usable outside of any persistence context
+        assertEquals(5, loaded.getItems().size());
+        QueryCountInspector.assertSelectCount(1);
+    }
+
+    @Test
+    void processOrder_ShouldNotIssueOneSelectPerItem() throws Exception {
+        mockMvc.perform(post("/orders/{orderId}/processOrder", order.getId())
+                        .contentType("application/json"))
+                .andExpect(status().isOk());
+
+        // The order with its items, then the idempotency keys already in the notification outbox
+        QueryCountInspector.assertSelectCount(2);
+    }
+}
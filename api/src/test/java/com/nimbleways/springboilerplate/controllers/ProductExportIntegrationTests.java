@@ -0,0 +1,109 @@
+package com.nimbleways.springboilerplate.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nimbleways.springboilerplate.dto.product.ProductDTO;
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.ProductType;
+import com.nimbleways.springboilerplate.repositories.ProductRepository;
+import com.nimbleways.springboilerplate.services.implementations.NotificationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Three rows per round trip, so the cursor fetches several times
+@SpringBootTest(properties = "products.export.fetch-size=3")
+@AutoConfigureMockMvc
+class ProductExportIntegrationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private NotificationService notificationService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final LocalDate today = LocalDate.now();
+
+    private List<Product> products;
+
+    @BeforeEach
+    void setUp() {
+        products = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            products.add(new Product(null, 15, i, ProductType.NORMAL, "USB Cable " + i, null, null, null));
+        }
+        products.add(new Product(null, 15, 30, ProductType.EXPIRABLE, "Butter, \"salted\"", today.plusDays(26), null, null));
+        products = productRepository.saveAll(products);
+    }
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void exportProducts_ShouldWriteOneProductPerLine_WhenNdjson() throws Exception {
+        String body = mockMvc.perform(get("/products/export"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/x-ndjson;charset=UTF-8"))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        List<String> lines = body.lines().toList();
+        assertEquals(products.size(), lines.size());
+        ProductDTO butter = objectMapper.readValue(lines.get(7), ProductDTO.class);
+        assertEquals(products.get(7).getId(), butter.getId());
+        assertEquals("Butter, \"salted\"", butter.getName());
+        assertEquals(ProductType.EXPIRABLE, butter.getType());
+        assertEquals(today.plusDays(26), butter.getExpiryDate());
+    }
+
+    @Test
+    void exportProducts_ShouldQuoteTheValuesHoldingSeparators_WhenCsv() throws Exception {
+        String body = mockMvc.perform(get("/products/export").param("format", "CSV"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        List<String> lines = body.lines().toList();
+        assertEquals(products.size() + 1, lines.size());
+        assertEquals("id,leadTime,available,type,name,expiryDate,seasonStartDate,seasonEndDate", lines.get(0));
+        assertEquals(products.get(0).getId() + ",15,0,NORMAL,USB Cable 0,,,", lines.get(1));
+        assertEquals(products.get(7).getId() + ",15,30,EXPIRABLE,\"Butter, \"\"salted\"\"\"," + today.plusDays(26) + ",,", lines.get(8));
+    }
+
+    @Test
+    void exportProducts_ShouldCompressTheResponse_WhenGzipIsRequested() throws Exception {
+        String plain = mockMvc.perform(get("/products/export").param("format", "CSV"))
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+
+        byte[] compressed = mockMvc.perform(get("/products/export").param("format", "CSV").param("gzip", "true"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertEquals(plain, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+}
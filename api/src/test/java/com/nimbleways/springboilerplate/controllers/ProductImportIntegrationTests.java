@@ -0,0 +1,121 @@
+package com.nimbleways.springboilerplate.controllers;
+
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.repositories.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "products.import.chunk-size=2")
+@AutoConfigureMockMvc
+class ProductImportIntegrationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void importProducts_ShouldImportJsonArray_AndReportRejectedRows() throws Exception {
+        String body = "["
+                + "{\"name\":\"USB Cable\",\"type\":\"NORMAL\",\"available\":30,\"leadTime\":15},"
+                + "{\"name\":\"Butter\",\"type\":\"EXPIRABLE\",\"available\":30,\"leadTime\":15,\"expiryDate\":\"2030-01-01\"},"
+                + "{\"name\":\"No Type\",\"available\":10},"
+                + "{\"name\":\"Bad Type\",\"type\":\"UNKNOWN\"},"
+                + "{\"name\":\"Watermelon\",\"type\":\"SEASONAL\",\"available\":15,\"leadTime\":30,"
+                + "\"seasonStartDate\":\"2030-06-01\",\"seasonEndDate\":\"2030-09-01\"}"
+                + "]";
+
+        mockMvc.perform(post("/products/bulk").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(5))
+                .andExpect(jsonPath("$.imported").value(3))
+                .andExpect(jsonPath("$.rejected").value(2))
+                .andExpect(jsonPath("$.errors[0].row").value(3))
+                .andExpect(jsonPath("$.errors[0].message").value("type is required"))
+                .andExpect(jsonPath("$.errors[1].row").value(4));
+
+        List<Product> products = productRepository.findAll();
+        assertEquals(3, products.size());
+    }
+
+    @Test
+    void importProducts_ShouldImportNdjson_AndSkipMalformedLines() throws Exception {
+        String body = "{\"name\":\"USB Cable\",\"type\":\"NORMAL\",\"available\":30}\n"
+                + "{\"name\":\"Broken\",\n"
+                + "\n"
+                + "{\"name\":\"USB Dongle\",\"type\":\"NORMAL\",\"available\":-1}\n"
+                + "{\"name\":\"Milk\",\"type\":\"EXPIRABLE\",\"available\":6,\"expiryDate\":\"2030-01-01\"}\n";
+
+        mockMvc.perform(post("/products/bulk").contentType(MediaType.APPLICATION_NDJSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(4))
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.errors[0].row").value(2))
+                .andExpect(jsonPath("$.errors[1].message").value("available must not be negative"));
+
+        assertEquals(2, productRepository.count());
+    }
+
+    @Test
+    void importProducts_ShouldRejectRows_WithoutTheDatesTheirTypeRequires() throws Exception {
+        String body = "{\"name\":\"Milk\",\"type\":\"EXPIRABLE\",\"available\":6}\n"
+                + "{\"name\":\"Grapes\",\"type\":\"SEASONAL\",\"available\":10,\"seasonStartDate\":\"2030-06-01\"}\n"
+                + "{\"name\":\"USB Cable\",\"type\":\"NORMAL\",\"available\":30}\n";
+
+        mockMvc.perform(post("/products/bulk").contentType(MediaType.APPLICATION_NDJSON).content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.rejected").value(2))
+                .andExpect(jsonPath("$.errors[0].message").value("expiryDate is required for EXPIRABLE products"))
+                .andExpect(jsonPath("$.errors[1].message").value("seasonEndDate is required for SEASONAL products"));
+
+        assertEquals(1, productRepository.count());
+    }
+
+    @Test
+    void importProducts_ShouldReturnBadRequest_WhenBodyIsNotAnArray() throws Exception {
+        mockMvc.perform(post("/products/bulk").contentType(MediaType.APPLICATION_JSON).content("{\"name\":\"USB Cable\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.received").value(0))
+                .andExpect(jsonPath("$.aborted").value("Import stopped after row 0: Expected a JSON array of products"));
+    }
+
+    @Test
+    void importProducts_ShouldReportTheRowsImported_WhenASyntaxErrorStopsTheImport() throws Exception {
+        String body = "["
+                + "{\"name\":\"USB Cable\",\"type\":\"NORMAL\",\"available\":30},"
+                + "{\"name\":\"USB Dongle\",\"type\":\"NORMAL\",\"available\":20},"
+                + "{\"name\":\"Keyboard\",\"type\":\"NORMAL\",\"available\":10},"
+                + "{\"name\":\"Broken\",,"
+                + "{\"name\":\"Mouse\",\"type\":\"NORMAL\",\"available\":5}"
+                + "]";
+
+        mockMvc.perform(post("/products/bulk").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.received").value(3))
+                .andExpect(jsonPath("$.imported").value(3))
+                .andExpect(jsonPath("$.aborted").value(startsWith("Import stopped after row 3: ")));
+
+        // The chunk inserted before the error and the rows read since are kept
+        assertEquals(3, productRepository.count());
+    }
+}
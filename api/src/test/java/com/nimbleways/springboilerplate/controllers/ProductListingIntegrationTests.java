@@ -0,0 +1,137 @@
+package com.nimbleways.springboilerplate.controllers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.ProductType;
+import com.nimbleways.springboilerplate.repositories.ProductRepository;
+import com.nimbleways.springboilerplate.services.implementations.NotificationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ProductListingIntegrationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private NotificationService notificationService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final LocalDate today = LocalDate.now();
+
+    @BeforeEach
+    void setUp() {
+        productRepository.saveAll(List.of(
+                new Product(null, 15, 30, ProductType.NORMAL, "USB Cable", null, null, null),
+                new Product(null, 10, 0, ProductType.NORMAL, "USB Dongle", null, null, null),
+                new Product(null, 15, 30, ProductType.EXPIRABLE, "Butter", today.plusDays(26), null, null),
+                new Product(null, 90, 6, ProductType.EXPIRABLE, "Milk", today.minusDays(2), null, null),
+                new Product(null, 15, 30, ProductType.SEASONAL, "Watermelon", null, today.minusDays(2), today.plusDays(58)),
+                new Product(null, 15, 30, ProductType.SEASONAL, "Grapes", null, today.plusDays(180), today.plusDays(240))));
+    }
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void listProducts_ShouldWalkEveryProductOnce_WhenFollowingTheCursor() throws Exception {
+        List<String> names = new ArrayList<>();
+        assertEquals(2, walk(() -> get("/products").param("size", "4"), names));
+        assertEquals(List.of("USB Cable", "USB Dongle", "Butter", "Milk", "Watermelon", "Grapes"), names);
+    }
+
+    @Test
+    void listProducts_ShouldBeSortedByTheDate_WhenADateIsBounded() throws Exception {
+        productRepository.save(new Product(null, 15, 30, ProductType.EXPIRABLE, "Cheese", today.minusDays(2), null, null));
+        List<String> names = new ArrayList<>();
+
+        assertEquals(3, walk(() -> get("/products").param("size", "1").param("expiresTo", today.plusDays(30).toString()), names));
+
+        // By expiry date then ID, not by ID
+        assertEquals(List.of("Milk", "Cheese", "Butter"), names);
+    }
+
+    @Test
+    void listProducts_ShouldBeRejected_WhenTheCursorIsNotOneOfTheListing() throws Exception {
+        mockMvc.perform(get("/products").param("after", "yesterday"))
+                .andExpect(status().isBadRequest());
+        // An ID order cursor cannot continue a listing sorted by expiry date
+        mockMvc.perform(get("/products").param("expiresTo", today.toString()).param("after", "42"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void listProducts_ShouldApplyTheFilters() throws Exception {
+        assertEquals(List.of("USB Cable"), names(get("/products").param("type", "NORMAL").param("minAvailable", "1")));
+        assertEquals(List.of("USB Dongle", "Milk"), names(get("/products").param("maxAvailable", "10")));
+        assertEquals(List.of("Milk"), names(get("/products").param("expiresTo", today.toString())));
+        assertEquals(List.of("Butter"), names(get("/products")
+                .param("expiresFrom", today.toString())
+                .param("expiresTo", today.plusDays(30).toString())));
+        assertEquals(List.of("Watermelon"), names(get("/products")
+                .param("seasonFrom", today.toString())
+                .param("seasonTo", today.plusDays(30).toString())));
+    }
+
+    @Test
+    void listProducts_ShouldBeRejected_WhenThePageSizeIsOutOfRange() throws Exception {
+        mockMvc.perform(get("/products").param("size", "0"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/products").param("size", "501"))
+                .andExpect(status().isBadRequest());
+    }
+
+    // Reads every page of a listing, returns the number of pages
+    private int walk(Supplier<MockHttpServletRequestBuilder> listing, List<String> names) throws Exception {
+        MockHttpServletRequestBuilder request = listing.get();
+        int pages = 0;
+        while (true) {
+            JsonNode page = list(request);
+            page.get("items").forEach(item -> names.add(item.get("name").asText()));
+            pages++;
+            if (page.get("after").isNull()) {
+                return pages;
+            }
+            request = listing.get().param("after", page.get("after").asText());
+        }
+    }
+
+    private List<String> names(MockHttpServletRequestBuilder request) throws Exception {
+        List<String> names = new ArrayList<>();
+        list(request).get("items").forEach(item -> names.add(item.get("name").asText()));
+        return names;
+    }
+
+    private JsonNode list(MockHttpServletRequestBuilder request) throws Exception {
+        String body = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+}
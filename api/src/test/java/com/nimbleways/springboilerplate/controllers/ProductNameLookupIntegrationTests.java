@@ -0,0 +1,91 @@
+package com.nimbleways.springboilerplate.controllers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.ProductType;
+import com.nimbleways.springboilerplate.repositories.ProductRepository;
+import com.nimbleways.springboilerplate.services.implementations.NotificationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ProductNameLookupIntegrationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private NotificationService notificationService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @BeforeEach
+    void setUp() {
+        productRepository.saveAll(List.of(
+                new Product(null, 15, 30, ProductType.NORMAL, "USB Cable", null, null, null),
+                new Product(null, 10, 0, ProductType.NORMAL, "usb Dongle", null, null, null),
+                new Product(null, 15, 30, ProductType.NORMAL, "USB_C Charger", null, null, null),
+                new Product(null, 15, 30, ProductType.NORMAL, "Butter", null, null, null)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void findProductNames_ShouldReturnTheNamesStartingWithThePrefix_WhateverTheirCase() throws Exception {
+        assertEquals(List.of("USB Cable", "usb Dongle", "USB_C Charger"), names("Usb", 10));
+        assertEquals(List.of("USB Cable"), names("usb", 1));
+        // The underscore typed is not a wildcard
+        assertEquals(List.of("USB_C Charger"), names("usb_", 10));
+    }
+
+    @Test
+    void findProductNames_ShouldBeRejected_WhenThePrefixIsBlankOrTheLimitOutOfRange() throws Exception {
+        mockMvc.perform(get("/products/names").param("prefix", " "))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/products/names").param("prefix", "usb").param("limit", "101"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getProductByName_ShouldIgnoreTheCase() throws Exception {
+        mockMvc.perform(get("/products/by-name").param("name", "USB DONGLE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("usb Dongle"));
+        mockMvc.perform(get("/products/by-name").param("name", "USB"))
+                .andExpect(status().isNotFound());
+    }
+
+    private List<String> names(String prefix, int limit) throws Exception {
+        String body = mockMvc.perform(get("/products/names").param("prefix", prefix).param("limit", String.valueOf(limit)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        List<String> names = new ArrayList<>();
+        for (JsonNode name : objectMapper.readTree(body)) {
+            names.add(name.get("name").asText());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,180 @@
+package com.nimbleways.springboilerplate.controllers;
+
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.ProductType;
+import com.nimbleways.springboilerplate.repositories.ProductRepository;
+import com.nimbleways.springboilerplate.services.implementations.NotificationService;
+import com.nimbleways.springboilerplate.utils.QueryCountInspector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Two stock levels per JDBC batch, so a batch update runs several batches
+@SpringBootTest(properties = "products.patch.batch-size=2")
+@AutoConfigureMockMvc
+class ProductPatchIntegrationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private NotificationService notificationService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final LocalDate today = LocalDate.now();
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void patchProduct_ShouldWriteTheStockWithoutReadingTheProduct() throws Exception {
+        Product product = productRepository.save(new Product(null, 15, 30, ProductType.EXPIRABLE, "Butter", today.plusDays(26), null, null));
+        QueryCountInspector.reset();
+
+        mockMvc.perform(patch("/products/{productId}", product.getId())
+                        .contentType("application/merge-patch+json")
+                        .content("{\"available\":40}"))
+                .andExpect(status().isNoContent());
+
+        QueryCountInspector.assertSelectCount(0);
+        QueryCountInspector.assertUpdateCount(1);
+        Product stored = productRepository.findById(product.getId()).orElseThrow();
+        assertEquals(40, stored.getAvailable());
+        assertEquals("Butter", stored.getName());
+        assertEquals(today.plusDays(26), stored.getExpiryDate());
+        assertEquals(product.getVersion() + 1, stored.getVersion());
+    }
+
+    @Test
+    void patchProduct_ShouldClearTheDatesGivenAsNull() throws Exception {
+        Product product = productRepository.save(new Product(null, 15, 30, ProductType.SEASONAL, "Watermelon", null,
+                today.minusDays(2), today.plusDays(58)));
+
+        mockMvc.perform(patch("/products/{productId}", product.getId())
+                        .contentType("application/merge-patch+json")
+                        .content("{\"type\":\"NORMAL\",\"seasonStartDate\":null,\"seasonEndDate\":null}"))
+                .andExpect(status().isNoContent());
+
+        Product stored = productRepository.findById(product.getId()).orElseThrow();
+        assertEquals(ProductType.NORMAL, stored.getType());
+        assertNull(stored.getSeasonStartDate());
+        assertNull(stored.getSeasonEndDate());
+        assertEquals(30, stored.getAvailable());
+    }
+
+    @Test
+    void patchProduct_ShouldBeRejected_WhenItLeavesTheProductWithoutTheDatesItsTypeRequires() throws Exception {
+        Product butter = productRepository.save(new Product(null, 15, 30, ProductType.EXPIRABLE, "Butter", today.plusDays(26), null, null));
+        Product cable = productRepository.save(new Product(null, 15, 30, ProductType.NORMAL, "USB Cable", null, null, null));
+
+        mockMvc.perform(patch("/products/{productId}", butter.getId())
+                        .contentType("application/merge-patch+json")
+                        .content("{\"expiryDate\":null}"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(patch("/products/{productId}", cable.getId())
+                        .contentType("application/merge-patch+json")
+                        .content("{\"type\":\"SEASONAL\",\"seasonStartDate\":\"" + today + "\"}"))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(today.plusDays(26), productRepository.findById(butter.getId()).orElseThrow().getExpiryDate());
+        assertEquals(ProductType.NORMAL, productRepository.findById(cable.getId()).orElseThrow().getType());
+    }
+
+    @Test
+    void patchProduct_ShouldChangeTheType_WhenTheProductHasTheDatesItRequires() throws Exception {
+        Product product = productRepository.save(new Product(null, 15, 30, ProductType.NORMAL, "Watermelon", null,
+                today.minusDays(2), null));
+
+        mockMvc.perform(patch("/products/{productId}", product.getId())
+                        .contentType("application/merge-patch+json")
+                        .content("{\"type\":\"SEASONAL\",\"seasonEndDate\":\"" + today.plusDays(58) + "\"}"))
+                .andExpect(status().isNoContent());
+
+        Product stored = productRepository.findById(product.getId()).orElseThrow();
+        assertEquals(ProductType.SEASONAL, stored.getType());
+        assertEquals(today.minusDays(2), stored.getSeasonStartDate());
+        assertEquals(today.plusDays(58), stored.getSeasonEndDate());
+    }
+
+    @Test
+    void patchProduct_ShouldReturnNotFound_WhenTheProductDoesNotExist() throws Exception {
+        mockMvc.perform(patch("/products/{productId}", 404L)
+                        .contentType("application/merge-patch+json")
+                        .content("{\"leadTime\":3}"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void patchProduct_ShouldBeRejected_WhenTheStockIsNegative() throws Exception {
+        Product product = productRepository.save(new Product(null, 15, 30, ProductType.NORMAL, "USB Cable", null, null, null));
+
+        mockMvc.perform(patch("/products/{productId}", product.getId())
+                        .contentType("application/merge-patch+json")
+                        .content("{\"available\":-1}"))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(30, productRepository.findAvailableById(product.getId()).orElseThrow());
+    }
+
+    @Test
+    void updateStock_ShouldWriteEveryLevelAndReportTheUnknownProducts() throws Exception {
+        List<Product> products = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            products.add(new Product(null, 15, i, ProductType.NORMAL, "USB Cable " + i, null, null, null));
+        }
+        products = productRepository.saveAll(products);
+        long unknownId = products.get(4).getId() + 1000;
+        String levels = products.stream()
+                .map(p -> "{\"id\":" + p.getId() + ",\"available\":" + (p.getAvailable() + 100) + "}")
+                .collect(Collectors.joining(",", "[", ",{\"id\":" + unknownId + ",\"available\":1}]"));
+        QueryCountInspector.reset();
+
+        mockMvc.perform(patch("/products/stock")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(levels))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received").value(6))
+                .andExpect(jsonPath("$.updated").value(5))
+                .andExpect(jsonPath("$.unknownIds[0]").value(unknownId));
+
+        // Written through JDBC, Hibernate neither reads nor writes any product
+        QueryCountInspector.assertSelectCount(0);
+        for (Product product : products) {
+            Product stored = productRepository.findById(product.getId()).orElseThrow();
+            assertEquals(product.getAvailable() + 100, stored.getAvailable());
+            assertEquals(product.getName(), stored.getName());
+        }
+    }
+
+    @Test
+    void updateStock_ShouldWriteNothing_WhenALevelIsInvalid() throws Exception {
+        Product product = productRepository.save(new Product(null, 15, 30, ProductType.NORMAL, "USB Cable", null, null, null));
+
+        mockMvc.perform(patch("/products/stock")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"id\":" + product.getId() + ",\"available\":5},{\"id\":" + product.getId() + "}]"))
+                .andExpect(status().isBadRequest());
+
+        assertEquals(30, productRepository.findAvailableById(product.getId()).orElseThrow());
+    }
+}
@@ -1,8 +1,14 @@
 package com.nimbleways.springboilerplate.controllers;
 
 import com.nimbleways.springboilerplate.dto.product.ProductDTO;
+import com.nimbleways.springboilerplate.dto.product.ProductDateEvent;
 import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.ProductDateEventType;
 import com.nimbleways.springboilerplate.mappers.ProductMapper;
+import com.nimbleways.springboilerplate.services.implementations.ProductAvailabilityIndex;
+import com.nimbleways.springboilerplate.services.implementations.ProductExportService;
+import com.nimbleways.springboilerplate.services.implementations.ProductImportService;
+import com.nimbleways.springboilerplate.services.implementations.ProductPatchService;
 import com.nimbleways.springboilerplate.services.implementations.ProductService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,11 +17,17 @@ import org.mockito.MockitoAnnotations;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
+import java.time.LocalDate;
+import java.util.List;
+
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
@@ -33,6 +45,18 @@ class ProductsControllerTests {
     @MockBean
     private ProductMapper productMapper;
 
+    @MockBean
+    private ProductImportService productImportService;
+
+    @MockBean
+    private ProductAvailabilityIndex productAvailabilityIndex;
+
+    @MockBean
+    private ProductExportService productExportService;
+
+    @MockBean
+    private ProductPatchService productPatchService;
+
     @InjectMocks
     private ProductsController productsController;
 
@@ -92,10 +116,11 @@ class ProductsControllerTests {
         when(productMapper.toDTO(any(Product.class))).thenReturn(productDTO);
 
         // Mock service behavior to return the updated Product
-        when(productService.updateProduct(eq(productId), any(Product.class))).thenReturn(product);
+        when(productService.updateProduct(eq(productId), any(Product.class), eq(3L))).thenReturn(product);
 
         // Act & Assert
         mockMvc.perform(put("/products/{productId}", productId)
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
                         .contentType(MediaType.APPLICATION_JSON)
                         .content("{\"name\":\"Updated Product\",\"available\":10,\"leadTime\":5}"))
                 .andExpect(status().isOk())
@@ -106,7 +131,38 @@ class ProductsControllerTests {
         // Verify that the service and mapper methods were called correctly
         verify(productMapper, times(1)).toEntity(any(ProductDTO.class));
         verify(productMapper, times(1)).toDTO(any(Product.class));
-        verify(productService, times(1)).updateProduct(eq(productId), any(Product.class));
+        verify(productService, times(1)).updateProduct(eq(productId), any(Product.class), eq(3L));
+    }
+
+    @Test
+    void patchProduct_ShouldBeRejected_WhenThePatchNamesAnAttributeThatCannotBePatched() throws Exception {
+        mockMvc.perform(patch("/products/{productId}", 1L)
+                        .contentType("application/merge-patch+json")
+                        .content("{\"available\":10,\"version\":3}"))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(productPatchService);
+    }
+
+    @Test
+    void getExpiringProducts_ShouldListTheExpirationsOfTheComingDays() throws Exception {
+        LocalDate today = LocalDate.of(2024, 3, 1);
+        when(productAvailabilityIndex.today()).thenReturn(today);
+        when(productAvailabilityIndex.expiringBetween(today, today.plusDays(3)))
+                .thenReturn(List.of(new ProductDateEvent(7L, ProductDateEventType.EXPIRY, today.plusDays(2))));
+
+        mockMvc.perform(get("/products/expiring").param("days", "3"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].productId").value(7L))
+                .andExpect(jsonPath("$[0].type").value("EXPIRY"));
+    }
+
+    @Test
+    void getSeasonTransitions_ShouldBeRejected_WhenTheDaysAreNegative() throws Exception {
+        mockMvc.perform(get("/products/season-transitions").param("days", "-1"))
+                .andExpect(status().isBadRequest());
+
+        verify(productAvailabilityIndex, never()).seasonTransitionsBetween(any(), any());
     }
 
 
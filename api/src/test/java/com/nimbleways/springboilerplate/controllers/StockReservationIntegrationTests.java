@@ -0,0 +1,154 @@
+package com.nimbleways.springboilerplate.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nimbleways.springboilerplate.entities.Order;
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.entities.StockReservation;
+import com.nimbleways.springboilerplate.enums.ProductType;
+import com.nimbleways.springboilerplate.enums.ReservationStatus;
+import com.nimbleways.springboilerplate.repositories.OrderRepository;
+import com.nimbleways.springboilerplate.repositories.ProductRepository;
+import com.nimbleways.springboilerplate.repositories.StockReservationRepository;
+import com.nimbleways.springboilerplate.services.implementations.NotificationService;
+import com.nimbleways.springboilerplate.services.implementations.StockReservationSweeper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class StockReservationIntegrationTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private NotificationService notificationService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private StockReservationRepository reservationRepository;
+
+    @Autowired
+    private StockReservationSweeper reservationSweeper;
+
+    @AfterEach
+    void tearDown() {
+        reservationRepository.deleteAll();
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void reserve_ShouldHoldTheStockUntilCommitted() throws Exception {
+        Product cable = save(new Product(null, 15, 3, ProductType.NORMAL, "USB Cable", null, null, null));
+        Product butter = save(new Product(null, 15, 2, ProductType.EXPIRABLE, "Butter", LocalDate.now().plusDays(26), null, null));
+        Long orderId = createOrder(cable, butter);
+
+        Long reservationId = reserve(orderId);
+        assertStock(cable, 2, 1);
+        assertStock(butter, 1, 1);
+
+        mockMvc.perform(post("/reservations/{reservationId}/commit", reservationId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("COMMITTED"));
+        assertStock(cable, 2, 0);
+        assertStock(butter, 1, 0);
+
+        mockMvc.perform(post("/reservations/{reservationId}/release", reservationId))
+                .andExpect(status().isConflict());
+        assertStock(cable, 2, 0);
+    }
+
+    @Test
+    void reserve_ShouldReserveNothing_WhenAnItemCannotBeReserved() throws Exception {
+        Product cable = save(new Product(null, 15, 3, ProductType.NORMAL, "USB Cable", null, null, null));
+        Product dongle = save(new Product(null, 10, 0, ProductType.NORMAL, "USB Dongle", null, null, null));
+        Long orderId = createOrder(cable, dongle);
+
+        mockMvc.perform(post("/orders/{orderId}/reserve", orderId))
+                .andExpect(status().isConflict());
+
+        assertStock(cable, 3, 0);
+        assertStock(dongle, 0, 0);
+        assertEquals(0, reservationRepository.count());
+    }
+
+    @Test
+    void release_ShouldGiveTheStockBack() throws Exception {
+        Product cable = save(new Product(null, 15, 1, ProductType.NORMAL, "USB Cable", null, null, null));
+        Long orderId = createOrder(cable);
+        Long reservationId = reserve(orderId);
+
+        // The only unit is held, a second reservation of the same product fails
+        mockMvc.perform(post("/orders/{orderId}/reserve", createOrder(cable)))
+                .andExpect(status().isConflict());
+
+        mockMvc.perform(post("/reservations/{reservationId}/release", reservationId))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("RELEASED"));
+        assertStock(cable, 1, 0);
+    }
+
+    @Test
+    void sweep_ShouldReleaseExpiredReservations() throws Exception {
+        Product cable = save(new Product(null, 15, 3, ProductType.NORMAL, "USB Cable", null, null, null));
+        Long expiredId = reserve(createOrder(cable));
+        Long heldId = reserve(createOrder(cable));
+        StockReservation expired = reservationRepository.findById(expiredId).orElseThrow();
+        expired.setExpiresAt(Instant.now().minusSeconds(1));
+        reservationRepository.save(expired);
+
+        assertEquals(1, reservationSweeper.sweep());
+
+        assertStock(cable, 2, 1);
+        assertEquals(ReservationStatus.EXPIRED, reservationRepository.findById(expiredId).orElseThrow().getStatus());
+        assertEquals(ReservationStatus.HELD, reservationRepository.findById(heldId).orElseThrow().getStatus());
+        mockMvc.perform(post("/reservations/{reservationId}/commit", expiredId))
+                .andExpect(status().isConflict());
+    }
+
+    // Products are saved once: saving them again would write back the stock they were created with
+    private Product save(Product product) {
+        return productRepository.save(product);
+    }
+
+    private Long createOrder(Product... products) {
+        return orderRepository.save(new Order(null, Set.of(products))).getId();
+    }
+
+    private Long reserve(Long orderId) throws Exception {
+        String body = mockMvc.perform(post("/orders/{orderId}/reserve", orderId))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.status").value("HELD"))
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("id").asLong();
+    }
+
+    private void assertStock(Product product, int available, int reserved) {
+        Product stored = productRepository.findById(product.getId()).orElseThrow();
+        assertEquals(available, stored.getAvailable(), "available units of " + product.getName());
+        assertEquals(reserved, stored.getReserved(), "reserved units of " + product.getName());
+    }
+}
@@ -0,0 +1,11 @@
+package com.nimbleways.springboilerplate.loadtests;
+
+// Load scenarios against the embedded H2 database used by the other tests.
+// Excluded from the default test run, execute it with: mvnw test -Pload-test
+class H2LoadTests extends LoadTestSupport {
+
+    @Override
+    protected String database() {
+        return "h2";
+    }
+}
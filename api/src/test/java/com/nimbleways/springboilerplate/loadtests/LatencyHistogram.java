@@ -0,0 +1,106 @@
+package com.nimbleways.springboilerplate.loadtests;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe latency histogram with microsecond resolution and log-linear buckets: every power
+ * of two is split into 8 buckets, so a reported value is at most 12.5% above the recorded one.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Up to 2^40 microseconds, far beyond any request timeout
+    private static final int MAX_MAGNITUDE = 40;
+
+    private final AtomicLongArray counts = new AtomicLongArray((MAX_MAGNITUDE + 1) * SUB_BUCKETS);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+    void recordNanos(long nanos) {
+        long micros = Math.max(1, nanos / 1_000);
+        counts.incrementAndGet(bucketOf(micros));
+        totalCount.increment();
+        totalMicros.add(micros);
+        maxMicros.accumulate(micros);
+    }
+
+    long count() {
+        return totalCount.sum();
+    }
+
+    long maxMicros() {
+        return maxMicros.get();
+    }
+
+    double meanMicros() {
+        long count = count();
+        return count == 0 ? 0 : (double) totalMicros.sum() / count;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the upper bound of the bucket holding the given percentile, in microseconds
+     */
+    long percentileMicros(double percentile) {
+        long count = count();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), maxMicros());
+            }
+        }
+        return maxMicros();
+    }
+
+    // One line per non-empty bucket: range, count and cumulative share
+    String render() {
+        StringBuilder out = new StringBuilder();
+        long count = count();
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            long bucketCount = counts.get(i);
+            if (bucketCount == 0) {
+                continue;
+            }
+            seen += bucketCount;
+            out.append(String.format("  %10d - %10d us %10d %8.3f%%%n", lowerBound(i), upperBound(i), bucketCount, 100.0 * seen / count));
+        }
+        return out.toString();
+    }
+
+    // Values below 8 get their own bucket, the others are indexed by magnitude and 3 most significant bits after the leading one
+    private static int bucketOf(long micros) {
+        int magnitude = 63 - Long.numberOfLeadingZeros(micros);
+        if (magnitude < SUB_BUCKET_BITS) {
+            return (int) micros;
+        }
+        magnitude = Math.min(magnitude, MAX_MAGNITUDE);
+        int subBucket = (int) ((micros >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+        return magnitude * SUB_BUCKETS + subBucket;
+    }
+
+    private static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int magnitude = bucket / SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (magnitude - SUB_BUCKET_BITS);
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int magnitude = bucket / SUB_BUCKETS;
+        return lowerBound(bucket) + (1L << (magnitude - SUB_BUCKET_BITS)) - 1;
+    }
+}
@@ -0,0 +1,373 @@
+package com.nimbleways.springboilerplate.loadtests;
+
+import com.nimbleways.springboilerplate.controllers.OrdersController;
+import com.nimbleways.springboilerplate.entities.Order;
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.ProductType;
+import com.nimbleways.springboilerplate.repositories.NotificationOutboxRepository;
+import com.nimbleways.springboilerplate.repositories.OrderRepository;
+import com.nimbleways.springboilerplate.repositories.ProcessedOrderRequestRepository;
+import com.nimbleways.springboilerplate.repositories.ProductRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Load scenarios run against the application started on a random port, over real HTTP.
+ * Subclasses choose the database. Sizes are read from system properties so the same scenarios
+ * can be replayed at another scale, e.g. mvnw test -Pload-test -Dloadtest.concurrency=64
+ * Each scenario logs its throughput and latency histogram and writes them to target/load-tests.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+abstract class LoadTestSupport {
+
+    private static final int PRODUCTS = Integer.getInteger("loadtest.products", 1_000);
+    private static final int ORDERS = Integer.getInteger("loadtest.orders", 2_000);
+    private static final int ITEMS_PER_ORDER = Integer.getInteger("loadtest.items-per-order", 5);
+    private static final int CONCURRENCY = Integer.getInteger("loadtest.concurrency", 16);
+    private static final int REQUESTS = Integer.getInteger("loadtest.requests", 5_000);
+    private static final int WARMUP_REQUESTS = Integer.getInteger("loadtest.warmup-requests", 500);
+    // Share of each product type among the seeded products
+    private static final String TYPE_SKEW = System.getProperty("loadtest.type-skew", "NORMAL=60,SEASONAL=20,EXPIRABLE=20");
+    // Share of the seeded products that are out of stock, to exercise the notification paths
+    private static final int OUT_OF_STOCK_PERCENT = Integer.getInteger("loadtest.out-of-stock-percent", 10);
+    // Lower than the number of requests, so that the hot product runs out during the scenario
+    private static final int HOT_PRODUCT_STOCK = Integer.getInteger("loadtest.hot-product-stock", 1_000);
+    // Few products, so that orders and product updates keep conflicting on the same rows
+    private static final int CONTENDED_PRODUCTS = Integer.getInteger("loadtest.contended-products", 8);
+    private static final int CONTENDED_STOCK = 100_000_000;
+    private static final long SEED = Long.getLong("loadtest.seed", 42L);
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoadTestSupport.class);
+
+    private static final Path REPORT_DIRECTORY = Path.of("target", "load-tests");
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private NotificationOutboxRepository notificationOutboxRepository;
+
+    @Autowired
+    private ProcessedOrderRequestRepository processedOrderRequestRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final Random random = new Random(SEED);
+
+    // Name of the database, used in the reports
+    protected abstract String database();
+
+    @AfterEach
+    void tearDown() {
+        processedOrderRequestRepository.deleteAllInBatch();
+        notificationOutboxRepository.deleteAllInBatch();
+        orderRepository.deleteAll();
+        productRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void processOrder() throws Exception {
+        List<Product> products = seedProducts();
+        List<Long> orderIds = seedOrders(products);
+
+        // Orders are processed again and again, each request under its own idempotency key
+        LoadReport report = run("process-order", i -> post("/orders/" + orderIds.get(i % orderIds.size()) + "/processOrder",
+                UUID.randomUUID().toString()));
+
+        assertEquals(0, report.errors(), "failed requests");
+        assertEquals(0, report.conflicts(), "conflicting requests");
+    }
+
+    @Test
+    void updateProduct() throws Exception {
+        List<Product> products = seedProducts();
+
+        LoadReport report = run("update-product", i -> {
+            Product p = products.get(i % products.size());
+            return HttpRequest.newBuilder(uri("/products/" + p.getId()))
+                    .header("Content-Type", "application/json")
+                    .header("If-Match", currentETag(p))
+                    .PUT(HttpRequest.BodyPublishers.ofString(toJson(p, i % 30)))
+                    .build();
+        });
+
+        // Clients updating the same product at once are answered 409, all but the first of them
+        assertEquals(0, report.errors(), "failed requests");
+    }
+
+    // Every order contains the same product, so all requests compete for the same stock row
+    @Test
+    void processOrder_HotProduct() throws Exception {
+        List<Product> products = seedProducts();
+        Product hot = productRepository.save(new Product(null, 10, HOT_PRODUCT_STOCK, ProductType.NORMAL, "Hot product", null, null, null));
+        List<Long> orderIds = new ArrayList<>(WARMUP_REQUESTS + REQUESTS);
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < WARMUP_REQUESTS + REQUESTS; i++) {
+            orders.add(new Order(null, Set.of(hot, products.get(random.nextInt(products.size())))));
+        }
+        orderRepository.saveAll(orders).forEach(order -> orderIds.add(order.getId()));
+
+        AtomicInteger next = new AtomicInteger();
+        LoadReport report = run("process-order-hot-product", i -> post("/orders/" + orderIds.get(next.getAndIncrement()) + "/processOrder"));
+
+        assertEquals(0, report.errors(), "failed requests");
+        assertEquals(0, report.conflicts(), "conflicting requests");
+        // Each order took one unit while there was stock left, no more and no less
+        int expectedStock = Math.max(0, HOT_PRODUCT_STOCK - WARMUP_REQUESTS - REQUESTS);
+        assertEquals(expectedStock, productRepository.findAvailableById(hot.getId()).orElseThrow());
+    }
+
+    // Orders and product updates compete for a few products, for several shares of updates. The updates
+    // set the stock back to a high value, as a warehouse feed would; the updates of a product an order took
+    // stock from since it was read, and the orders still conflicting once their optimistic retries are
+    // exhausted, are answered 409 and reported apart from the errors
+    @ParameterizedTest
+    @ValueSource(ints = {0, 10, 50})
+    void mixedUpdatesAndOrders_ContendedProducts(int updatePercent) throws Exception {
+        List<Product> products = new ArrayList<>(CONTENDED_PRODUCTS);
+        for (int i = 0; i < CONTENDED_PRODUCTS; i++) {
+            products.add(new Product(null, 10, CONTENDED_STOCK, ProductType.NORMAL, "Contended " + i, null, null, null));
+        }
+        List<Product> contended = productRepository.saveAll(products);
+        List<Order> orders = new ArrayList<>(ORDERS);
+        for (int i = 0; i < ORDERS; i++) {
+            orders.add(new Order(null, Set.of(contended.get(i % contended.size()), contended.get((i + 1) % contended.size()))));
+        }
+        List<Long> orderIds = orderRepository.saveAll(orders).stream().map(Order::getId).toList();
+
+        LoadReport report = run("mixed-" + updatePercent + "pct-updates", i -> {
+            ThreadLocalRandom draw = ThreadLocalRandom.current();
+            if (draw.nextInt(100) < updatePercent) {
+                Product p = contended.get(draw.nextInt(contended.size()));
+                return HttpRequest.newBuilder(uri("/products/" + p.getId()))
+                        .header("Content-Type", "application/json")
+                        .header("If-Match", currentETag(p))
+                        .PUT(HttpRequest.BodyPublishers.ofString(toJson(p, p.getLeadTime())))
+                        .build();
+            }
+            return post("/orders/" + orderIds.get(draw.nextInt(orderIds.size())) + "/processOrder", UUID.randomUUID().toString());
+        });
+
+        assertEquals(0, report.errors(), "failed requests");
+    }
+
+    // The version an update is made at, read just before the update as a client would
+    private String currentETag(Product p) {
+        return "\"" + productRepository.findVersionById(p.getId()).orElseThrow() + "\"";
+    }
+
+    private LoadReport run(String scenario, IntFunction<HttpRequest> requestFactory) throws Exception {
+        drive(WARMUP_REQUESTS, requestFactory, new LatencyHistogram(), new AtomicLong(), new AtomicLong());
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        AtomicLong errors = new AtomicLong();
+        AtomicLong conflicts = new AtomicLong();
+        OptimisticCounts before = optimisticCounts();
+        long start = System.nanoTime();
+        drive(REQUESTS, requestFactory, histogram, errors, conflicts);
+        long elapsedNanos = System.nanoTime() - start;
+
+        LoadReport report = new LoadReport(database() + "/" + scenario, REQUESTS, errors.get(), conflicts.get(), elapsedNanos,
+                histogram, optimisticCounts().minus(before));
+        String text = report.render();
+        LOGGER.info(text);
+        Files.createDirectories(REPORT_DIRECTORY);
+        Files.writeString(REPORT_DIRECTORY.resolve(database() + "-" + scenario + ".txt"), text);
+        assertTrue(histogram.count() > 0, "no request was measured");
+        return report;
+    }
+
+    // Closed loop: CONCURRENCY clients each sending their next request as soon as the previous one is answered
+    private void drive(int requests, IntFunction<HttpRequest> requestFactory, LatencyHistogram histogram, AtomicLong errors,
+                       AtomicLong conflicts) throws InterruptedException {
+        AtomicInteger sent = new AtomicInteger();
+        ExecutorService clients = Executors.newFixedThreadPool(CONCURRENCY);
+        for (int c = 0; c < CONCURRENCY; c++) {
+            clients.execute(() -> {
+                int i;
+                while ((i = sent.getAndIncrement()) < requests) {
+                    HttpRequest request = requestFactory.apply(i);
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                        histogram.recordNanos(System.nanoTime() - start);
+                        if (response.statusCode() == 409) {
+                            conflicts.incrementAndGet();
+                        } else if (response.statusCode() >= 300) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        errors.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            });
+        }
+        clients.shutdown();
+        if (!clients.awaitTermination(10, TimeUnit.MINUTES)) {
+            clients.shutdownNow();
+            throw new IllegalStateException("Load test did not complete within 10 minutes");
+        }
+    }
+
+    private OptimisticCounts optimisticCounts() {
+        return new OptimisticCounts(count("products.optimistic.conflicts"), count("products.optimistic.retries"),
+                count("products.optimistic.exhausted"));
+    }
+
+    private double count(String name) {
+        return meterRegistry.find(name).counters().stream().mapToDouble(Counter::count).sum();
+    }
+
+    private List<Product> seedProducts() {
+        Map<ProductType, Integer> weights = parseTypeSkew();
+        int totalWeight = weights.values().stream().mapToInt(Integer::intValue).sum();
+        LocalDate today = LocalDate.now();
+        List<Product> products = new ArrayList<>(PRODUCTS);
+        for (int i = 0; i < PRODUCTS; i++) {
+            ProductType type = pickType(weights, random.nextInt(totalWeight));
+            int available = random.nextInt(100) < OUT_OF_STOCK_PERCENT ? 0 : 1_000_000;
+            switch (type) {
+                case NORMAL -> products.add(new Product(null, 10, available, type, "Normal " + i, null, null, null));
+                case SEASONAL -> products.add(new Product(null, 10, available, type, "Seasonal " + i, null,
+                        today.minusDays(10), today.plusDays(60)));
+                case EXPIRABLE -> products.add(new Product(null, 10, available, type, "Expirable " + i,
+                        today.plusDays(30), null, null));
+            }
+        }
+        return productRepository.saveAll(products);
+    }
+
+    private List<Long> seedOrders(List<Product> products) {
+        List<Order> orders = new ArrayList<>(ORDERS);
+        for (int i = 0; i < ORDERS; i++) {
+            Set<Product> items = new HashSet<>();
+            while (items.size() < Math.min(ITEMS_PER_ORDER, products.size())) {
+                items.add(products.get(random.nextInt(products.size())));
+            }
+            orders.add(new Order(null, items));
+        }
+        return orderRepository.saveAll(orders).stream().map(Order::getId).toList();
+    }
+
+    private static Map<ProductType, Integer> parseTypeSkew() {
+        Map<ProductType, Integer> weights = new EnumMap<>(ProductType.class);
+        for (String entry : TYPE_SKEW.split(",")) {
+            String[] typeAndWeight = entry.trim().split("=");
+            weights.put(ProductType.valueOf(typeAndWeight[0].trim()), Integer.parseInt(typeAndWeight[1].trim()));
+        }
+        return weights;
+    }
+
+    private static ProductType pickType(Map<ProductType, Integer> weights, int draw) {
+        int cumulated = 0;
+        for (Map.Entry<ProductType, Integer> weight : weights.entrySet()) {
+            cumulated += weight.getValue();
+            if (draw < cumulated) {
+                return weight.getKey();
+            }
+        }
+        throw new IllegalStateException("Draw " + draw + " outside of the type weights " + weights);
+    }
+
+    private HttpRequest post(String path) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+    }
+
+    private HttpRequest post(String path, String idempotencyKey) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .header(OrdersController.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                .POST(HttpRequest.BodyPublishers.noBody())
+                .build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:" + port + "/api" + path);
+    }
+
+    private static String toJson(Product p, int leadTime) {
+        return String.format("{\"leadTime\":%d,\"available\":%d,\"type\":\"%s\",\"name\":\"%s\",\"expiryDate\":%s,"
+                        + "\"seasonStartDate\":%s,\"seasonEndDate\":%s}",
+                leadTime, p.getAvailable(), p.getType(), p.getName(),
+                quoted(p.getExpiryDate()), quoted(p.getSeasonStartDate()), quoted(p.getSeasonEndDate()));
+    }
+
+    private static String quoted(LocalDate date) {
+        return date == null ? "null" : "\"" + date + "\"";
+    }
+
+    // Optimistic locking conflicts met by the services, the retries they made and the ones they gave up on
+    private record OptimisticCounts(double conflicts, double retries, double exhausted) {
+
+        OptimisticCounts minus(OptimisticCounts other) {
+            return new OptimisticCounts(conflicts - other.conflicts, retries - other.retries, exhausted - other.exhausted);
+        }
+    }
+
+    private record LoadReport(String name, int requests, long errors, long conflicts, long elapsedNanos,
+                              LatencyHistogram histogram, OptimisticCounts optimistic) {
+
+        String render() {
+            double seconds = elapsedNanos / 1_000_000_000.0;
+            return String.format("%n=== %s: %d requests, %d clients, %d errors, %d conflicts ===%n",
+                    name, requests, CONCURRENCY, errors, conflicts)
+                    + String.format("throughput %.1f req/s%n", requests / seconds)
+                    + String.format("optimistic locking: conflicts=%.0f retries=%.0f exhausted=%.0f%n",
+                    optimistic.conflicts(), optimistic.retries(), optimistic.exhausted())
+                    + String.format("latency us: mean=%.0f p50=%d p90=%d p99=%d p99.9=%d max=%d%n",
+                    histogram.meanMicros(), histogram.percentileMicros(50), histogram.percentileMicros(90),
+                    histogram.percentileMicros(99), histogram.percentileMicros(99.9), histogram.maxMicros())
+                    + histogram.render();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.nimbleways.springboilerplate.loadtests;
+
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+// Load scenarios against a PostgreSQL started in Docker, skipped when Docker is not available.
+// Excluded from the default test run, execute it with: mvnw test -Pload-test
+@Testcontainers(disabledWithoutDocker = true)
+class PostgresLoadTests extends LoadTestSupport {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>(
+            System.getProperty("loadtest.postgres-image", "postgres:14-alpine"));
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+        registry.add("spring.datasource.driver-class-name", POSTGRES::getDriverClassName);
+        registry.add("spring.datasource.hikari.maximum-pool-size", () -> 20);
+    }
+
+    @Override
+    protected String database() {
+        return "postgresql";
+    }
+}
@@ -0,0 +1,17 @@
+package com.nimbleways.springboilerplate.loadtests;
+
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.test.context.TestPropertySource;
+
+// The H2 load scenarios with the requests handled on virtual threads, to compare with H2LoadTests.
+// Only runs on Java 21 or later. The difference shows at a concurrency above the Tomcat pool size, e.g.
+// mvnw test -Pload-test -Dtest='H2LoadTests,VirtualThreadsH2LoadTests' -Dloadtest.concurrency=400
+@EnabledIf("com.nimbleways.springboilerplate.config.WebExecutionConfig#isVirtualThreadSupported")
+@TestPropertySource(properties = "web.execution.mode=virtual")
+class VirtualThreadsH2LoadTests extends LoadTestSupport {
+
+    @Override
+    protected String database() {
+        return "h2-virtual";
+    }
+}
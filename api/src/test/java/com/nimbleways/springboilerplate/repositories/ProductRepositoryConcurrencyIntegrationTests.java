@@ -0,0 +1,91 @@
+package com.nimbleways.springboilerplate.repositories;
+
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.ProductType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class ProductRepositoryConcurrencyIntegrationTests {
+
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 200;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void decrementAvailable_ShouldNeverOversell_UnderConcurrentOrders() throws Exception {
+        int initialStock = 500;
+        Product product = productRepository.save(
+                new Product(null, 10, initialStock, ProductType.NORMAL, "Flash Sale Item", null, null, null));
+
+        int sold = hammer(product.getId());
+
+        // Every unit is sold exactly once and the surplus attempts are rejected
+        assertEquals(initialStock, sold);
+        assertEquals(0, productRepository.findById(product.getId()).orElseThrow().getAvailable());
+    }
+
+    @Test
+    void decrementAvailable_ShouldSellWholeDemand_WhenStockIsSufficient() throws Exception {
+        int initialStock = THREADS * ATTEMPTS_PER_THREAD + 10;
+        Product product = productRepository.save(
+                new Product(null, 10, initialStock, ProductType.NORMAL, "Restocked Item", null, null, null));
+
+        int sold = hammer(product.getId());
+
+        // No decrement is lost between concurrent writers
+        assertEquals(THREADS * ATTEMPTS_PER_THREAD, sold);
+        assertEquals(10, productRepository.findById(product.getId()).orElseThrow().getAvailable());
+    }
+
+    @Test
+    void decrementAvailable_ShouldReturnZero_WhenProductDoesNotExist() {
+        assertEquals(0, productRepository.decrementAvailable(-1L));
+    }
+
+    // Starts all threads at once and returns how many decrements succeeded
+    private int hammer(Long productId) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                int sold = 0;
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    sold += productRepository.decrementAvailable(productId);
+                }
+                return sold;
+            }));
+        }
+        start.countDown();
+
+        int sold = 0;
+        for (Future<Integer> result : results) {
+            sold += result.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        return sold;
+    }
+}
@@ -0,0 +1,87 @@
+package com.nimbleways.springboilerplate.repositories;
+
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.ProductType;
+import com.nimbleways.springboilerplate.services.implementations.NotificationService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ProductVersionIntegrationTests {
+
+    @MockBean
+    private NotificationService notificationService;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @AfterEach
+    void tearDown() {
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void save_ShouldBeRejected_WhenTheStockWasTakenSinceTheProductWasRead() {
+        Product stale = productRepository.save(new Product(null, 15, 30, ProductType.NORMAL, "USB Cable", null, null, null));
+        assertEquals(1, productRepository.decrementAvailable(stale.getId()));
+
+        stale.setAvailable(100);
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> productRepository.save(stale));
+        assertEquals(29, productRepository.findAvailableById(stale.getId()).orElseThrow());
+    }
+
+    @Test
+    void updateProduct_ShouldConflict_WhenAnOrderTookStockBetweenTheClientReadAndItsUpdate() throws Exception {
+        Product product = productRepository.save(new Product(null, 15, 30, ProductType.NORMAL, "USB Cable", null, null, null));
+        String eTag = mockMvc.perform(get("/products/{productId}", product.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        productRepository.decrementAvailable(product.getId());
+
+        String update = "{\"leadTime\":15,\"available\":50,\"type\":\"NORMAL\",\"name\":\"USB-C Cable\"}";
+        mockMvc.perform(put("/products/{productId}", product.getId()).header(HttpHeaders.IF_MATCH, eTag)
+                        .contentType(MediaType.APPLICATION_JSON).content(update))
+                .andExpect(status().isConflict());
+        assertEquals(29, productRepository.findAvailableById(product.getId()).orElseThrow());
+
+        // Read again, the update goes through
+        String current = mockMvc.perform(get("/products/{productId}", product.getId()))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(put("/products/{productId}", product.getId()).header(HttpHeaders.IF_MATCH, current)
+                        .contentType(MediaType.APPLICATION_JSON).content(update))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2\""));
+        Product stored = productRepository.findById(product.getId()).orElseThrow();
+        assertEquals("USB-C Cable", stored.getName());
+        assertEquals(50, stored.getAvailable());
+    }
+
+    @Test
+    void updateProduct_ShouldRequireTheVersionTheClientRead() throws Exception {
+        Product product = productRepository.save(new Product(null, 15, 30, ProductType.NORMAL, "USB Cable", null, null, null));
+
+        mockMvc.perform(put("/products/{productId}", product.getId())
+                        .contentType(MediaType.APPLICATION_JSON).content("{\"available\":50,\"type\":\"NORMAL\",\"name\":\"USB Cable\"}"))
+                .andExpect(status().isPreconditionRequired());
+        assertEquals(30, productRepository.findAvailableById(product.getId()).orElseThrow());
+    }
+}
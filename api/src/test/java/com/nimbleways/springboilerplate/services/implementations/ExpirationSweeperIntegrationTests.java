@@ -0,0 +1,137 @@
+package com.nimbleways.springboilerplate.services.implementations;
+
+import com.nimbleways.springboilerplate.config.ExpirationSweepProperties;
+import com.nimbleways.springboilerplate.entities.ExpirationSweepCheckpoint;
+import com.nimbleways.springboilerplate.entities.NotificationOutboxEntry;
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.NotificationType;
+import com.nimbleways.springboilerplate.enums.ProductType;
+import com.nimbleways.springboilerplate.repositories.ExpirationSweepCheckpointRepository;
+import com.nimbleways.springboilerplate.repositories.NotificationOutboxRepository;
+import com.nimbleways.springboilerplate.repositories.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class ExpirationSweeperIntegrationTests {
+
+    @MockBean
+    private NotificationService notificationService;
+
+    @Autowired
+    private ExpirationSweeper expirationSweeper;
+
+    @Autowired
+    private ExpirationSweepProperties properties;
+
+    @Autowired
+    private ExpirationSweepCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private NotificationOutboxRepository outboxRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    private final LocalDate today = LocalDate.now();
+
+    private int pageSize;
+
+    @BeforeEach
+    void setUp() {
+        // Several pages for a handful of products
+        pageSize = properties.getPageSize();
+        properties.setPageSize(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        properties.setPageSize(pageSize);
+        checkpointRepository.deleteAll();
+        outboxRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void sweep_ShouldZeroAndNotifyTheExpiredProductsOnce() {
+        Product milk = productRepository.save(expirable("Milk", today.minusDays(3), 6));
+        Product butter = productRepository.save(expirable("Butter", today, 2));
+        Product cheese = productRepository.save(expirable("Cheese", today.minusDays(1), 4));
+        Product yogurt = productRepository.save(expirable("Yogurt", today.plusDays(1), 5));
+        Product cable = productRepository.save(new Product(null, 15, 30, ProductType.NORMAL, "USB Cable", today.minusDays(1), null, null));
+
+        assertEquals(3, expirationSweeper.sweep());
+
+        assertEquals(0, available(milk));
+        assertEquals(0, available(butter));
+        assertEquals(0, available(cheese));
+        assertEquals(5, available(yogurt));
+        assertEquals(30, available(cable));
+        List<NotificationOutboxEntry> entries = outboxRepository.findAll();
+        assertEquals(3, entries.size());
+        assertTrue(entries.stream().allMatch(entry -> entry.getType() == NotificationType.EXPIRATION));
+
+        // The run completed, the next one starts from the first product
+        assertFalse(checkpointRepository.existsById(ExpirationSweepCheckpoint.ID));
+
+        assertEquals(0, expirationSweeper.sweep());
+        assertEquals(3, outboxRepository.count());
+    }
+
+    @Test
+    void sweep_ShouldZeroAnExpiredProductAgain_WhenItWasRestockedAfterTheLastRun() {
+        Product milk = productRepository.save(expirable("Milk", today.minusDays(3), 6));
+        productRepository.save(expirable("Cheese", today.minusDays(1), 4));
+        assertEquals(2, expirationSweeper.sweep());
+
+        Product restocked = productRepository.findById(milk.getId()).orElseThrow();
+        restocked.setAvailable(3);
+        productRepository.save(restocked);
+
+        assertEquals(1, expirationSweeper.sweep());
+        assertEquals(0, available(milk));
+    }
+
+    @Test
+    void sweep_ShouldResumeAfterTheCheckpoint() {
+        Product milk = productRepository.save(expirable("Milk", today.minusDays(3), 6));
+        Product cheese = productRepository.save(expirable("Cheese", today.minusDays(1), 4));
+        // As left by a run stopped after its first page
+        checkpointRepository.save(ExpirationSweepCheckpoint.at(today, milk.getExpiryDate(), milk.getId()));
+
+        assertEquals(1, expirationSweeper.sweep());
+
+        assertEquals(6, available(milk));
+        assertEquals(0, available(cheese));
+    }
+
+    @Test
+    void sweep_ShouldStartFromTheFirstProduct_WhenTheCheckpointIsFromAnotherRun() {
+        Product milk = productRepository.save(expirable("Milk", today.minusDays(3), 6));
+        Product cheese = productRepository.save(expirable("Cheese", today.minusDays(1), 4));
+        // As left by yesterday's run, stopped after its first page
+        checkpointRepository.save(ExpirationSweepCheckpoint.at(today.minusDays(1), cheese.getExpiryDate(), cheese.getId()));
+
+        assertEquals(2, expirationSweeper.sweep());
+
+        assertEquals(0, available(milk));
+        assertEquals(0, available(cheese));
+    }
+
+    private static Product expirable(String name, LocalDate expiryDate, int available) {
+        return new Product(null, 15, available, ProductType.EXPIRABLE, name, expiryDate, null, null);
+    }
+
+    private int available(Product product) {
+        return productRepository.findById(product.getId()).orElseThrow().getAvailable();
+    }
+}
@@ -1,5 +1,6 @@
 package com.nimbleways.springboilerplate.services.implementations;
 
+import com.nimbleways.springboilerplate.dto.notification.Notification;
 import com.nimbleways.springboilerplate.entities.Product;
 import com.nimbleways.springboilerplate.enums.ProductType;
 import com.nimbleways.springboilerplate.repositories.ProductRepository;
@@ -19,7 +20,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 class MyUnitTests {
 
     @Mock
-    private NotificationService notificationService;
+    private NotificationOutboxService notificationOutboxService;
     @Mock
     private ProductRepository productRepository;
     @InjectMocks 
@@ -39,6 +40,6 @@ class MyUnitTests {
         assertEquals(0, product.getAvailable());
         assertEquals(15, product.getLeadTime());
         Mockito.verify(productRepository, Mockito.times(1)).save(product);
-        Mockito.verify(notificationService, Mockito.times(1)).sendDelayNotification(product.getLeadTime(), product.getName());
+        Mockito.verify(notificationOutboxService, Mockito.times(1)).enqueue(Mockito.eq(Notification.delay(product.getLeadTime(), product.getName())), Mockito.anyString());
     }
 }
\ No newline at end of file
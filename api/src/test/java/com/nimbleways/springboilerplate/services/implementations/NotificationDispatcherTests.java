@@ -0,0 +1,109 @@
+package com.nimbleways.springboilerplate.services.implementations;
+
+import com.nimbleways.springboilerplate.config.NotificationDispatchProperties;
+import com.nimbleways.springboilerplate.dto.notification.Notification;
+import com.nimbleways.springboilerplate.enums.NotificationOverflowPolicy;
+import com.nimbleways.springboilerplate.tracing.Spans;
+import io.opentelemetry.api.OpenTelemetry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class NotificationDispatcherTests {
+
+    @Mock
+    private NotificationService notificationService;
+
+    @Mock
+    private NotificationOutboxService outboxService;
+
+    private NotificationDispatchProperties properties;
+
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        properties = new NotificationDispatchProperties();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void submit_ShouldSendEveryNotificationThroughTheService_AndMarkTheEntries() {
+        NotificationDispatcher dispatcher = dispatcher();
+        dispatcher.start();
+
+        dispatcher.submit(Notification.delay(10, "USB Cable"), List.of(1L));
+        dispatcher.submit(Notification.outOfStock("Grapes"), List.of(2L));
+        dispatcher.submit(Notification.expiration("Milk", LocalDate.of(2024, 1, 1)), List.of(3L));
+        dispatcher.stop();
+
+        verify(notificationService, times(1)).sendDelayNotification(10, "USB Cable");
+        verify(notificationService, times(1)).sendOutOfStockNotification("Grapes");
+        verify(notificationService, times(1)).sendExpirationNotification("Milk", LocalDate.of(2024, 1, 1));
+        assertEquals(3, meterRegistry.get("notifications.dispatch.latency").timer().count());
+        verify(outboxService, atLeastOnce()).markDispatched(anyCollection());
+        verify(outboxService, never()).recordFailures(argThat(ids -> !ids.isEmpty()));
+    }
+
+    @Test
+    void submit_ShouldCoalesceDuplicates_WhileTheyAreQueued() {
+        // Workers are not started, so notifications stay in the queue until stop()
+        NotificationDispatcher dispatcher = dispatcher();
+
+        dispatcher.submit(Notification.outOfStock("Grapes"), List.of(1L));
+        dispatcher.submit(Notification.outOfStock("Grapes"), List.of(2L));
+        dispatcher.submit(Notification.outOfStock("Watermelon"), List.of(3L));
+
+        assertEquals(2, dispatcher.getQueueDepth());
+        assertEquals(1.0, meterRegistry.get("notifications.dispatch.coalesced").counter().count());
+        dispatcher.stop();
+        verify(notificationService, times(1)).sendOutOfStockNotification("Grapes");
+        verify(notificationService, times(1)).sendOutOfStockNotification("Watermelon");
+        verify(outboxService, times(1)).markDispatched(List.of(1L, 2L, 3L));
+    }
+
+    @Test
+    void submit_ShouldDropNotification_WhenQueueIsFullAndPolicyIsDrop() {
+        properties.setQueueCapacity(1);
+        properties.setOverflowPolicy(NotificationOverflowPolicy.DROP);
+        NotificationDispatcher dispatcher = dispatcher();
+
+        assertTrue(dispatcher.submit(Notification.outOfStock("Grapes"), List.of(1L)));
+        assertFalse(dispatcher.submit(Notification.outOfStock("Watermelon"), List.of(2L)));
+
+        assertEquals(1.0, meterRegistry.get("notifications.dispatch.dropped").counter().count());
+        assertEquals(1.0, meterRegistry.get("notifications.dispatch.queue.depth").gauge().value());
+        dispatcher.stop();
+        verify(notificationService, never()).sendOutOfStockNotification("Watermelon");
+        verify(outboxService, times(1)).markDispatched(List.of(1L));
+    }
+
+    @Test
+    void submit_ShouldKeepDispatching_AndRecordTheFailures_WhenTheServiceFails() {
+        doThrow(new IllegalStateException("Provider unavailable")).when(notificationService).sendOutOfStockNotification("Grapes");
+        NotificationDispatcher dispatcher = dispatcher();
+
+        dispatcher.submit(Notification.outOfStock("Grapes"), List.of(1L));
+        dispatcher.submit(Notification.outOfStock("Watermelon"), List.of(2L));
+        dispatcher.stop();
+
+        verify(notificationService, times(1)).sendOutOfStockNotification("Watermelon");
+        assertEquals(1.0, meterRegistry.get("notifications.dispatch.failed").counter().count());
+        verify(outboxService, times(1)).markDispatched(List.of(2L));
+        verify(outboxService, times(1)).recordFailures(List.of(1L));
+    }
+
+    private NotificationDispatcher dispatcher() {
+        return new NotificationDispatcher(notificationService, outboxService, properties, meterRegistry, new Spans(OpenTelemetry.noop()));
+    }
+}
@@ -0,0 +1,177 @@
+package com.nimbleways.springboilerplate.services.implementations;
+
+import com.nimbleways.springboilerplate.dto.notification.Notification;
+import com.nimbleways.springboilerplate.entities.NotificationOutboxEntry;
+import com.nimbleways.springboilerplate.entities.Order;
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.NotificationType;
+import com.nimbleways.springboilerplate.enums.ProductType;
+import com.nimbleways.springboilerplate.repositories.NotificationOutboxRepository;
+import com.nimbleways.springboilerplate.repositories.OrderRepository;
+import com.nimbleways.springboilerplate.repositories.ProductRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+// One entry per batch and two attempts per entry, so a few entries cover the batching and the dead letters
+@SpringBootTest(properties = {"notifications.outbox.batch-size=1", "notifications.outbox.max-attempts=2"})
+class NotificationOutboxIntegrationTests {
+
+    @MockBean
+    private NotificationService notificationService;
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private NotificationOutboxRelay notificationOutboxRelay;
+
+    @Autowired
+    private NotificationOutboxRepository outboxRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @AfterEach
+    void tearDown() {
+        outboxRepository.deleteAll();
+        orderRepository.deleteAll();
+        productRepository.deleteAll();
+    }
+
+    @Test
+    void processOrder_ShouldRecordNotificationsOnce_AndRelayShouldSendThem() throws Exception {
+        LocalDate expiryDate = LocalDate.now().minusDays(2);
+        Product milk = productRepository.save(new Product(null, 90, 6, ProductType.EXPIRABLE, "Milk", expiryDate, null, null));
+        Order order = orderRepository.save(new Order(null, Set.of(milk)));
+
+        // Processing the same order twice records a single notification
+        productService.processOrder(productService.findOrderById(order.getId()));
+        productService.processOrder(productService.findOrderById(order.getId()));
+
+        List<NotificationOutboxEntry> entries = outboxRepository.findAll();
+        assertEquals(1, entries.size());
+        assertEquals(NotificationType.EXPIRATION, entries.get(0).getType());
+        assertNull(entries.get(0).getDispatchedAt());
+        verifyNoInteractions(notificationService);
+
+        assertEquals(1, notificationOutboxRelay.relay());
+
+        NotificationOutboxEntry dispatched = awaitEntry(entries.get(0), entry -> entry.getDispatchedAt() != null);
+        verify(notificationService, times(1)).sendExpirationNotification("Milk", expiryDate);
+        assertNotNull(dispatched.getDispatchedAt());
+        assertEquals(0, notificationOutboxRelay.relay());
+    }
+
+    @Test
+    void relay_ShouldSendWithNoTransactionOpen_AndHideTheEntriesBeingSent() {
+        doAnswer(invocation -> {
+            assertFalse(TransactionSynchronizationManager.isActualTransactionActive());
+            assertTrue(outboxRepository.findDue(Instant.now(), PageRequest.of(0, 10)).isEmpty());
+            return null;
+        }).when(notificationService).sendOutOfStockNotification("Grapes");
+        outboxRepository.save(NotificationOutboxEntry.of(Notification.outOfStock("Grapes"), "grapes"));
+
+        assertEquals(1, notificationOutboxRelay.relay());
+
+        awaitEntry(outboxRepository.findAll().get(0), entry -> entry.getDispatchedAt() != null);
+        verify(notificationService, times(1)).sendOutOfStockNotification("Grapes");
+    }
+
+    @Test
+    void relay_ShouldRetryTheEntryAfterTheBackoff_WhenNotificationCannotBeSent() throws Exception {
+        doThrow(new IllegalStateException("Provider unavailable")).doNothing().when(notificationService).sendOutOfStockNotification("Grapes");
+        Product grapes = productRepository.save(new Product(null, 15, 30, ProductType.SEASONAL, "Grapes", null,
+                LocalDate.now().plusDays(180), LocalDate.now().plusDays(240)));
+        Order order = orderRepository.save(new Order(null, Set.of(grapes)));
+        productService.processOrder(productService.findOrderById(order.getId()));
+
+        assertEquals(1, notificationOutboxRelay.relay());
+        NotificationOutboxEntry entry = awaitEntry(outboxRepository.findAll().get(0), e -> e.getAttempts() == 1);
+        assertNull(entry.getDispatchedAt());
+        assertEquals(1, entry.getAttempts());
+        assertTrue(entry.getNextAttemptAt().isAfter(Instant.now()));
+
+        // Not retried before its backoff is over
+        assertEquals(0, notificationOutboxRelay.relay());
+        verify(notificationService, times(1)).sendOutOfStockNotification("Grapes");
+
+        makeDue(entry);
+        assertEquals(1, notificationOutboxRelay.relay());
+        awaitEntry(entry, e -> e.getDispatchedAt() != null);
+        verify(notificationService, times(2)).sendOutOfStockNotification("Grapes");
+    }
+
+    @Test
+    void relay_ShouldSendTheEntriesBehindAFailingOne() {
+        doThrow(new IllegalStateException("Provider unavailable")).when(notificationService).sendOutOfStockNotification("Grapes");
+        NotificationOutboxEntry grapes = outboxRepository.save(NotificationOutboxEntry.of(Notification.outOfStock("Grapes"), "grapes"));
+        NotificationOutboxEntry watermelon = outboxRepository.save(NotificationOutboxEntry.of(Notification.outOfStock("Watermelon"), "watermelon"));
+
+        assertEquals(2, notificationOutboxRelay.relay());
+
+        awaitEntry(watermelon, entry -> entry.getDispatchedAt() != null);
+        verify(notificationService, times(1)).sendOutOfStockNotification("Watermelon");
+        assertNull(awaitEntry(grapes, entry -> entry.getAttempts() == 1).getDispatchedAt());
+    }
+
+    @Test
+    void relay_ShouldDeadLetterTheEntry_WhenItFailedOnEveryAttempt() {
+        doThrow(new IllegalStateException("Provider unavailable")).when(notificationService).sendOutOfStockNotification("Grapes");
+        NotificationOutboxEntry entry = outboxRepository.save(NotificationOutboxEntry.of(Notification.outOfStock("Grapes"), "grapes"));
+
+        notificationOutboxRelay.relay();
+        makeDue(awaitEntry(entry, e -> e.getAttempts() == 1));
+        notificationOutboxRelay.relay();
+
+        NotificationOutboxEntry deadLettered = awaitEntry(entry, e -> e.getDeadLetteredAt() != null);
+        assertEquals(2, deadLettered.getAttempts());
+        assertNotNull(deadLettered.getDeadLetteredAt());
+        assertNull(deadLettered.getDispatchedAt());
+
+        // Never sent again, even once its last backoff would be over
+        makeDue(deadLettered);
+        assertEquals(0, notificationOutboxRelay.relay());
+        verify(notificationService, times(2)).sendOutOfStockNotification("Grapes");
+    }
+
+    // The dispatcher workers send the notifications and mark the entries after relay() returned
+    private NotificationOutboxEntry awaitEntry(NotificationOutboxEntry entry, Predicate<NotificationOutboxEntry> condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (true) {
+            NotificationOutboxEntry current = outboxRepository.findById(entry.getId()).orElseThrow();
+            if (condition.test(current)) {
+                return current;
+            }
+            assertTrue(System.nanoTime() < deadline, "Outbox entry " + entry.getIdempotencyKey() + " was not marked in time");
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private void makeDue(NotificationOutboxEntry entry) {
+        entry.setNextAttemptAt(Instant.now().minusSeconds(1));
+        outboxRepository.save(entry);
+    }
+}
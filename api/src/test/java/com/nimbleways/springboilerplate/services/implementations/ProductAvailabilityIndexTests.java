@@ -0,0 +1,112 @@
+package com.nimbleways.springboilerplate.services.implementations;
+
+import com.nimbleways.springboilerplate.dto.product.ProductDateEvent;
+import com.nimbleways.springboilerplate.dto.product.ProductDates;
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.ProductDateEventType;
+import com.nimbleways.springboilerplate.enums.ProductType;
+import com.nimbleways.springboilerplate.repositories.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProductAvailabilityIndexTests {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 3, 1);
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+
+    private final MovableClock clock = new MovableClock(TODAY);
+
+    private ProductAvailabilityIndex index;
+
+    @BeforeEach
+    void setUp() {
+        when(productRepository.findAllDates()).thenReturn(List.of(
+                new ProductDates(1L, ProductType.EXPIRABLE, TODAY.plusDays(2), null, null),
+                new ProductDates(2L, ProductType.EXPIRABLE, TODAY, null, null),
+                new ProductDates(3L, ProductType.SEASONAL, null, TODAY.minusDays(10), TODAY.plusDays(1)),
+                new ProductDates(4L, ProductType.SEASONAL, null, TODAY.plusDays(5), TODAY.plusDays(60)),
+                // Dates the handler of its type ignores
+                new ProductDates(5L, ProductType.NORMAL, TODAY, TODAY, TODAY)));
+        index = new ProductAvailabilityIndex(productRepository, clock, new SimpleMeterRegistry());
+        index.rebuild();
+    }
+
+    @Test
+    void rebuild_ShouldClassifyTheProductsForToday() {
+        assertEquals(List.of(2L), index.expired());
+        assertEquals(List.of(4L), index.outOfSeason());
+        assertEquals(List.of(
+                new ProductDateEvent(2L, ProductDateEventType.EXPIRY, TODAY),
+                new ProductDateEvent(1L, ProductDateEventType.EXPIRY, TODAY.plusDays(2))), index.expiringBetween(TODAY, TODAY.plusDays(7)));
+        assertEquals(List.of(
+                new ProductDateEvent(3L, ProductDateEventType.SEASON_END, TODAY.plusDays(1)),
+                new ProductDateEvent(4L, ProductDateEventType.SEASON_START, TODAY.plusDays(5))), index.seasonTransitionsBetween(TODAY, TODAY.plusDays(7)));
+    }
+
+    @Test
+    void rollForward_ShouldReclassifyTheProductsWhoseDatesPassed() {
+        clock.moveTo(TODAY.plusDays(6));
+
+        index.rollForward();
+
+        assertEquals(TODAY.plusDays(6), index.today());
+        assertEquals(List.of(1L, 2L), index.expired());
+        assertEquals(List.of(3L), index.outOfSeason());
+    }
+
+    @Test
+    void put_ShouldReplaceTheDatesIndexedBefore() {
+        Product product = new Product(1L, 0, 5, ProductType.EXPIRABLE, "Butter", TODAY.minusDays(1), null, null);
+
+        index.put(product);
+
+        assertEquals(List.of(1L, 2L), index.expired());
+        assertEquals(List.of(new ProductDateEvent(2L, ProductDateEventType.EXPIRY, TODAY)), index.expiringBetween(TODAY, TODAY.plusDays(7)));
+
+        product.setType(ProductType.NORMAL);
+        index.put(product);
+
+        assertEquals(List.of(2L), index.expired());
+    }
+
+    // A clock whose day the tests move forward
+    private static final class MovableClock extends Clock {
+
+        private Instant instant;
+
+        MovableClock(LocalDate day) {
+            moveTo(day);
+        }
+
+        void moveTo(LocalDate day) {
+            instant = day.atStartOfDay(ZoneOffset.UTC).toInstant();
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.nimbleways.springboilerplate.services.implementations;
+
+import com.nimbleways.springboilerplate.config.ProductCatalogCacheProperties;
+import com.nimbleways.springboilerplate.dto.product.ProductAttributes;
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.ProductType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductCatalogCacheTests {
+
+    private MeterRegistry meterRegistry;
+
+    private ProductCatalogCache cache;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new ProductCatalogCache(new ProductCatalogCacheProperties(), meterRegistry);
+    }
+
+    @Test
+    void get_ShouldLoadOnce_ThenServeFromCache() {
+        assertEquals("USB Cable", cache.get(1L, this::load).orElseThrow().name());
+        assertEquals("USB Cable", cache.get(1L, this::load).orElseThrow().name());
+
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", ProductCatalogCache.CACHE_NAME)
+                .tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", ProductCatalogCache.CACHE_NAME)
+                .tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void put_ShouldWriteThrough() {
+        Product product = new Product(1L, 15, 30, ProductType.NORMAL, "Renamed Cable", null, null, null);
+
+        cache.put(product);
+
+        assertEquals("Renamed Cable", cache.get(1L, this::load).orElseThrow().name());
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    void get_ShouldReturnEmptyAndNotCache_WhenProductDoesNotExist() {
+        Optional<ProductAttributes> missing = cache.get(2L, id -> {
+            loads.incrementAndGet();
+            return null;
+        });
+        cache.get(2L, this::load);
+
+        assertTrue(missing.isEmpty());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void invalidate_ShouldForceReload() {
+        cache.get(1L, this::load);
+
+        cache.invalidate(1L);
+        cache.get(1L, this::load);
+
+        assertEquals(2, loads.get());
+    }
+
+    private ProductAttributes load(Long id) {
+        loads.incrementAndGet();
+        return new ProductAttributes(id, 15, ProductType.NORMAL, "USB Cable", null, null, null);
+    }
+}
@@ -0,0 +1,76 @@
+package com.nimbleways.springboilerplate.services.implementations;
+
+import com.nimbleways.springboilerplate.config.ProductNameIndexProperties;
+import com.nimbleways.springboilerplate.dto.product.ProductName;
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.ProductType;
+import com.nimbleways.springboilerplate.repositories.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ProductNameIndexTests {
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+
+    private final ProductNameIndexProperties properties = new ProductNameIndexProperties();
+
+    private ProductNameIndex index;
+
+    @BeforeEach
+    void setUp() {
+        when(productRepository.findAllNames()).thenReturn(List.of(
+                new ProductName(1L, "USB Cable"),
+                new ProductName(2L, "usb Dongle"),
+                new ProductName(3L, "Butter"),
+                new ProductName(4L, "USB Cable"),
+                new ProductName(5L, "USB-C Charger")));
+        properties.setEnabled(true);
+        index = new ProductNameIndex(properties, productRepository);
+        index.rebuild();
+    }
+
+    @Test
+    void findIdByName_ShouldIgnoreTheCase() {
+        assertEquals(Optional.of(1L), index.findIdByName("usb cable"));
+        assertEquals(Optional.of(2L), index.findIdByName("USB DONGLE"));
+        assertEquals(Optional.empty(), index.findIdByName("USB"));
+    }
+
+    @Test
+    void findStartingWith_ShouldReturnTheMatchingNamesInOrder_UpToTheLimit() {
+        assertEquals(List.of(
+                new ProductName(1L, "USB Cable"),
+                new ProductName(4L, "USB Cable"),
+                new ProductName(2L, "usb Dongle"),
+                new ProductName(5L, "USB-C Charger")), index.findStartingWith("usb", 10));
+        assertEquals(List.of(
+                new ProductName(1L, "USB Cable"),
+                new ProductName(4L, "USB Cable")), index.findStartingWith("Usb", 2));
+        assertEquals(List.of(), index.findStartingWith("Milk", 10));
+    }
+
+    @Test
+    void put_ShouldReplaceTheNameIndexedBefore() {
+        index.put(new Product(3L, 15, 30, ProductType.EXPIRABLE, "Salted Butter", null, null, null));
+
+        assertEquals(Optional.empty(), index.findIdByName("Butter"));
+        assertEquals(Optional.of(3L), index.findIdByName("salted butter"));
+    }
+
+    @Test
+    void rebuild_ShouldNotLoadTheNames_WhenDisabled() {
+        properties.setEnabled(false);
+        clearInvocations(productRepository);
+
+        new ProductNameIndex(properties, productRepository).rebuild();
+
+        verifyNoInteractions(productRepository);
+        assertThrows(IllegalStateException.class, () -> index.findStartingWith("usb", 10));
+    }
+}
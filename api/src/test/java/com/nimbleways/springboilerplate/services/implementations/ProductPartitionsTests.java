@@ -0,0 +1,101 @@
+package com.nimbleways.springboilerplate.services.implementations;
+
+import com.nimbleways.springboilerplate.config.OrderPartitionProperties;
+import com.nimbleways.springboilerplate.repositories.ProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class ProductPartitionsTests {
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+
+    // Stock of the products, only written by the partitions
+    private final Map<Long, Integer> stock = new ConcurrentHashMap<>();
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ProductPartitions partitions;
+
+    @BeforeEach
+    void setUp() {
+        when(productRepository.findAvailableById(anyLong())).thenAnswer(call -> Optional.ofNullable(stock.get(call.<Long>getArgument(0))));
+        when(productRepository.decrementAvailableBy(anyLong(), anyInt())).thenAnswer(call -> {
+            stock.merge(call.getArgument(0), -call.<Integer>getArgument(1), Integer::sum);
+            return 1;
+        });
+        when(productRepository.incrementAvailableBy(anyLong(), anyInt())).thenAnswer(call -> {
+            stock.merge(call.getArgument(0), call.<Integer>getArgument(1), Integer::sum);
+            return 1;
+        });
+        OrderPartitionProperties properties = new OrderPartitionProperties();
+        properties.setEnabled(true);
+        properties.setCount(4);
+        partitions = new ProductPartitions(properties, productRepository, mock(PlatformTransactionManager.class), meterRegistry);
+        partitions.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        partitions.stop();
+    }
+
+    @Test
+    void takeOneEach_ShouldAnswerForProductsOfEveryPartition() {
+        stock.putAll(Map.of(1L, 1, 2L, 0, 3L, 5, 6L, 2));
+
+        Set<Long> taken = partitions.takeOneEach(List.of(1L, 2L, 3L, 6L));
+
+        assertEquals(Set.of(1L, 3L, 6L), taken);
+        assertEquals(Map.of(1L, 0, 2L, 0, 3L, 4, 6L, 1), stock);
+        assertEquals(4, meterRegistry.get("orders.partitions.queue.depth").gauges().size());
+    }
+
+    @Test
+    void takeOneEach_ShouldNeverOversell_UnderConcurrentOrders() throws Exception {
+        stock.put(1L, 10);
+        ExecutorService orders = Executors.newFixedThreadPool(8);
+        List<Future<Set<Long>>> answers = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            answers.add(orders.submit(() -> partitions.takeOneEach(List.of(1L))));
+        }
+
+        int sold = 0;
+        for (Future<Set<Long>> answer : answers) {
+            sold += answer.get().size();
+        }
+        orders.shutdown();
+
+        assertEquals(10, sold);
+        assertEquals(0, stock.get(1L));
+    }
+
+    @Test
+    void giveBack_ShouldRestockTheProducts() {
+        stock.put(1L, 0);
+
+        partitions.giveBack(List.of(1L));
+
+        // Applied before any later operation of the same partition
+        assertEquals(Set.of(1L), partitions.takeOneEach(List.of(1L)));
+        assertEquals(0, stock.get(1L));
+    }
+}
@@ -1,15 +1,36 @@
 package com.nimbleways.springboilerplate.services.implementations;
 
+import com.nimbleways.springboilerplate.dto.notification.Notification;
+import com.nimbleways.springboilerplate.dto.product.ProductAttributes;
+import com.nimbleways.springboilerplate.dto.product.ProductPatch;
+import com.nimbleways.springboilerplate.dto.product.ProductStock;
+import com.nimbleways.springboilerplate.entities.Order;
 import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.ProductOutcome;
+import com.nimbleways.springboilerplate.enums.ProductType;
 import com.nimbleways.springboilerplate.exceptions.ProductNotFoundException;
+import com.nimbleways.springboilerplate.exceptions.StockConflictException;
+import com.nimbleways.springboilerplate.repositories.OrderRepository;
 import com.nimbleways.springboilerplate.repositories.ProductRepository;
+import com.nimbleways.springboilerplate.tracing.Spans;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -20,12 +41,48 @@ class ProductServiceTests {
     @Mock
     private ProductRepository productRepository;
 
-    @InjectMocks
+    @Mock
+    private NotificationOutboxService notificationOutboxService;
+
+    @Mock
+    private ProductCatalogCache productCatalogCache;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private StockLedger stockLedger;
+
+    @Mock
+    private ProductPartitions productPartitions;
+
+    @Mock
+    private ProductAvailabilityIndex productAvailabilityIndex;
+
+    @Mock
+    private ProductNameIndex productNameIndex;
+
+    @Spy
+    private ProductTypeHandlerRegistry productTypeHandlerRegistry = new ProductTypeHandlerRegistry(List.of(
+            new NormalProductHandler(), new SeasonalProductHandler(), new ExpirableProductHandler()));
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private ProductMetrics productMetrics = new ProductMetrics(meterRegistry);
+
+    @Spy
+    private Spans spans = new Spans(OpenTelemetry.noop());
+
     private ProductService productService;
 
     @BeforeEach
-    void setUp() {
+    void setUp() throws Exception {
         MockitoAnnotations.openMocks(this);
+        when(stockLedger.overwrite(any())).thenAnswer(invocation -> invocation.<StockLedger.StockWrite<?, ?>>getArgument(0).run());
+        productService = new ProductService(productRepository, notificationOutboxService, orderRepository, productCatalogCache,
+                productTypeHandlerRegistry, productMetrics, spans, stockLedger, productPartitions, productAvailabilityIndex,
+                productNameIndex, Clock.systemDefaultZone());
     }
     @Test
     void createProduct_ShouldReturnCreatedProduct() {
@@ -41,29 +98,57 @@ class ProductServiceTests {
         assertNotNull(createdProduct);
         assertEquals("New Product", createdProduct.getName());
         verify(productRepository, times(1)).save(product);
+        verify(productCatalogCache, times(1)).put(product);
     }
 
     @Test
     void updateProduct_ShouldReturnUpdatedProduct_WhenProductExists() throws ProductNotFoundException {
         // Arrange
         Long productId = 1L;
-        Product existingProduct = new Product();
-        existingProduct.setId(productId);
-        existingProduct.setName("Old Product");
-
         Product updatedProduct = new Product();
         updatedProduct.setName("Updated Product");
 
-        when(productRepository.findById(productId)).thenReturn(Optional.of(existingProduct));
-        when(productRepository.save(existingProduct)).thenReturn(existingProduct);
+        when(productRepository.patch(eq(productId), any(ProductPatch.class), eq(3L))).thenReturn(1);
 
         // Act
-        Product result = productService.updateProduct(productId, updatedProduct);
+        Product result = productService.updateProduct(productId, updatedProduct, 3L);
 
         // Assert
+        assertEquals(productId, result.getId());
         assertEquals("Updated Product", result.getName());
-        verify(productRepository, times(1)).findById(productId);
-        verify(productRepository, times(1)).save(existingProduct);
+        assertEquals(4L, result.getVersion());
+        verify(productRepository, never()).findById(productId);
+        verify(productRepository, times(1)).patch(productId, ProductPatch.replacing(updatedProduct), 3L);
+    }
+
+    @Test
+    void updateProduct_ShouldReplaceTheSeasonDates() throws ProductNotFoundException {
+        // Arrange
+        LocalDate start = LocalDate.of(2024, 6, 1);
+        LocalDate end = LocalDate.of(2024, 8, 31);
+        Product updatedProduct = new Product(null, 15, 30, ProductType.SEASONAL, "Watermelon", null, start, end);
+        when(productRepository.patch(eq(1L), any(ProductPatch.class), eq(0L))).thenReturn(1);
+
+        // Act
+        Product result = productService.updateProduct(1L, updatedProduct, 0L);
+
+        // Assert
+        assertEquals(start, result.getSeasonStartDate());
+        assertEquals(end, result.getSeasonEndDate());
+        verify(productAvailabilityIndex, times(1)).put(result);
+    }
+
+    @Test
+    void updateProduct_ShouldNotWrite_WhenTheProductChangedSinceTheClientReadIt() {
+        // Arrange
+        Product updatedProduct = new Product(null, 15, 30, ProductType.NORMAL, "USB-C Cable", null, null, null);
+        when(productRepository.patch(eq(1L), any(ProductPatch.class), eq(3L))).thenReturn(0);
+        when(productRepository.findVersionById(1L)).thenReturn(Optional.of(4L));
+
+        // Act & Assert
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> productService.updateProduct(1L, updatedProduct, 3L));
+        verify(productRepository, times(1)).patch(eq(1L), any(ProductPatch.class), any());
+        verify(productCatalogCache, never()).put(any());
     }
 
     @Test
@@ -73,17 +158,174 @@ class ProductServiceTests {
         Product updatedProduct = new Product();
         updatedProduct.setName("Updated Product");
 
-        when(productRepository.findById(productId)).thenReturn(Optional.empty());
+        when(productRepository.findVersionById(productId)).thenReturn(Optional.empty());
 
         // Act & Assert
         ProductNotFoundException exception = assertThrows(ProductNotFoundException.class, () ->
-                productService.updateProduct(productId, updatedProduct)
+                productService.updateProduct(productId, updatedProduct, 0L)
         );
 
         assertEquals("Product not found", exception.getMessage());
-        verify(productRepository, times(1)).findById(productId);
+        verify(productRepository, times(1)).findVersionById(productId);
+        verify(productCatalogCache, never()).put(any());
+    }
+
+    @Test
+    void processOrder_ShouldSaveAllChangedProductsOnce() {
+        // Arrange
+        Product inStock = new Product(1L, 15, 3, ProductType.NORMAL, "USB Cable", null, null, null);
+        Product expired = new Product(2L, 15, 3, ProductType.EXPIRABLE, "Milk", LocalDate.now().minusDays(1), null, null);
+        Product noLeadTime = new Product(3L, 0, 0, ProductType.NORMAL, "USB Dongle", null, null, null);
+        Order order = new Order(1L, Set.of(inStock, expired, noLeadTime));
+        when(productRepository.decrementAvailable(1L)).thenReturn(1);
+
+        // Act
+        productService.processOrder(order);
+
+        // Assert
+        assertEquals(0, expired.getAvailable());
+        verify(productRepository, times(1)).decrementAvailable(1L);
+        verify(productRepository, times(1)).saveAll(List.of(expired));
         verify(productRepository, never()).save(any(Product.class));
+        verify(notificationOutboxService, times(1)).enqueueAll(Map.of("order-1-product-2-EXPIRED",
+                Notification.expiration("Milk", expired.getExpiryDate())));
+    }
+
+    @Test
+    void processOrder_ShouldResetTheLedgerOfTheProductsZeroed_WhenTheLedgerIsEnabled() {
+        // Arrange
+        Product inStock = new Product(1L, 15, 3, ProductType.NORMAL, "USB Cable", null, null, null);
+        Product expired = new Product(2L, 15, 3, ProductType.EXPIRABLE, "Milk", LocalDate.now().minusDays(1), null, null);
+        when(stockLedger.isEnabled()).thenReturn(true);
+        when(stockLedger.take(1L, 1)).thenReturn(true);
+
+        // Act
+        productService.processOrder(new Order(1L, Set.of(inStock, expired)));
+
+        // Assert
+        verify(productRepository, times(1)).saveAll(List.of(expired));
+        verify(stockLedger, times(1)).resetAfterCommit(2L, 0);
+        verify(stockLedger, never()).resetAfterCommit(eq(1L), anyInt());
+    }
+
+    @Test
+    void processOrder_ShouldCountTheOutcomeOfEveryProduct() {
+        // Arrange
+        Product sold = new Product(1L, 15, 3, ProductType.NORMAL, "USB Cable", null, null, null);
+        Product ranOut = new Product(2L, 10, 1, ProductType.NORMAL, "USB Dongle", null, null, null);
+        Product expired = new Product(3L, 15, 3, ProductType.EXPIRABLE, "Milk", LocalDate.now().minusDays(1), null, null);
+        when(productRepository.decrementAvailable(1L)).thenReturn(1);
+        when(productRepository.decrementAvailable(2L)).thenReturn(0);
+
+        // Act
+        productService.processOrder(new Order(1L, Set.of(sold, ranOut, expired)));
+
+        // Assert
+        assertEquals(1, outcomeCount(ProductType.NORMAL, ProductOutcome.SOLD));
+        assertEquals(1, outcomeCount(ProductType.NORMAL, ProductOutcome.DELAYED));
+        assertEquals(1, outcomeCount(ProductType.EXPIRABLE, ProductOutcome.EXPIRED));
+        assertEquals(1, meterRegistry.get("products.stock.ran.out").counter().count());
+        assertEquals(1, meterRegistry.get(ProductMetrics.PRODUCT_DELAYS).tag(ProductMetrics.PRODUCT_TAG, "2").counter().count());
+        assertEquals(3, meterRegistry.get("products.outcome.latency").timers().stream().mapToLong(Timer::count).sum());
+    }
+
+    @Test
+    void processOrders_ShouldApplyStockLeftByPreviousOrders() throws StockConflictException {
+        // Arrange
+        Product cable = new Product(1L, 10, 1, ProductType.NORMAL, "USB Cable", null, null, null);
+        Order first = new Order(1L, Set.of(cable));
+        Order second = new Order(2L, Set.of(cable));
+        when(orderRepository.findAllWithItemsByIdIn(Set.of(1L, 2L, 3L))).thenReturn(List.of(second, first));
+        when(productRepository.decrementAvailableBy(1L, 1)).thenReturn(1);
+
+        // Act
+        List<Order> processed = productService.processOrders(List.of(1L, 2L, 3L));
+
+        // Assert
+        assertEquals(List.of(first, second), processed);
+        // The unit sold is written with the delayed product, under its version check
+        assertEquals(0, cable.getAvailable());
+        verify(productRepository, never()).decrementAvailableBy(anyLong(), anyInt());
+        verify(productRepository, never()).decrementAvailable(anyLong());
+        verify(productRepository, times(1)).saveAll(Set.of(cable));
+        verify(notificationOutboxService, times(1)).enqueueAll(Map.of("order-2-product-1-DELAYED",
+                Notification.delay(10, "USB Cable")));
     }
 
+    @Test
+    void processOrders_ShouldThrowStockConflictException_WhenStockChangedConcurrently() {
+        // Arrange
+        Product cable = new Product(1L, 10, 2, ProductType.NORMAL, "USB Cable", null, null, null);
+        when(orderRepository.findAllWithItemsByIdIn(Set.of(1L, 2L)))
+                .thenReturn(List.of(new Order(1L, Set.of(cable)), new Order(2L, Set.of(cable))));
+        when(productRepository.decrementAvailableBy(1L, 2)).thenReturn(0);
 
-}
\ No newline at end of file
+        // Act & Assert
+        assertThrows(StockConflictException.class, () -> productService.processOrders(List.of(1L, 2L)));
+        verify(notificationOutboxService, never()).enqueueAll(anyMap());
+    }
+
+    @Test
+    void handleNormalProduct_ShouldFallBackToDelay_WhenStockRunsOutConcurrently() {
+        // Arrange
+        Product product = new Product(1L, 10, 1, ProductType.NORMAL, "USB Cable", null, null, null);
+        when(productRepository.decrementAvailable(1L)).thenReturn(0);
+
+        // Act
+        productService.handleNormalProduct(product);
+
+        // Assert
+        verify(productRepository, times(1)).decrementAvailable(1L);
+        verify(productRepository, times(1)).save(product);
+        verify(notificationOutboxService, times(1)).enqueueAll(argThat(notifications ->
+                List.copyOf(notifications.values()).equals(List.of(Notification.delay(10, "USB Cable")))));
+    }
+
+    @Test
+    void resolveOutcome_ShouldNotModifyProduct() {
+        // Arrange
+        LocalDate today = LocalDate.now();
+        Product expired = new Product(null, 15, 5, ProductType.EXPIRABLE, "Milk", today.minusDays(1), null, null);
+        Product notInSeason = new Product(null, 15, 5, ProductType.SEASONAL, "Grapes", null, today.plusDays(10), today.plusDays(90));
+
+        // Act & Assert
+        assertEquals(ProductOutcome.EXPIRED, productService.resolveOutcome(expired, today));
+        assertEquals(ProductOutcome.NOT_IN_SEASON, productService.resolveOutcome(notInSeason, today));
+        assertEquals(5, expired.getAvailable());
+        assertEquals(5, notInSeason.getAvailable());
+    }
+
+    @Test
+    void getProduct_ShouldCombineCachedAttributesWithStockFromDatabase() throws ProductNotFoundException {
+        // Arrange
+        ProductAttributes attributes = new ProductAttributes(1L, 15, ProductType.NORMAL, "USB Cable", null, null, null);
+        when(productCatalogCache.get(eq(1L), any())).thenReturn(Optional.of(attributes));
+        when(productRepository.findStockById(1L)).thenReturn(Optional.of(new ProductStock(7, 2L)));
+
+        // Act
+        Product product = productService.getProduct(1L);
+
+        // Assert
+        assertEquals("USB Cable", product.getName());
+        assertEquals(7, product.getAvailable());
+        assertEquals(2L, product.getVersion());
+        verify(productRepository, never()).findById(any());
+    }
+
+    @Test
+    void findProductNames_ShouldQueryTheUpperCasedPrefixLiterally_WhenTheNameIndexIsDisabled() {
+        // Arrange
+        when(productNameIndex.isEnabled()).thenReturn(false);
+
+        // Act
+        productService.findProductNames("usb_c 10%", 5);
+
+        // Assert
+        verify(productRepository).findNamesLike("USB!_C 10!%%", PageRequest.of(0, 5));
+        verify(productNameIndex, never()).findStartingWith(any(), anyInt());
+    }
+
+    private double outcomeCount(ProductType type, ProductOutcome outcome) {
+        return meterRegistry.get("products.outcomes").tag("type", type.name()).tag("outcome", outcome.name()).counter().count();
+    }
+}
@@ -0,0 +1,78 @@
+package com.nimbleways.springboilerplate.services.implementations;
+
+import com.nimbleways.springboilerplate.dto.notification.Notification;
+import com.nimbleways.springboilerplate.entities.Product;
+import com.nimbleways.springboilerplate.enums.ProductOutcome;
+import com.nimbleways.springboilerplate.enums.ProductType;
+import com.nimbleways.springboilerplate.services.ProductTypeHandler;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ProductTypeHandlerRegistryTests {
+
+    private final ProductTypeHandlerRegistry registry = new ProductTypeHandlerRegistry(List.of(
+            new NormalProductHandler(), new SeasonalProductHandler(), new ExpirableProductHandler()));
+
+    @Test
+    void resolveAll_ShouldResolveEveryProductWithTheHandlerOfItsType() {
+        // Arrange
+        LocalDate today = LocalDate.now();
+        Product normal = new Product(1L, 10, 0, ProductType.NORMAL, "USB Dongle", null, null, null);
+        Product expired = new Product(2L, 15, 3, ProductType.EXPIRABLE, "Milk", today.minusDays(1), null, null);
+        Product seasonal = new Product(3L, 15, 3, ProductType.SEASONAL, "Watermelon", null, today.minusDays(2), today.plusDays(30));
+        Product untyped = new Product(4L, 15, 3, null, "Mystery box", null, null, null);
+
+        // Act
+        Map<Product, ProductOutcome> outcomes = registry.resolveAll(List.of(normal, expired, seasonal, untyped), today);
+
+        // Assert
+        assertEquals(Map.of(normal, ProductOutcome.DELAYED, expired, ProductOutcome.EXPIRED,
+                seasonal, ProductOutcome.SOLD, untyped, ProductOutcome.UNCHANGED), outcomes);
+    }
+
+    @Test
+    void resolve_ShouldUseTheGivenStockRatherThanTheProductOne() {
+        Product product = new Product(1L, 10, 5, ProductType.NORMAL, "USB Cable", null, null, null);
+
+        assertEquals(ProductOutcome.DELAYED, registry.resolve(product, 0, LocalDate.now()));
+    }
+
+    @Test
+    void apply_ShouldZeroTheProductsThatCannotBeSold_AndReturnTheirNotification() {
+        LocalDate today = LocalDate.now();
+        Product expired = new Product(1L, 15, 3, ProductType.EXPIRABLE, "Milk", today.minusDays(1), null, null);
+        Product outOfSeason = new Product(2L, 30, 3, ProductType.SEASONAL, "Grapes", null, today.minusDays(10), today.plusDays(5));
+        Product delayed = new Product(3L, 10, 0, ProductType.NORMAL, "USB Dongle", null, null, null);
+
+        assertEquals(Notification.expiration("Milk", today.minusDays(1)),
+                registry.handlerFor(ProductType.EXPIRABLE).apply(expired, ProductOutcome.EXPIRED));
+        assertEquals(Notification.outOfStock("Grapes"),
+                registry.handlerFor(ProductType.SEASONAL).apply(outOfSeason, ProductOutcome.OUT_OF_STOCK));
+        assertEquals(Notification.delay(10, "USB Dongle"),
+                registry.handlerFor(ProductType.NORMAL).apply(delayed, ProductOutcome.DELAYED));
+
+        assertEquals(0, expired.getAvailable());
+        assertEquals(0, outOfSeason.getAvailable());
+        assertThrows(IllegalArgumentException.class, () -> registry.handlerFor(ProductType.NORMAL).apply(delayed, ProductOutcome.EXPIRED));
+    }
+
+    @Test
+    void handlerFor_ShouldThrow_WhenNoHandlerIsRegistered() {
+        ProductTypeHandlerRegistry normalOnly = new ProductTypeHandlerRegistry(List.of(new NormalProductHandler()));
+
+        assertThrows(IllegalArgumentException.class, () -> normalOnly.handlerFor(ProductType.SEASONAL));
+    }
+
+    @Test
+    void constructor_ShouldReject_TwoHandlersForTheSameType() {
+        List<ProductTypeHandler> handlers = List.of(new NormalProductHandler(), new NormalProductHandler());
+
+        assertThrows(IllegalStateException.class, () -> new ProductTypeHandlerRegistry(handlers));
+    }
+}
@@ -0,0 +1,217 @@
+package com.nimbleways.springboilerplate.services.implementations;
+
+import com.nimbleways.springboilerplate.config.StockLedgerProperties;
+import com.nimbleways.springboilerplate.entities.StockLedgerCheckpoint;
+import com.nimbleways.springboilerplate.repositories.ProductRepository;
+import com.nimbleways.springboilerplate.repositories.StockLedgerCheckpointRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class StockLedgerTests {
+
+    @TempDir
+    Path directory;
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+
+    private final StockLedgerCheckpointRepository checkpointRepository = mock(StockLedgerCheckpointRepository.class);
+
+    private Path journal;
+
+    private StockLedger ledger;
+
+    @BeforeEach
+    void setUp() {
+        journal = directory.resolve("stock-ledger.journal");
+        StockLedgerProperties properties = new StockLedgerProperties();
+        properties.setEnabled(true);
+        properties.setJournal(journal);
+        properties.setFlushThreshold(Integer.MAX_VALUE);
+        ledger = new StockLedger(properties, productRepository, checkpointRepository, mock(PlatformTransactionManager.class),
+                new SimpleMeterRegistry());
+        when(productRepository.applyStockDelta(anyLong(), anyInt())).thenReturn(1);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        ledger.stop();
+    }
+
+    @Test
+    void take_ShouldNeverOversell_AndLeaveTheTableUntouched() throws Exception {
+        when(productRepository.findAvailableById(1L)).thenReturn(Optional.of(2));
+        ledger.start();
+
+        assertTrue(ledger.take(1L, 1));
+        assertTrue(ledger.take(1L, 1));
+        assertFalse(ledger.take(1L, 1));
+
+        assertEquals(Optional.of(0), ledger.available(1L));
+        verify(productRepository, times(1)).findAvailableById(1L);
+        verify(productRepository, never()).applyStockDelta(anyLong(), anyInt());
+        assertEquals(2, Files.readAllLines(journal).size());
+    }
+
+    @Test
+    void take_ShouldNotHoldTheStripe_WhileReadingTheStock() throws Exception {
+        // With the default 64 stripes, products 1 and 65 share one
+        when(productRepository.findAvailableById(65L)).thenReturn(Optional.of(1));
+        when(productRepository.findAvailableById(1L)).thenAnswer(invocation -> {
+            assertTrue(CompletableFuture.supplyAsync(() -> ledger.take(65L, 1)).get(5, TimeUnit.SECONDS));
+            return Optional.of(1);
+        });
+        ledger.start();
+
+        assertTrue(ledger.take(1L, 1));
+        assertEquals(Optional.of(0), ledger.available(65L));
+    }
+
+    @Test
+    void take_ShouldReadTheStockAgain_WhenItIsResetWhileBeingRead() throws Exception {
+        when(productRepository.findAvailableById(1L))
+                .thenAnswer(invocation -> {
+                    ledger.reset(1L, 7);
+                    return Optional.of(2);
+                })
+                .thenReturn(Optional.of(7));
+        ledger.start();
+
+        assertTrue(ledger.take(1L, 1));
+
+        assertEquals(Optional.of(6), ledger.available(1L));
+    }
+
+    @Test
+    void take_ShouldJournalEveryChangeInSequence_WhenTakenConcurrently() throws Exception {
+        for (long productId = 1; productId <= 8; productId++) {
+            when(productRepository.findAvailableById(productId)).thenReturn(Optional.of(1000));
+        }
+        ledger.start();
+
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        List<Future<?>> takes = new ArrayList<>();
+        for (long productId = 1; productId <= 8; productId++) {
+            long id = productId;
+            takes.add(threads.submit(() -> {
+                for (int i = 0; i < 50; i++) {
+                    assertTrue(ledger.take(id, 1));
+                }
+            }));
+        }
+        for (Future<?> take : takes) {
+            take.get(10, TimeUnit.SECONDS);
+        }
+        threads.shutdown();
+
+        List<Long> sequences = Files.readAllLines(journal).stream()
+                .map(line -> Long.parseLong(line.split(" ")[0]))
+                .collect(Collectors.toList());
+        assertEquals(LongStream.rangeClosed(1, 400).boxed().collect(Collectors.toList()), sequences);
+        assertEquals(Optional.of(950), ledger.available(8L));
+    }
+
+    @Test
+    void compact_ShouldEmptyTheJournal_OrRewriteItPastTheCompactionSize() throws Exception {
+        try (StockLedgerJournal small = StockLedgerJournal.open(journal, false, Long.MAX_VALUE)) {
+            small.append(1, 2);
+            small.append(1, 1);
+            small.awaitWritten(small.append(2, 4));
+
+            // Below the compaction size the records written back are only dropped with the others
+            small.compact(1);
+            assertEquals("1 1 2\n2 1 1\n3 2 4\n", Files.readString(journal));
+            small.compact(3);
+            assertEquals("", Files.readString(journal));
+        }
+        try (StockLedgerJournal large = StockLedgerJournal.open(journal, false, 0)) {
+            large.skipTo(3);
+            large.append(1, 2);
+            large.awaitWritten(large.append(2, 1));
+
+            large.compact(4);
+            assertEquals("5 2 1\n", Files.readString(journal));
+        }
+    }
+
+    @Test
+    void flush_ShouldWriteBackTheNetChange_AndCompactTheJournal() throws Exception {
+        when(productRepository.findAvailableById(1L)).thenReturn(Optional.of(10));
+        ledger.start();
+        ledger.take(1L, 3);
+        ledger.restock(1L, 1);
+
+        assertEquals(1, ledger.flush());
+
+        verify(productRepository, times(1)).applyStockDelta(1L, 2);
+        assertCheckpointSavedAt(2);
+        assertEquals("", Files.readString(journal));
+        assertEquals(0, ledger.flush());
+    }
+
+    @Test
+    void start_ShouldReplayTheRecordsPastTheCheckpoint_AndDropATornRecord() throws Exception {
+        Files.writeString(journal, "1 1 2\n2 1 1\n3 2 4\n4 1", StandardCharsets.US_ASCII);
+        when(checkpointRepository.findById(StockLedgerCheckpoint.ID)).thenReturn(Optional.of(StockLedgerCheckpoint.at(1)));
+        when(productRepository.findAvailableById(2L)).thenReturn(Optional.of(5));
+
+        ledger.start();
+
+        verify(productRepository, times(1)).applyStockDelta(1L, 1);
+        verify(productRepository, times(1)).applyStockDelta(2L, 4);
+        verify(productRepository, never()).applyStockDelta(1L, 3);
+        assertCheckpointSavedAt(3);
+
+        // Numbering goes on after the replayed records
+        ledger.take(2L, 1);
+        assertEquals("4 2 1\n", Files.readString(journal));
+    }
+
+    @Test
+    void overwrite_ShouldWriteBackFirst_AndApplyTheUnitsTakenMeanwhileToTheStockSet() throws Exception {
+        when(productRepository.findAvailableById(1L)).thenReturn(Optional.of(10));
+        ledger.start();
+        ledger.take(1L, 3);
+
+        ledger.overwrite(() -> {
+            verify(productRepository, times(1)).applyStockDelta(1L, 3);
+            // Taken while the stock is being set, written back after it
+            ledger.take(1L, 1);
+            ledger.reset(1L, 50);
+            return null;
+        });
+
+        assertEquals(Optional.of(49), ledger.available(1L));
+        assertEquals(1, ledger.flush());
+        verify(productRepository, times(1)).applyStockDelta(1L, 1);
+    }
+
+    private void assertCheckpointSavedAt(long sequence) {
+        ArgumentCaptor<StockLedgerCheckpoint> checkpoint = ArgumentCaptor.forClass(StockLedgerCheckpoint.class);
+        verify(checkpointRepository, atLeastOnce()).save(checkpoint.capture());
+        assertEquals(sequence, checkpoint.getValue().getLastSequence());
+    }
+}
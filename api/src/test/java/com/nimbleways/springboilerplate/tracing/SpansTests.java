@@ -0,0 +1,111 @@
+package com.nimbleways.springboilerplate.tracing;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.sdk.OpenTelemetrySdk;
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpansTests {
+
+    private final List<SpanData> exported = new CopyOnWriteArrayList<>();
+
+    private SdkTracerProvider tracerProvider;
+
+    private Spans spans;
+
+    @BeforeEach
+    void setUp() {
+        tracerProvider = SdkTracerProvider.builder()
+                .addSpanProcessor(SimpleSpanProcessor.create(new CollectingExporter()))
+                .build();
+        spans = new Spans(OpenTelemetrySdk.builder().setTracerProvider(tracerProvider).build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        tracerProvider.close();
+    }
+
+    @Test
+    void trace_ShouldNestSpansStartedInsideTheTracedCode() {
+        String result = spans.trace("parent", Attributes.of(SpanAttributes.ORDER_ID, 1L),
+                () -> spans.trace("child", Attributes.empty(), () -> "done"));
+
+        assertEquals("done", result);
+        assertEquals(2, exported.size());
+        SpanData child = exported.get(0);
+        SpanData parent = exported.get(1);
+        assertEquals("child", child.getName());
+        assertEquals(parent.getSpanId(), child.getParentSpanId());
+        assertEquals(parent.getTraceId(), child.getTraceId());
+        assertEquals(1L, parent.getAttributes().get(SpanAttributes.ORDER_ID));
+    }
+
+    @Test
+    void trace_ShouldMarkTheSpanAsFailed_WhenTheCodeThrows() {
+        assertThrows(IllegalStateException.class, () -> spans.trace("failing", Attributes.empty(), () -> {
+            throw new IllegalStateException("boom");
+        }));
+
+        assertEquals(1, exported.size());
+        assertEquals(StatusCode.ERROR, exported.get(0).getStatus().getStatusCode());
+        assertEquals(1, exported.get(0).getEvents().size());
+    }
+
+    @Test
+    void jsonSpanExporter_ShouldWriteOneDocumentPerSpan(@TempDir Path directory) throws Exception {
+        spans.trace("parent", Attributes.of(SpanAttributes.PRODUCT_ID, 7L), () -> spans.trace("child", Attributes.empty(), () -> null));
+        ObjectMapper objectMapper = new ObjectMapper();
+        Path file = directory.resolve("spans.jsonl");
+        JsonSpanExporter exporter = JsonSpanExporter.toFile(objectMapper, file);
+
+        exporter.export(exported);
+        exporter.shutdown();
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(2, lines.size());
+        JsonNode child = objectMapper.readTree(lines.get(0));
+        JsonNode parent = objectMapper.readTree(lines.get(1));
+        assertEquals("child", child.get("name").asText());
+        assertEquals(parent.get("spanId").asText(), child.get("parentSpanId").asText());
+        assertFalse(parent.has("parentSpanId"));
+        assertEquals(7L, parent.get("attributes").get("product.id").asLong());
+    }
+
+    private final class CollectingExporter implements SpanExporter {
+
+        @Override
+        public CompletableResultCode export(Collection<SpanData> spans) {
+            exported.addAll(spans);
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode flush() {
+            return CompletableResultCode.ofSuccess();
+        }
+
+        @Override
+        public CompletableResultCode shutdown() {
+            return CompletableResultCode.ofSuccess();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.nimbleways.springboilerplate.utils;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Counts the SQL statements Hibernate prepares on the current thread, so tests can assert
+ * how many queries a code path runs and catch N+1 regressions.
+ * Registered through the hibernate.session_factory.statement_inspector property of the test configuration.
+ */
+public class QueryCountInspector implements StatementInspector {
+
+    private static final ThreadLocal<Counts> COUNTS = ThreadLocal.withInitial(Counts::new);
+
+    @Override
+    public String inspect(String sql) {
+        Counts counts = COUNTS.get();
+        String statement = sql.stripLeading().toLowerCase(Locale.ROOT);
+        if (statement.startsWith("select")) {
+            counts.selects++;
+        } else if (statement.startsWith("insert")) {
+            counts.inserts++;
+        } else if (statement.startsWith("update")) {
+            counts.updates++;
+        } else if (statement.startsWith("delete")) {
+            counts.deletes++;
+        }
+        return sql;
+    }
+
+    public static void reset() {
+        COUNTS.remove();
+    }
+
+    public static int getSelectCount() {
+        return COUNTS.get().selects;
+    }
+
+    public static int getUpdateCount() {
+        return COUNTS.get().updates;
+    }
+
+    public static int getInsertCount() {
+        return COUNTS.get().inserts;
+    }
+
+    public static int getDeleteCount() {
+        return COUNTS.get().deletes;
+    }
+
+    public static void assertSelectCount(int expected) {
+        assertEquals(expected, getSelectCount(), "Unexpected number of SELECT statements");
+    }
+
+    public static void assertUpdateCount(int expected) {
+        assertEquals(expected, getUpdateCount(), "Unexpected number of UPDATE statements");
+    }
+
+    private static class Counts {
+        private int selects;
+        private int inserts;
+        private int updates;
+        private int deletes;
+    }
+}